@@ -0,0 +1,240 @@
+/*
+ * @(#)ProgressSampler.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.gui;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes the progress of a loader to a {@link ProgressObserver} at a
+ * fixed rate.
+ * <p>
+ * The loader only bumps counters for the bytes, nodes and directories which
+ * it has read. The counters are {@code LongAdder}s, so they can be bumped by
+ * many threads without contention. A sampler thread reads the counters and
+ * updates the progress observer at most {@link #DEFAULT_RATE} times a
+ * second. This keeps listener and string work out of the loader's inner
+ * loop.
+ * <p>
+ * If the total number of bytes is known, the progress is measured in
+ * kilobytes, otherwise it is measured in nodes. The note shows the
+ * throughput and the estimated time left.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public class ProgressSampler {
+
+    /** The maximal number of updates per second. */
+    public final static int DEFAULT_RATE = 20;
+    private ProgressObserver p;
+    private long interval;
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder directories = new LongAdder();
+    private final LongAdder expectedNodes = new LongAdder();
+    private volatile long totalBytes = -1;
+    private volatile String item;
+    private long startTime;
+    private Thread sampler;
+    private volatile boolean isStopped;
+
+    /**
+     * Creates a new sampler which updates the specified progress observer
+     * at the default rate.
+     */
+    public ProgressSampler(ProgressObserver p) {
+        this(p, DEFAULT_RATE);
+    }
+
+    /**
+     * Creates a new sampler.
+     *
+     * @param p The progress observer.
+     * @param rate The maximal number of updates per second.
+     */
+    public ProgressSampler(ProgressObserver p, int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("rate < 1: " + rate);
+        }
+        this.p = p;
+        this.interval = 1000 / rate;
+    }
+
+    /**
+     * Sets the total number of bytes, or -1 if the total is unknown.
+     */
+    public void setTotalBytes(long newValue) {
+        totalBytes = newValue;
+    }
+
+    /** Adds the specified number of bytes which have been read. */
+    public void addBytes(long count) {
+        bytes.add(count);
+    }
+
+    /** Counts a node which has been read. */
+    public void incrementNodes() {
+        nodes.increment();
+    }
+
+    /** Adds the specified number of nodes which have been read. */
+    public void addNodes(long count) {
+        nodes.add(count);
+    }
+
+    /** Counts a directory which has been read. */
+    public void incrementDirectories() {
+        directories.increment();
+    }
+
+    /**
+     * Adds the specified number of nodes which have been discovered but not
+     * read yet. If the total number of bytes is unknown, the progress is
+     * measured against the discovered nodes.
+     */
+    public void addExpectedNodes(long count) {
+        expectedNodes.add(count);
+    }
+
+    /**
+     * Sets the item which is being read, for example the name of a
+     * directory. The item is shown in the note.
+     */
+    public void setItem(String newValue) {
+        item = newValue;
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    public long getDirectories() {
+        return directories.sum();
+    }
+
+    /**
+     * Starts the sampler thread.
+     */
+    public void start() {
+        startTime = System.currentTimeMillis();
+        isStopped = false;
+        sampler = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    while (!isStopped) {
+                        Thread.sleep(interval);
+                        publish();
+                    }
+                } catch (InterruptedException e) {
+                    // we have been stopped
+                }
+            }
+        }, "ProgressSampler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Stops the sampler thread, waits until it has finished and publishes
+     * the final counts.
+     */
+    public void stop() {
+        if (sampler != null) {
+            isStopped = true;
+            sampler.interrupt();
+            boolean isInterrupted = false;
+            while (sampler.isAlive()) {
+                try {
+                    sampler.join();
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+            sampler = null;
+            publish();
+        }
+    }
+
+    /**
+     * Publishes the counters to the progress observer.
+     */
+    private void publish() {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        long b = bytes.sum();
+        long n = nodes.sum();
+        long total = totalBytes;
+        long expected = expectedNodes.sum();
+
+        // The progress is kept below the maximum, because the progress
+        // observer closes itself when the maximum is reached.
+        long remainingMillis = -1;
+        if (total > 0) {
+            p.setIndeterminate(false);
+            p.setMaximum((int) (total >>> 10) + 1);
+            p.setProgress((int) (Math.min(b, total) >>> 10));
+            if (b > 0) {
+                remainingMillis = (total - Math.min(b, total)) * elapsed / b;
+            }
+        } else if (expected > 0) {
+            p.setIndeterminate(false);
+            p.setMaximum((int) Math.min(Integer.MAX_VALUE, expected + 1));
+            p.setProgress((int) Math.min(n, expected));
+            if (n > 0) {
+                remainingMillis = (expected - Math.min(n, expected)) * elapsed / n;
+            }
+        }
+
+        StringBuilder buf = new StringBuilder("Reading");
+        if (b > 0) {
+            buf.append(' ');
+            appendMegabytes(buf, b);
+            buf.append(" MB (");
+            appendMegabytes(buf, b * 1000 / elapsed);
+            buf.append(" MB/s)");
+        }
+        if (n > 0) {
+            buf.append(b > 0 ? ", " : " ").append(n).append(" nodes (");
+            buf.append(n * 1000 / elapsed).append(" nodes/s)");
+        }
+        long d = directories.sum();
+        if (d > 0) {
+            buf.append(", ").append(d).append(" directories");
+        }
+        if (remainingMillis >= 0) {
+            long seconds = (remainingMillis + 999) / 1000;
+            buf.append(", ").append(seconds / 60).append(':');
+            if (seconds % 60 < 10) {
+                buf.append('0');
+            }
+            buf.append(seconds % 60).append(" left");
+        }
+        String i = item;
+        if (i != null) {
+            buf.append(' ').append(i);
+        }
+        p.setNote(buf.toString());
+    }
+
+    /** Appends a number of bytes in megabytes with one fraction digit. */
+    private static void appendMegabytes(StringBuilder buf, long bytes) {
+        long tenths = bytes * 10 >>> 20;
+        buf.append(tenths / 10).append('.').append(tenths % 10);
+    }
+}
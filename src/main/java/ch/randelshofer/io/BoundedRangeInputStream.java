@@ -1,7 +1,7 @@
 /*
- * @(#)BoundedRangeModel.java  2.0  2008-06-24
+ * @(#)BoundedRangeModel.java  2.1  2026-10-18
  *
- * Copyright (c) 1999-2008 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 1999-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -18,9 +18,14 @@ import javax.swing.event.EventListenerList;
 /**
  * This input stream implements the BoundedRangeModel and allows
  * the observation of the input reading process.
+ * <p>
+ * Change events are fired at most {@link #DEFAULT_RATE} times a second,
+ * and when the end of the range is reached, so that listeners do not slow
+ * down the reader.
  *
  * @author  Werner Randelshofer, Staldenmattweg 2, CH-6410 Goldau, Switzerland.
- * @version     2.0 2008-06-24 Upgraded to J2SE6.
+ * @version     2.1 2026-10-18 Fires change events at a limited rate.
+ * <br>history 2.0 2008-06-24 Upgraded to J2SE6.
  * <br>history 1.0.2  09.05.1999  Transferred into package ch.randelshofer.io
  * <br>history  1.0.1  02.05.1999  #setMaximum overrides the size information
  * from the file.
@@ -29,9 +34,13 @@ import javax.swing.event.EventListenerList;
 public class BoundedRangeInputStream
 extends FilterInputStream
 implements BoundedRangeModel {
+    /** The maximal number of change events per second. */
+    public final static int DEFAULT_RATE = 20;
     private long nread = 0;
     private long size = 0;
     private boolean valueIsAdjusting;
+    /** The time in milliseconds at which the next change event may be fired. */
+    private long nextFire;
     
     /**
      * Only one ChangeEvent is needed per model instance since the
@@ -108,6 +117,8 @@ implements BoundedRangeModel {
     /**
      * Increments the extent by the indicated value.
      * Negative Increments are ignored.
+     * Change events are only fired at the rate given by {@link #DEFAULT_RATE},
+     * and when the end of the range has been reached.
      *
      * @param  inc  The incrementValue value.
      */
@@ -116,7 +127,11 @@ implements BoundedRangeModel {
             nread+=inc;
             if (nread > size)
             { size = nread; }
-            fireStateChanged();
+            long now = System.currentTimeMillis();
+            if (now >= nextFire || nread >= size) {
+                nextFire = now + 1000 / DEFAULT_RATE;
+                fireStateChanged();
+            }
         }
     }
     /**
@@ -0,0 +1,239 @@
+/*
+ * @(#)PipelinedInputStream.java  1.1  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * This input stream reads an underlying input stream on a producer thread.
+ * <p>
+ * The producer thread fills a fixed ring of buffers, while the thread which
+ * reads from this stream consumes the buffers which have been filled. This
+ * allows to inflate a compressed stream on one core, while the data is
+ * parsed on another core. The buffers are reused, so no garbage is produced
+ * while the stream is being read. If all buffers are filled, the producer
+ * thread waits until the consumer has returned a buffer.
+ * <p>
+ * An exception of the underlying stream is thrown by the read method of
+ * this stream, after all data read before the exception has been consumed.
+ * <p>
+ * Closing this stream stops the producer thread, but it does not close the
+ * underlying stream. This allows to read the entries of a
+ * {@code ZipInputStream} one after the other. If the producer thread is
+ * blocked in a read of the underlying stream for longer than
+ * {@link #CLOSE_TIMEOUT}, the underlying stream is closed to release it.
+ *
+ * @author Werner Randelshofer
+ * @version 1.1 2026-10-18 Passes all exceptions of the producer thread to
+ * the reader. Does not wait endlessly for the producer thread on close.
+ * <br>1.0 2026-10-18 Created.
+ */
+public class PipelinedInputStream extends InputStream {
+
+    public final static int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public final static int DEFAULT_BUFFER_COUNT = 4;
+    /** The number of milliseconds which close waits for the producer thread. */
+    public final static long CLOSE_TIMEOUT = 1000;
+
+    private InputStream in;
+    /** Buffers which can be filled by the producer. */
+    private ArrayBlockingQueue<Buffer> free;
+    /** Buffers which have been filled by the producer. */
+    private ArrayBlockingQueue<Buffer> filled;
+    /** The buffer which is being consumed. */
+    private Buffer current;
+    private int pos;
+    private Thread producer;
+    private volatile boolean isClosed;
+
+    /**
+     * Creates a new instance with the default number of buffers and the
+     * default buffer size, and starts the producer thread.
+     */
+    public PipelinedInputStream(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * Creates a new instance and starts the producer thread.
+     *
+     * @param in The underlying input stream.
+     * @param bufferSize The size of a buffer.
+     * @param bufferCount The number of buffers in the ring.
+     */
+    public PipelinedInputStream(InputStream in, int bufferSize, int bufferCount) {
+        if (bufferSize < 1 || bufferCount < 1) {
+            throw new IllegalArgumentException("bufferSize and bufferCount must be at least 1");
+        }
+        this.in = in;
+        free = new ArrayBlockingQueue<Buffer>(bufferCount);
+        filled = new ArrayBlockingQueue<Buffer>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(new Buffer(bufferSize));
+        }
+        producer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                produce();
+            }
+        }, "PipelinedInputStream");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    /**
+     * Fills the buffers until the end of the underlying stream is reached,
+     * an error occurs or this stream is closed.
+     */
+    private void produce() {
+        try {
+            while (!isClosed) {
+                Buffer buf = free.take();
+                buf.length = 0;
+                try {
+                    while (buf.length < buf.data.length) {
+                        int count = in.read(buf.data, buf.length, buf.data.length - buf.length);
+                        if (count == -1) {
+                            buf.isLast = true;
+                            break;
+                        }
+                        buf.length += count;
+                    }
+                } catch (Throwable t) {
+                    buf.error = t;
+                    buf.isLast = true;
+                }
+                // There are never more buffers than the capacity of the
+                // queue, so this only fails if we have been closed.
+                filled.put(buf);
+                if (buf.isLast) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // we have been closed
+        }
+    }
+
+    /**
+     * Makes the next filled buffer the current buffer.
+     *
+     * @return false if the end of the stream has been reached.
+     */
+    private boolean nextBuffer() throws IOException {
+        while (current == null || pos == current.length) {
+            if (isClosed) {
+                throw new IOException("Stream closed");
+            }
+            if (current != null) {
+                if (current.error instanceof IOException) {
+                    throw (IOException) current.error;
+                } else if (current.error instanceof RuntimeException) {
+                    throw (RuntimeException) current.error;
+                } else if (current.error instanceof Error) {
+                    throw (Error) current.error;
+                } else if (current.error != null) {
+                    throw new IOException(current.error);
+                }
+                if (current.isLast) {
+                    return false;
+                }
+                free.add(current);
+                current = null;
+            }
+            try {
+                current = filled.take();
+            } catch (InterruptedException e) {
+                InterruptedIOException ex = new InterruptedIOException();
+                ex.initCause(e);
+                throw ex;
+            }
+            pos = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBuffer()) {
+            return -1;
+        }
+        return current.data[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextBuffer()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - pos);
+        System.arraycopy(current.data, pos, b, off, count);
+        pos += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current == null ? 0 : current.length - pos;
+    }
+
+    /**
+     * Stops the producer thread and waits until it has finished. The
+     * underlying stream is only closed, if the producer thread does not
+     * finish within {@link #CLOSE_TIMEOUT}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!isClosed) {
+            isClosed = true;
+            producer.interrupt();
+            boolean isInterrupted = false;
+            long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT;
+            for (long timeout = CLOSE_TIMEOUT; producer.isAlive() && timeout > 0;
+                    timeout = deadline - System.currentTimeMillis()) {
+                try {
+                    producer.join(timeout);
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (producer.isAlive()) {
+                // The producer is blocked in the underlying stream
+                in.close();
+            }
+            free.clear();
+            filled.clear();
+            current = null;
+        }
+    }
+
+    private static class Buffer {
+
+        private byte[] data;
+        private int length;
+        private boolean isLast;
+        private Throwable error;
+
+        public Buffer(int size) {
+            data = new byte[size];
+        }
+    }
+}
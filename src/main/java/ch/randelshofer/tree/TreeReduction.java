@@ -0,0 +1,119 @@
+/*
+ * @(#)TreeReduction.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reduces all nodes of a tree to a single result, using many threads.
+ * <p>
+ * Each task of the reduction creates a result with {@link #createResult},
+ * and accumulates the nodes of a part of the tree into it with
+ * {@link #accumulate}. The results of the tasks are then combined with
+ * {@link #combine}.
+ * <p>
+ * The size of a subtree is not known in advance. Therefore a task hands
+ * a subtree over to a new task only while the other threads run out of
+ * work, and walks the subtree itself otherwise.
+ * <p>
+ * The nodes are accumulated in no particular order, and by different
+ * threads. The methods of a subclass must not depend on the order, and
+ * must not share mutable state between results. The tree must not be
+ * changed during the reduction.
+ *
+ * @param <R> The type of the result.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public abstract class TreeReduction<R> {
+
+    /**
+     * A subtree is walked by the current task, if more than this number of
+     * tasks are waiting to be taken by other threads.
+     */
+    private final static int SURPLUS_THRESHOLD = 3;
+
+    /**
+     * Creates an empty result.
+     */
+    protected abstract R createResult();
+
+    /**
+     * Accumulates a node into a result.
+     */
+    protected abstract void accumulate(R result, TreeNode node);
+
+    /**
+     * Combines two results. The returned result can be one of the
+     * specified results.
+     */
+    protected abstract R combine(R result1, R result2);
+
+    /**
+     * Reduces the specified tree.
+     *
+     * @param root The root of the tree.
+     * @return The result.
+     */
+    public R reduce(TreeNode root) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return pool.invoke(new ReductionTask(root));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Reduces a subtree.
+     */
+    private class ReductionTask extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+        private TreeNode root;
+
+        public ReductionTask(TreeNode root) {
+            this.root = root;
+        }
+
+        @Override
+        protected R compute() {
+            R result = createResult();
+            ArrayList<ReductionTask> forks = new ArrayList<ReductionTask>();
+            walk(root, result, forks);
+            for (int i = forks.size() - 1; i >= 0; i--) {
+                result = combine(result, forks.get(i).join());
+            }
+            return result;
+        }
+
+        /**
+         * Accumulates the nodes of a subtree. Subtrees below the node are
+         * added to the forks, while other threads are idle.
+         */
+        private void walk(TreeNode node, R result, ArrayList<ReductionTask> forks) {
+            accumulate(result, node);
+            for (TreeNode child : node.children()) {
+                if (child.getAllowsChildren() && !child.children().isEmpty()
+                        && getSurplusQueuedTaskCount() <= SURPLUS_THRESHOLD) {
+                    ReductionTask task = new ReductionTask(child);
+                    task.fork();
+                    forks.add(task);
+                } else {
+                    walk(child, result, forks);
+                }
+            }
+        }
+    }
+}
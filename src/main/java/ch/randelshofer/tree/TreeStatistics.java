@@ -0,0 +1,195 @@
+/*
+ * @(#)TreeStatistics.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Computes the minimum, maximum, median and histogram of a long value of
+ * the nodes of a tree.
+ * <p>
+ * The values are extracted from the nodes with a {@link TreeReduction} into
+ * primitive arrays, and then sorted in parallel. The sorted values are kept,
+ * so that histograms with different bins can be computed without walking
+ * the tree again.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public class TreeStatistics {
+
+    /**
+     * Extracts the value of a node. The methods are invoked by many threads
+     * at the same time.
+     */
+    public interface Extractor {
+
+        /** Returns true if the node has a value. */
+        public boolean hasValue(TreeNode node);
+
+        /** Returns the value of the node. */
+        public long getValue(TreeNode node);
+    }
+    /** The sorted values. */
+    private long[] values;
+
+    /**
+     * Computes the statistics of the values of the specified tree.
+     */
+    public TreeStatistics(TreeNode root, final Extractor extractor) {
+        TreeReduction<Values> reduction = new TreeReduction<Values>() {
+
+            @Override
+            protected Values createResult() {
+                return new Values();
+            }
+
+            @Override
+            protected void accumulate(Values result, TreeNode node) {
+                if (extractor.hasValue(node)) {
+                    result.add(extractor.getValue(node));
+                }
+            }
+
+            @Override
+            protected Values combine(Values result1, Values result2) {
+                result1.addAll(result2);
+                return result1;
+            }
+        };
+        values = reduction.reduce(root).toArray();
+        Arrays.parallelSort(values);
+    }
+
+    /** Returns the number of nodes which have a value. */
+    public int getCount() {
+        return values.length;
+    }
+
+    /** Returns the smallest value. The count must not be 0. */
+    public long getMin() {
+        return values[0];
+    }
+
+    /** Returns the largest value. The count must not be 0. */
+    public long getMax() {
+        return values[values.length - 1];
+    }
+
+    /**
+     * Returns the median. If the count is even, this is the larger one of
+     * the two middle values. The count must not be 0.
+     */
+    public long getMedian() {
+        return values[values.length / 2];
+    }
+
+    /**
+     * Returns the number of values which are smaller than the specified
+     * value.
+     */
+    public int getRank(long value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns a histogram of the values. The bins divide the range from the
+     * minimum to the maximum into equal parts; the maximum has a bin of its
+     * own.
+     *
+     * @param binCount The number of bins.
+     */
+    public int[] getHistogram(int binCount) {
+        int[] histogram = new int[binCount];
+        if (values.length == 0) {
+            return histogram;
+        }
+        long min = getMin();
+        double range = getMax() - min;
+        for (long value : values) {
+            int index = (range == 0) ? 0 : (int) ((value - min) * (binCount - 1) / range);
+            histogram[Math.min(binCount - 1, Math.max(0, index))]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the sorted values. The array must not be changed.
+     */
+    public long[] getValues() {
+        return values;
+    }
+
+    /**
+     * The values which have been extracted by a task. They are stored in
+     * chunks, so that the values of two tasks can be combined without
+     * copying them.
+     */
+    private static class Values {
+
+        private final static int CHUNK_SIZE = 4096;
+        private ArrayList<long[]> chunks = new ArrayList<long[]>();
+        private long[] chunk;
+        private int chunkSize;
+        private int size;
+
+        public void add(long value) {
+            if (chunk == null || chunkSize == chunk.length) {
+                chunk = new long[CHUNK_SIZE];
+                chunkSize = 0;
+                chunks.add(chunk);
+            }
+            chunk[chunkSize++] = value;
+            size++;
+        }
+
+        /**
+         * Adds the chunks of the specified values. The specified object
+         * must not be used afterwards.
+         */
+        public void addAll(Values that) {
+            if (that.size == 0) {
+                return;
+            }
+            if (chunk != null) {
+                // Trim the current chunk, so that all chunks but the last
+                // one are full.
+                chunks.set(chunks.size() - 1, Arrays.copyOf(chunk, chunkSize));
+            }
+            chunks.addAll(that.chunks);
+            chunk = that.chunk;
+            chunkSize = that.chunkSize;
+            size += that.size;
+        }
+
+        public long[] toArray() {
+            long[] a = new long[size];
+            int pos = 0;
+            for (long[] c : chunks) {
+                int n = Math.min(c.length, size - pos);
+                System.arraycopy(c, 0, a, pos, n);
+                pos += n;
+            }
+            return a;
+        }
+    }
+}
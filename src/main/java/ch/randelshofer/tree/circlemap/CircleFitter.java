@@ -0,0 +1,234 @@
+/*
+ * @(#)CircleFitter.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.circlemap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fits circles into the free space of an existing packing, without moving
+ * the circles of the packing.
+ * <p>
+ * The packing lies within a bounding circle around the center of the
+ * coordinate system. A circle fits at a location, if it lies within the
+ * bounding circle and does not intersect a circle of the packing.
+ * <p>
+ * The free space of a close packing is mostly found between the outer
+ * circles of the packing and the bounding circle. Therefore only the outer
+ * circles, which leave a gap of less than the diameter of the circle to the
+ * bounding circle, are considered. The candidate locations are the
+ * locations where the circle touches an outer circle and another circle,
+ * or an outer circle and the bounding circle. The candidate which is
+ * closest to the center is chosen. The holes inside the packing are not
+ * searched, because they are usually too small, and searching them would
+ * take about as long as packing all circles again.
+ * <p>
+ * If the circle does not fit, the closest candidate lies partly outside of
+ * the bounding circle. The circle is then attached to the outside of the
+ * packing there, and the bounding circle is enlarged when the circle is
+ * added. This is about what packing all circles again would do with a
+ * small circle.
+ * <p>
+ * A candidate which touches a circle {@code a} can only intersect the
+ * circles which come closer to {@code a} than the diameter of the
+ * candidate. These circles are looked up once for each {@code a}, and all
+ * candidates which touch {@code a} are only tested against them.
+ * <p>
+ * A circle {@code a} which is much larger than the fitted circle can have
+ * many small circles near it. For such a circle, only the large circles
+ * near it are looked up, and the candidates are tested against the circles
+ * near each candidate. The candidates where the fitted circle touches
+ * {@code a} and a small circle are found from the small circle.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+class CircleFitter {
+
+    /** The bounding circle may be exceeded by this fraction of its radius. */
+    private final static double EPSILON = 1e-9;
+    /**
+     * A circle which is this many times larger than the fitted circle is a
+     * large circle.
+     */
+    private final static double LARGE_FACTOR = 4;
+    private double boundsRadius;
+    private ArrayList<Circle> placed;
+    private CircleGrid<Circle> grid;
+    /** The circles near the circle which is touched by the candidates. */
+    private ArrayList<Circle> near = new ArrayList<Circle>();
+    /** The circles near a location. */
+    private ArrayList<Circle> intersecting = new ArrayList<Circle>();
+    /** The best candidate of the current fit. */
+    private double bestX, bestY, bestDistance2;
+
+    /**
+     * Creates a new fitter.
+     *
+     * @param packing The circles of the packing.
+     * @param boundsRadius The radius of the bounding circle.
+     * @param largestRadius The radius of the largest circle which will be
+     * fitted.
+     */
+    public CircleFitter(List<? extends Circle> packing, double boundsRadius, double largestRadius) {
+        this.boundsRadius = boundsRadius;
+        placed = new ArrayList<Circle>(packing);
+        // The circles near a candidate are looked up with distances of a
+        // few times the largest radius. Smaller circles are kept in cells of
+        // this size, so that a lookup does not need to visit many cells.
+        grid = new CircleGrid<Circle>(largestRadius);
+        for (Circle c : placed) {
+            grid.add(c, c);
+        }
+    }
+
+    /**
+     * Returns the radius of the bounding circle.
+     */
+    public double getBoundsRadius() {
+        return boundsRadius;
+    }
+
+    /**
+     * Returns true if the circle fits at its current location.
+     */
+    public boolean fits(Circle c) {
+        return Math.sqrt(c.cx * c.cx + c.cy * c.cy) + c.radius <= boundsRadius * (1 + EPSILON)
+                && isFree(c.cx, c.cy, c.radius);
+    }
+
+    /**
+     * Returns true if a circle at the specified location does not intersect
+     * a circle of the packing.
+     */
+    private boolean isFree(double cx, double cy, double r) {
+        intersecting.clear();
+        grid.findNear(cx, cy, r, intersecting);
+        Circle probe = new Circle(cx, cy, r);
+        for (Circle other : intersecting) {
+            if (CircleGrid.intersects(other, probe)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the circle to the location closest to the center where it does
+     * not intersect a circle of the packing. The location lies partly
+     * outside of the bounding circle, if the circle does not fit. The
+     * circle is not added to the packing.
+     *
+     * @return true if a location has been found, false if the circle has
+     * not been moved.
+     */
+    public boolean fit(Circle c) {
+        double r = c.radius;
+        if (r <= boundsRadius && isFree(0, 0, r)) {
+            c.cx = 0;
+            c.cy = 0;
+            return true;
+        }
+        bestDistance2 = Double.MAX_VALUE;
+        Circle probe = new Circle(0, 0, r);
+        for (Circle a : placed) {
+            double d = Math.sqrt(a.cx * a.cx + a.cy * a.cy);
+            if (boundsRadius - d - a.radius >= 2 * r) {
+                // Not an outer circle
+                continue;
+            }
+            // A circle which touches a is at least this far from the center
+            double lowerBound = Math.max(0, d - a.radius - r);
+            if (lowerBound * lowerBound >= bestDistance2) {
+                continue;
+            }
+            boolean isLarge = a.radius > LARGE_FACTOR * r;
+            boolean isSmall = a.radius * LARGE_FACTOR < r;
+            near.clear();
+            if (!isSmall) {
+                grid.findNear(a.cx, a.cy, a.radius + 2 * r, isLarge ? LARGE_FACTOR * r : 0, near);
+            }
+
+            // Touch a and the bounding circle
+            double r0 = boundsRadius - r;
+            double r1 = a.radius + r;
+            if (d > 0 && r0 > 0 && d <= r0 + r1 && d >= Math.abs(r0 - r1)) {
+                double x = (d * d + r0 * r0 - r1 * r1) / (2 * d);
+                double y = Math.sqrt(Math.max(0, r0 * r0 - x * x));
+                double ux = a.cx / d;
+                double uy = a.cy / d;
+                probe.cx = ux * x - uy * y;
+                probe.cy = uy * x + ux * y;
+                test(probe, !isLarge && !isSmall);
+                probe.cx = ux * x + uy * y;
+                probe.cy = uy * x - ux * y;
+                test(probe, !isLarge && !isSmall);
+            }
+
+            // Touch a and a circle b with a gap of less than the diameter
+            for (int i = 0, n = near.size(); i < n; i++) {
+                Circle b = near.get(i);
+                if (b != a) {
+                    Circles.placeTangent(a, b, probe);
+                    test(probe, !isLarge);
+                    Circles.placeTangent(b, a, probe);
+                    test(probe, !isLarge);
+                }
+            }
+        }
+        if (bestDistance2 == Double.MAX_VALUE) {
+            return false;
+        }
+        c.cx = bestX;
+        c.cy = bestY;
+        return true;
+    }
+
+    /**
+     * Makes the probe the best candidate, if it is closer to the center
+     * than the best candidate, and if it does not intersect a circle of the
+     * packing.
+     *
+     * @param isNearKnown If this is true, the probe touches the circle
+     * around which the near circles have been looked up, and is only tested
+     * against them.
+     */
+    private void test(Circle probe, boolean isNearKnown) {
+        double distance2 = probe.cx * probe.cx + probe.cy * probe.cy;
+        if (distance2 >= bestDistance2) {
+            return;
+        }
+        if (!isNearKnown) {
+            if (!isFree(probe.cx, probe.cy, probe.radius)) {
+                return;
+            }
+        } else {
+            for (int i = 0, n = near.size(); i < n; i++) {
+                if (CircleGrid.intersects(near.get(i), probe)) {
+                    return;
+                }
+            }
+        }
+        bestX = probe.cx;
+        bestY = probe.cy;
+        bestDistance2 = distance2;
+    }
+
+    /**
+     * Adds a circle to the packing, and enlarges the bounding circle if
+     * necessary. The circle must not intersect a circle of the packing.
+     */
+    public void add(Circle c) {
+        placed.add(c);
+        grid.add(c, c);
+        boundsRadius = Math.max(boundsRadius, Math.sqrt(c.cx * c.cx + c.cy * c.cy) + c.radius);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * @(#)CircleGrid.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.circlemap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A spatial index of circles, which finds the circles near a location.
+ * <p>
+ * The circles are put into levels by their radius. Level {@code k} holds
+ * the circles with a radius of up to {@code 2^k} times the smallest radius.
+ * Each level is a uniform grid with cells which are as wide as the largest
+ * circle on the level; a circle is put into the cell which contains its
+ * center. Thus, a query for a circle which is smaller than the circles on a
+ * level needs to look at no more than 3 x 3 cells of the level. A query
+ * which would look at more cells than there are circles in the index tests
+ * all circles instead.
+ * <p>
+ * The cells of all levels are kept in a single hash table. The circles must
+ * not be moved or resized while they are in the index.
+ *
+ * @param <T> The type of the values which are stored with the circles.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+class CircleGrid<T> {
+
+    /**
+     * Circles which overlap by less than this fraction of the sum of their
+     * radii do not intersect. This absorbs the rounding errors of tangent
+     * circles.
+     */
+    private final static double EPSILON = 1e-6;
+    private final static int LEVEL_COUNT = 64;
+    private double baseRadius;
+    private double[] cellSizes = new double[LEVEL_COUNT];
+    /** The largest radius on each level. 0 if the level is empty. */
+    private double[] maxRadii = new double[LEVEL_COUNT];
+    private long[] keys = new long[64];
+    /** The index of the first entry of each cell, or -1. */
+    private int[] heads = new int[64];
+    private int cellCount;
+    private Circle[] circles = new Circle[16];
+    private Object[] values = new Object[16];
+    /** The index of the next entry in the same cell, or -1. */
+    private int[] nextInCell = new int[16];
+    private int size;
+
+    /**
+     * Creates a new index.
+     *
+     * @param smallestRadius The smallest radius of the circles which will
+     * be added. Smaller circles can be added, but are found more slowly.
+     */
+    public CircleGrid(double smallestRadius) {
+        baseRadius = (smallestRadius > 0) ? smallestRadius : 1;
+        for (int k = 0; k < LEVEL_COUNT; k++) {
+            cellSizes[k] = 2 * Math.scalb(baseRadius, k);
+        }
+        Arrays.fill(heads, -1);
+    }
+
+    /**
+     * Adds a circle with a value.
+     */
+    public void add(Circle circle, T value) {
+        if (size == circles.length) {
+            circles = Arrays.copyOf(circles, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            nextInCell = Arrays.copyOf(nextInCell, size * 2);
+        }
+        int level = Math.max(0, Math.min(LEVEL_COUNT - 1, Math.getExponent(circle.radius / baseRadius) + 1));
+        maxRadii[level] = Math.max(maxRadii[level], circle.radius);
+        double cellSize = cellSizes[level];
+        long key = key(level, (long) Math.floor(circle.cx / cellSize), (long) Math.floor(circle.cy / cellSize));
+        int slot = slot(key);
+        if (heads[slot] == -1) {
+            keys[slot] = key;
+            cellCount++;
+        }
+        circles[size] = circle;
+        values[size] = value;
+        nextInCell[size] = heads[slot];
+        heads[slot] = size;
+        size++;
+        if (cellCount * 2 > heads.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Adds the values of the circles which come closer to the specified
+     * location than the specified distance plus their radius. This
+     * includes all circles which intersect a circle at the location with a
+     * radius of the distance.
+     *
+     * @param cx The x-coordinate of the location.
+     * @param cy The y-coordinate of the location.
+     * @param distance The distance.
+     * @param result The list to which the values are added.
+     */
+    public void findNear(double cx, double cy, double distance, ArrayList<T> result) {
+        findNear(cx, cy, distance, 0, result);
+    }
+
+    /**
+     * Adds the values of the circles with at least the specified radius,
+     * which come closer to the specified location than the specified
+     * distance plus their radius.
+     *
+     * @param cx The x-coordinate of the location.
+     * @param cy The y-coordinate of the location.
+     * @param distance The distance.
+     * @param minRadius The smallest radius.
+     * @param result The list to which the values are added.
+     */
+    public void findNear(double cx, double cy, double distance, double minRadius, ArrayList<T> result) {
+        double cellCount = 0;
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            if (maxRadii[level] != 0 && maxRadii[level] >= minRadius) {
+                double span = 2 * (distance + maxRadii[level]) / cellSizes[level] + 1;
+                cellCount += span * span;
+            }
+        }
+        if (cellCount > size) {
+            for (int i = 0; i < size; i++) {
+                addIfNear(i, cx, cy, distance, minRadius, result);
+            }
+            return;
+        }
+
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            if (maxRadii[level] == 0 || maxRadii[level] < minRadius) {
+                continue;
+            }
+            double cellSize = cellSizes[level];
+            double reach = distance + maxRadii[level];
+            long x0 = (long) Math.floor((cx - reach) / cellSize);
+            long x1 = (long) Math.floor((cx + reach) / cellSize);
+            long y0 = (long) Math.floor((cy - reach) / cellSize);
+            long y1 = (long) Math.floor((cy + reach) / cellSize);
+            for (long x = x0; x <= x1; x++) {
+                for (long y = y0; y <= y1; y++) {
+                    for (int i = heads[slot(key(level, x, y))]; i != -1; i = nextInCell[i]) {
+                        addIfNear(i, cx, cy, distance, minRadius, result);
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addIfNear(int i, double cx, double cy, double distance, double minRadius, ArrayList<T> result) {
+        Circle c = circles[i];
+        if (c.radius < minRadius) {
+            return;
+        }
+        double r = distance + c.radius;
+        double dx = c.cx - cx;
+        double dy = c.cy - cy;
+        if (dx * dx + dy * dy < r * r) {
+            result.add((T) values[i]);
+        }
+    }
+
+    /**
+     * Returns true if the circles overlap by more than the rounding error.
+     */
+    public static boolean intersects(Circle a, Circle b) {
+        double dr = (a.radius + b.radius) * (1 - EPSILON);
+        double dx = b.cx - a.cx;
+        double dy = b.cy - a.cy;
+        return dr > 0 && dr * dr > dx * dx + dy * dy;
+    }
+
+    /**
+     * Returns a hash of the cell. Cells with the same hash share their
+     * entries, which is harmless, because the entries are tested for their
+     * distance anyway.
+     */
+    private static long key(int level, long x, long y) {
+        long h = x * 0x9e3779b97f4a7c15L + y * 0xc2b2ae3d27d4eb4fL + level * 0x165667b19e3779f9L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns the slot of the key in the hash table. The slot is either
+     * empty, or holds the cell of the key.
+     */
+    private int slot(long key) {
+        int mask = heads.length - 1;
+        int slot = (int) key & mask;
+        while (heads[slot] != -1 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        keys = new long[oldKeys.length * 2];
+        heads = new int[oldHeads.length * 2];
+        Arrays.fill(heads, -1);
+        for (int i = 0; i < oldHeads.length; i++) {
+            if (oldHeads[i] != -1) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+}
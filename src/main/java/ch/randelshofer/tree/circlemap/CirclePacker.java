@@ -0,0 +1,52 @@
+/*
+ * @(#)CirclePacker.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.circlemap;
+
+import java.util.ArrayList;
+
+/**
+ * The algorithms which can pack the children of a
+ * {@link CirclemapCompositeNode}.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public enum CirclePacker {
+
+    /**
+     * Packs with a front chain, see {@link FrontChainPacker#pack}.
+     * This is fast for nodes with many children.
+     */
+    FRONT_CHAIN {
+
+        @Override
+        public void pack(ArrayList<Circle> circles) {
+            FrontChainPacker.pack(circles);
+        }
+    },
+    /**
+     * Packs with a list of pairs, see {@link Circles#pairPack}. The time
+     * needed grows with the cube of the number of children.
+     */
+    PAIR {
+
+        @Override
+        public void pack(ArrayList<Circle> circles) {
+            Circles.pairPack(circles);
+        }
+    };
+
+    /**
+     * Packs the circles closely together around the center of the
+     * coordinate system.
+     */
+    public abstract void pack(ArrayList<Circle> circles);
+}
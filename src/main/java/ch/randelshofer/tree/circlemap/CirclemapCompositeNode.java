@@ -1,7 +1,7 @@
 /**
- * @(#)CirclemapCompositeNode.java  1.1  2010-08-19
+ * @(#)CirclemapCompositeNode.java  1.5  2026-10-18
  *
- * Copyright (c) 2008-2010 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2008-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -20,18 +20,55 @@ import java.util.*;
  * {@link CirclemapTree}.
  *
  * @author Werner Randelshofer
- * @version 1.1 2010-08-19 Includes the weight of the composite node itself
+ * @version 1.5 2026-10-18 Fits new and resized children into the
+ * existing packing, instead of packing all children again.
+ * <br>1.4 2026-10-18 Fixes the descendant count, which was one too
+ * small for each composite node.
+ * <br>1.3 2026-10-18 Packs the children with a selectable
+ * {@link CirclePacker}.
+ * <br>1.2 2026-10-18 Adds method updateChildren.
+ * <br>1.1 2010-08-19 Includes the weight of the composite node itself
  * into the size calculation of a circle.
  * <br>1.0 Jan 16, 2008 Created.
  */
 public class CirclemapCompositeNode extends CirclemapNode {
 
+    /**
+     * An incremental layout is only kept, while its radius exceeds the
+     * radius which packing all children again is expected to give by less
+     * than this factor.
+     */
+    private final static double MAX_INCREMENTAL_GROWTH = 1.05;
     private int descendants = -1;
     private ArrayList<CirclemapNode> children;
+    private CirclePacker packer;
+    /**
+     * The radius of the bounding circle of the packed children, or -1 if
+     * the children have not been packed.
+     */
+    private double packedRadius = -1;
+    /**
+     * The ratio of the area of the children to the area of the bounding
+     * circle, when the children were packed the last time.
+     */
+    private double packedDensity;
 
-    /** Creates a new instance. */
+    /**
+     * Creates a new instance. The children are packed with the packer of
+     * the parent, or with {@link CirclePacker#FRONT_CHAIN} if there is no
+     * parent.
+     */
     public CirclemapCompositeNode(CirclemapNode parent, TreeNode node) {
+        this(parent, node, (parent == null) ? CirclePacker.FRONT_CHAIN : ((CirclemapCompositeNode) parent).packer);
+    }
+
+    /**
+     * Creates a new instance. The children of this node and of all
+     * composite descendants are packed with the specified packer.
+     */
+    public CirclemapCompositeNode(CirclemapNode parent, TreeNode node, CirclePacker packer) {
         super(parent, node);
+        this.packer = packer;
 
         children = new ArrayList<CirclemapNode>();
         for (TreeNode c : node.children()) {
@@ -70,6 +107,7 @@ public class CirclemapCompositeNode extends CirclemapNode {
      * @param info
      */
     public void updateNodeLayout(NodeInfo info) {
+        packedRadius = -1;
         if (children.size() == 0) {
             radius = Math.max(10, getWeightRadius(info));
             return;
@@ -83,10 +121,12 @@ public class CirclemapCompositeNode extends CirclemapNode {
         ArrayList<Circle> circles = new ArrayList<Circle>();
         circles.addAll(children);
 
-        Circles.pairPack(circles);
+        packer.pack(circles);
         // Circles.phyllotacticPack(circles);
 
         Circle cbounds = Circles.boundingCircle(circles);
+        packedRadius = cbounds.radius;
+        packedDensity = getChildrenArea() / (cbounds.radius * cbounds.radius);
         radius = cbounds.radius;
         radius = Math.max(radius, getWeightRadius(info));
         for (CirclemapNode child : children) {
@@ -95,22 +135,185 @@ public class CirclemapCompositeNode extends CirclemapNode {
         }
     }
 
+    /**
+     * Updates the layout of this node after the radius of a child has
+     * changed. The child is left at its location if it still fits.
+     * Otherwise it is moved into the free space of the packing, or attached
+     * to the outside of the packing, which enlarges this node. The other
+     * children are not moved, unless this node would become noticeably
+     * larger than packing all children again.
+     * Does not update the layout of child nodes or parent nodes.
+     *
+     * @param child the child which has been resized
+     * @param info the node info
+     * @return Returns true if the radius of this node has changed.
+     */
+    public boolean updateChildLayout(CirclemapNode child, NodeInfo info) {
+        double oldRadius = radius;
+        if (packedRadius < 0 || children.size() < 3) {
+            updateNodeLayout(info);
+        } else {
+            ArrayList<CirclemapNode> siblings = new ArrayList<CirclemapNode>(children);
+            siblings.remove(child);
+            CircleFitter fitter = new CircleFitter(siblings, packedRadius, child.radius);
+            if (fitter.fits(child) || fitter.fit(child)) {
+                fitter.add(child);
+                updatePackedRadius(fitter.getBoundsRadius(), info);
+            } else {
+                updateNodeLayout(info);
+            }
+        }
+        return radius != oldRadius;
+    }
+
+    /**
+     * Updates the radius of this node after its weight has changed. The
+     * children are not packed again.
+     * Does not update the layout of child nodes or parent nodes.
+     *
+     * @param info the node info
+     * @return Returns true if the radius of this node has changed.
+     */
+    public boolean updateRadius(NodeInfo info) {
+        double oldRadius = radius;
+        if (packedRadius < 0) {
+            // A node with less than two children is not packed
+            updateNodeLayout(info);
+        } else {
+            radius = Math.max(packedRadius, getWeightRadius(info));
+        }
+        return radius != oldRadius;
+    }
+
+    /**
+     * Returns the packer of the children.
+     */
+    public CirclePacker getPacker() {
+        return packer;
+    }
+
     @Override
     public int getDescendantCount() {
         if (descendants == -1) {
-            descendants += children.size();
+            // Count into a local variable, so that the count does not
+            // include the -1 of the unknown count.
+            int count = children.size();
             for (CirclemapNode child : children) {
-                descendants += child.getDescendantCount();
+                count += child.getDescendantCount();
             }
+            descendants = count;
         }
         return descendants;
     }
 
+    /**
+     * Call this method when the children of the underlying TreeNode have
+     * changed.
+     * <p>
+     * Existing child nodes are reused. The layout of new child nodes and of
+     * leaf nodes is computed. Then the new child nodes and the grown leaf
+     * nodes are fitted into the free space of the existing packing, or
+     * attached to its outside, from the largest to the smallest. The
+     * children are only packed again, if most of them are new, or if this
+     * node would become noticeably larger than packing all children again.
+     * Does not update the layout of parent nodes.
+     *
+     * @param info the node info
+     * @param p a progress observer
+     */
+    public void updateChildren(NodeInfo info, ProgressObserver p) {
+        HashMap<TreeNode, CirclemapNode> oldChildren = new HashMap<TreeNode, CirclemapNode>();
+        for (CirclemapNode child : children) {
+            oldChildren.put(child.getDataNode(), child);
+        }
+        ArrayList<CirclemapNode> newChildren = new ArrayList<CirclemapNode>();
+        ArrayList<CirclemapNode> unplaced = new ArrayList<CirclemapNode>();
+        ArrayList<CirclemapNode> placed = new ArrayList<CirclemapNode>();
+        for (TreeNode c : getDataNode().children()) {
+            CirclemapNode cn = oldChildren.get(c);
+            if (cn == null) {
+                cn = (c.getAllowsChildren()) ? new CirclemapCompositeNode(this, c) : new CirclemapNode(this, c);
+                cn.layout(info, p);
+                unplaced.add(cn);
+            } else if (cn.isLeaf()) {
+                double oldRadius = cn.radius;
+                cn.layout(info, p);
+                if (cn.radius > oldRadius) {
+                    unplaced.add(cn);
+                } else {
+                    placed.add(cn);
+                }
+            } else {
+                placed.add(cn);
+            }
+            newChildren.add(cn);
+        }
+        // Replace the list instead of modifying it, so that a concurrent
+        // drawing thread can finish iterating over the old list.
+        children = newChildren;
+        invalidateDescendantCount();
+
+        if (packedRadius < 0 || children.size() < 3 || unplaced.size() > placed.size()) {
+            updateNodeLayout(info);
+            return;
+        }
+        if (!unplaced.isEmpty()) {
+            Collections.sort(unplaced, CircleRadiusComparator.getDescendingInstance());
+            CircleFitter fitter = new CircleFitter(placed, packedRadius, unplaced.get(0).radius);
+            for (CirclemapNode cn : unplaced) {
+                if (!fitter.fit(cn)) {
+                    updateNodeLayout(info);
+                    return;
+                }
+                fitter.add(cn);
+            }
+            updatePackedRadius(fitter.getBoundsRadius(), info);
+        } else {
+            radius = Math.max(packedRadius, getWeightRadius(info));
+        }
+    }
+
+    /**
+     * Takes over the radius of the bounding circle of an incremental
+     * layout, or packs all children again, if the incremental layout has
+     * become too large.
+     */
+    private void updatePackedRadius(double boundsRadius, NodeInfo info) {
+        if (boundsRadius > packedRadius
+                && boundsRadius > MAX_INCREMENTAL_GROWTH * Math.sqrt(getChildrenArea() / packedDensity)) {
+            updateNodeLayout(info);
+        } else {
+            packedRadius = boundsRadius;
+            radius = Math.max(packedRadius, getWeightRadius(info));
+        }
+    }
+
+    /**
+     * Returns the sum of the squared radii of the children.
+     */
+    private double getChildrenArea() {
+        double area = 0;
+        for (CirclemapNode child : children) {
+            area += child.radius * child.radius;
+        }
+        return area;
+    }
+
+    /**
+     * Clears the cached descendant count of this node and of its ancestors.
+     */
+    void invalidateDescendantCount() {
+        for (CirclemapNode n = this; n != null; n = n.getParent()) {
+            ((CirclemapCompositeNode) n).descendants = -1;
+        }
+    }
+
     /** Call this method when a new child node has been added to the underlying
      * TreeNode.
      * <p>
      * For performance reasons, this method will not update the layout of
-     * the circlemap.
+     * the circlemap. To fit the new child into the layout, lay it out and
+     * invoke {@link CirclemapNode#updateParentLayouts} on it.
      *
      * @param c the new child
      * @return Returns the new CirclemapNode which holds the child.
@@ -122,6 +325,7 @@ public class CirclemapCompositeNode extends CirclemapNode {
         } else {
             children.add(cn=new CirclemapCompositeNode(this, c));
         }
+        invalidateDescendantCount();
         return cn;
     }
 }
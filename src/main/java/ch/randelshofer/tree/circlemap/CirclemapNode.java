@@ -1,7 +1,7 @@
 /**
- * @(#)CirclemapNode.java  1.0  Jan 16, 2008
+ * @(#)CirclemapNode.java  1.1  2026-10-18
  *
- * Copyright (c) 2008 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2008-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -28,7 +28,8 @@ import java.util.List;
  * This data can layout its subtree in a space-filling circular treemap.
  *
  * @author Werner Randelshofer
- * @version 1.0 Jan 16, 2008 Created.
+ * @version 1.1 2026-10-18 Parent layouts are updated incrementally.
+ * <br>1.0 Jan 16, 2008 Created.
  */
 public class CirclemapNode extends Circle {
     private CirclemapNode parent;
@@ -82,14 +83,30 @@ public class CirclemapNode extends Circle {
         return 0;
     }
 
-    /** Updates the layout of all parent nodes.
+    /** Updates the layout of all parent nodes after the radius of this
+     * node has changed.
      *
      * @param info
      */
     public void updateParentLayouts(NodeInfo info) {
+        updateParentLayouts(info, true);
+    }
+
+    /** Updates the layout of all parent nodes.
+     * <p>
+     * A resized node is fitted into the packing of its parent. This is
+     * repeated upwards only while the radius of the parent changes. Above
+     * that, only the radius of the parents is updated to their weight.
+     *
+     * @param info
+     * @param isResized whether the radius of this node has changed
+     */
+    public void updateParentLayouts(NodeInfo info, boolean isResized) {
+        CirclemapNode child = this;
         for (CirclemapNode n=getParent(); n!=null;n=n.getParent()) {
             CirclemapCompositeNode cn=(CirclemapCompositeNode)n;
-            cn.updateNodeLayout(info);
+            isResized = (isResized) ? cn.updateChildLayout(child, info) : cn.updateRadius(info);
+            child = n;
         }
     }
 }
@@ -1,7 +1,7 @@
 /**
- * @(#)CirclemapTree.java  1.2  2009-03-22
+ * @(#)CirclemapTree.java  1.6  2026-10-18
  *
- * Copyright (c) 2008-2009 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2008-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -13,38 +13,228 @@ package ch.randelshofer.tree.circlemap;
 import ch.randelshofer.gui.ProgressObserver;
 import ch.randelshofer.tree.TreeNode;
 import ch.randelshofer.tree.NodeInfo;
+import ch.randelshofer.tree.TreePath2;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * CirclemapTree lays out a tree structure in a space-filling circular treemap.
  *
  * @author Werner Randelshofer
- * @version 1.2 2009-03-22 Made layout progress observable.
+ * @version 1.6 2026-10-18 Updates the ancestors of changed subtrees
+ * incrementally.
+ * <br>1.5 2026-10-18 Lays out large subtrees in parallel.
+ * <br>1.4 2026-10-18 The circle packer can be chosen.
+ * <br>1.3 2026-10-18 Adds method subtreesChanged.
+ * <br>1.2 2009-03-22 Made layout progress observable.
  * <br>1.0 Jan 16, 2008 Created.
  */
 public class CirclemapTree {
 
+    /**
+     * Subtrees with at least this number of descendants are laid out in
+     * parallel by default.
+     */
+    public final static int DEFAULT_PARALLEL_THRESHOLD = 2048;
+    /** The interval in milliseconds at which the layout progress is shown. */
+    private final static long PROGRESS_INTERVAL = 100;
     private CirclemapNode root;
     private NodeInfo info;
 
     /** Creates a new instance. */
     public CirclemapTree(TreeNode root, NodeInfo info, ProgressObserver p) {
+        this(root, info, CirclePacker.FRONT_CHAIN, p);
+    }
+
+    /**
+     * Creates a new instance which packs the circles with the specified
+     * packer.
+     */
+    public CirclemapTree(TreeNode root, NodeInfo info, CirclePacker packer, ProgressObserver p) {
         p.setNote("Constructing tree…");
         this.info = info;
         if (!root.getAllowsChildren()) {
         this.root = new CirclemapNode(null, root);
         } else {
-        this.root = new CirclemapCompositeNode(null, root);
+        this.root = new CirclemapCompositeNode(null, root, packer);
         }
         info.init(root);
         long start = System.currentTimeMillis();
         p.setNote("Calculating layout…");
         p.setMaximum(p.getMaximum()+this.root.getDescendantCount());
         p.setIndeterminate(false);
-        this.root.layout(info, p);
+        layout(DEFAULT_PARALLEL_THRESHOLD, p);
         long end = System.currentTimeMillis();
         System.out.println("CirclemapTree layout elapsed "+(end-start)+"ms");
     }
 
+    /**
+     * Lays out the whole tree.
+     * <p>
+     * Sibling subtrees do not depend on each other. Subtrees with at least
+     * {@code parallelThreshold} descendants are laid out by a fork/join
+     * pool, smaller subtrees are laid out sequentially by the task of their
+     * parent. The layout is the same as the sequential layout.
+     * <p>
+     * The tasks count the nodes which they have laid out; the calling
+     * thread shows the count on the progress observer.
+     *
+     * @param parallelThreshold the minimal number of descendants of a
+     * subtree which is laid out by a task of its own. Use
+     * {@code Integer.MAX_VALUE} for a sequential layout.
+     * @param p a progress observer
+     */
+    public void layout(int parallelThreshold, ProgressObserver p) {
+        if (root.getDescendantCount() < parallelThreshold) {
+            root.layout(info, p);
+            return;
+        }
+        LongAdder progress = new LongAdder();
+        int base = p.getProgress();
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            ForkJoinTask<Void> task = pool.submit(new LayoutTask((CirclemapCompositeNode) root, parallelThreshold, progress, p));
+            boolean isInterrupted = false;
+            for (boolean isDone = false; !isDone;) {
+                try {
+                    task.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+                    isDone = true;
+                } catch (TimeoutException e) {
+                    p.setProgress(base + (int) progress.sum());
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+            p.setProgress(base + (int) progress.sum());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Updates the layout after the children of the specified composite
+     * nodes have changed.
+     * <p>
+     * The changed nodes are updated from the bottom of the tree upwards.
+     * After each changed node, its ancestors are updated incrementally:
+     * a resized child is fitted into the packing of its parent, and the
+     * ancestors above are only packed while the radius of a parent changes.
+     * The layout of unchanged subtrees is kept.
+     *
+     * @param paths paths to composite nodes in the underlying tree
+     * @param p a progress observer
+     */
+    public void subtreesChanged(List<TreePath2<TreeNode>> paths, ProgressObserver p) {
+        ArrayList<CirclemapCompositeNode> changed = new ArrayList<CirclemapCompositeNode>();
+        for (TreePath2<TreeNode> path : paths) {
+            CirclemapNode node = findNode(path);
+            if (node instanceof CirclemapCompositeNode) {
+                changed.add((CirclemapCompositeNode) node);
+            }
+        }
+        Comparator<CirclemapNode> deepestFirst = new Comparator<CirclemapNode>() {
+
+            @Override
+            public int compare(CirclemapNode o1, CirclemapNode o2) {
+                return o2.getDataNodePath().getPathCount() - o1.getDataNodePath().getPathCount();
+            }
+        };
+        Collections.sort(changed, deepestFirst);
+        for (CirclemapCompositeNode node : changed) {
+            double oldRadius = node.radius;
+            node.updateChildren(info, p);
+            node.updateParentLayouts(info, node.radius != oldRadius);
+        }
+    }
+
+    /**
+     * Returns the node which holds the last component of the specified path,
+     * or null if the path is not in this tree.
+     */
+    public CirclemapNode findNode(TreePath2<TreeNode> path) {
+        if (path.getPathComponent(0) != root.getDataNode()) {
+            return null;
+        }
+        CirclemapNode node = root;
+        for (int i = 1, n = path.getPathCount(); i < n && node != null; i++) {
+            TreeNode component = path.getPathComponent(i);
+            CirclemapNode found = null;
+            for (CirclemapNode child : node.children()) {
+                if (child.getDataNode() == component) {
+                    found = child;
+                    break;
+                }
+            }
+            node = found;
+        }
+        return node;
+    }
+
+    /**
+     * Lays out the subtree of a composite node. The children which have
+     * many descendants are forked; the other children are laid out by this
+     * task. Then the node itself is laid out.
+     */
+    private class LayoutTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private CirclemapCompositeNode node;
+        private int threshold;
+        private LongAdder progress;
+        private ProgressObserver p;
+
+        public LayoutTask(CirclemapCompositeNode node, int threshold, LongAdder progress, ProgressObserver p) {
+            this.node = node;
+            this.threshold = threshold;
+            this.progress = progress;
+            this.p = p;
+        }
+
+        @Override
+        protected void compute() {
+            if (p.isCanceled()) {
+                return;
+            }
+            ArrayList<LayoutTask> forks = new ArrayList<LayoutTask>();
+            for (CirclemapNode child : node.children()) {
+                if (isForked(child)) {
+                    LayoutTask task = new LayoutTask((CirclemapCompositeNode) child, threshold, progress, p);
+                    task.fork();
+                    forks.add(task);
+                }
+            }
+            for (CirclemapNode child : node.children()) {
+                if (!isForked(child)) {
+                    child.layout(info, p);
+                    progress.add(child.getDescendantCount() + 1);
+                }
+            }
+            for (LayoutTask task : forks) {
+                task.join();
+                progress.increment();
+            }
+            node.updateNodeLayout(info);
+        }
+
+        private boolean isForked(CirclemapNode child) {
+            return !child.isLeaf() && child.getDescendantCount() >= threshold;
+        }
+    }
+
     public NodeInfo getInfo() {
         return info;
     }
@@ -1,5 +1,5 @@
 /**
- * @(#)CirclemapView.java 1.4 2012-08-27
+ * @(#)CirclemapView.java 1.5 2026-10-18
  *
  * Copyright (c) 2008-2011 Werner Randelshofer, Goldau, Switzerland. All
  * rights reserved.
@@ -12,6 +12,7 @@ package ch.randelshofer.tree.circlemap;
 
 import ch.randelshofer.gui.ProgressObserver;
 import ch.randelshofer.gui.ProgressTracker;
+import ch.randelshofer.tree.TreeNode;
 import ch.randelshofer.tree.TreePath2;
 import ch.randelshofer.tree.TreeView;
 import ch.randelshofer.util.Worker;
@@ -20,6 +21,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.*;
 import java.awt.image.*;
+import java.util.List;
 import javax.swing.*;
 import javax.swing.event.*;
 
@@ -29,7 +31,8 @@ import javax.swing.event.*;
  *
  * @author Werner Randelshofer
  * 
- * @version 1.4 2012-08-27 Adds printComponent method. <br>1.3 2011-01-16 Adds
+ * @version 1.5 2026-10-18 Adds method subtreesChanged.
+ * <br>1.4 2012-08-27 Adds printComponent method. <br>1.3 2011-01-16 Adds
  * popup menus. <br>1.2 2008-10-22 Turn ToolTips off by default. <br>1.1
  * 2008-07-05 Draw asynchronously. <br>1.0 2008-01-16 CirclemapView Created.
  */
@@ -285,6 +288,16 @@ public class CirclemapView extends javax.swing.JPanel implements TreeView {
         setCenter(savedCenter.x,savedCenter.y);
     }
 
+    /**
+     * Updates the layout of the specified subtrees and repaints the view.
+     *
+     * @param paths paths to composite nodes whose children have changed
+     */
+    public void subtreesChanged(List<TreePath2<TreeNode>> paths) {
+        model.subtreesChanged(paths, new ProgressTracker("Circular Treemap", "Updating layout..."));
+        repaintView();
+    }
+
     @Override
     public void setMaxDepth(int newValue) {
         if (newValue != draw.getMaxDepth()) {
@@ -1,5 +1,5 @@
 /**
- * @(#)Circles.java  1.2  2008-07-05
+ * @(#)Circles.java  1.3  2026-10-18
  *
  * Copyright (rc) 2008 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -20,7 +20,8 @@ import java.util.concurrent.CyclicBarrier;
  * Utility functions for {@link Circle} objects.
  *
  * @author Werner Randelshofer
- * @version 1.2 2008-07-05 Method boundingCircle treats now 3 circles as a 
+ * @version 1.3 2026-10-18 Adds method placeTangent.
+ * <br>1.2 2008-07-05 Method boundingCircle treats now 3 circles as a 
  * special case. 
  * <br>1.1 2008-06-12 Make pair.innerSoddyRadius smaller every time
  * we fail to insert a circle at it.
@@ -508,6 +509,41 @@ public class Circles {
         }
     }
 
+    /**
+     * Places circle c tangent to circles a and b. If a is at the origin and
+     * b is on the positive x-axis, c is placed at a negative y-coordinate.
+     * If a and b have the same center, c is placed to the right of b.
+     *
+     * @param a Circle a
+     * @param b Circle b
+     * @param c Circle c, which is moved
+     */
+    public static void placeTangent(Circle a, Circle b, Circle c) {
+        double dx = a.cx - b.cx;
+        double dy = a.cy - b.cy;
+        double d2 = dx * dx + dy * dy;
+        if (d2 > 0) {
+            double a2 = a.radius + c.radius;
+            a2 *= a2;
+            double b2 = b.radius + c.radius;
+            b2 *= b2;
+            if (b2 > a2) {
+                double x = (d2 + a2 - b2) / (2 * d2);
+                double y = Math.sqrt(Math.max(0, a2 / d2 - x * x));
+                c.cx = a.cx - x * dx - y * dy;
+                c.cy = a.cy - x * dy + y * dx;
+            } else {
+                double x = (d2 + b2 - a2) / (2 * d2);
+                double y = Math.sqrt(Math.max(0, b2 / d2 - x * x));
+                c.cx = b.cx + x * dx - y * dy;
+                c.cy = b.cy + x * dy + y * dx;
+            }
+        } else {
+            c.cx = b.cx + c.radius;
+            c.cy = b.cy;
+        }
+    }
+
     /**
      * Computes the radius of the inner soddy circle for three tightly packed
      * circles.
@@ -0,0 +1,220 @@
+/*
+ * @(#)FrontChainPacker.java  1.1  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.circlemap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+/**
+ * Packs circles closely together around the center of the coordinate
+ * system, using a front chain.
+ * <p>
+ * The front chain is a closed chain of the circles on the outside of the
+ * packing. Each new circle is placed tangent to the pair of neighbouring
+ * circles on the chain which is closest to the center. If it intersects
+ * another circle of the chain, the circles of the chain between the pair and
+ * the intersecting circle are removed from the chain, and the circle is
+ * placed again. Otherwise the circle is inserted into the chain between the
+ * pair.
+ * <p>
+ * The circles which may intersect a new circle are looked up in a
+ * {@link CircleGrid}, and the closest pair is taken from a priority
+ * queue. Therefore a circle is usually placed in logarithmic time, instead
+ * of the linear time needed to walk the chain.
+ * <p>
+ * Reference:<br>
+ * Wang, W., Wang, H., Dai, G., Wang, H. (2006). Visualization of large
+ * hierarchical data by circle packing. Proceedings of the SIGCHI conference
+ * on Human Factors in computing systems, 517-520.
+ *
+ * @author Werner Randelshofer
+ * @version 1.1 2026-10-18 Looks up circles with a {@link CircleGrid}.
+ * <br>1.0 2026-10-18 Created.
+ */
+public class FrontChainPacker {
+
+    /** Prevent instance creation. */
+    private FrontChainPacker() {
+    }
+
+    /**
+     * Packs the circles. The circles are placed from the largest to the
+     * smallest.
+     *
+     * @param circles
+     */
+    public static void pack(ArrayList<Circle> circles) {
+        int n = circles.size();
+        if (n == 0) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        ArrayList<Circle> sorted = (ArrayList<Circle>) circles.clone();
+        Collections.sort(sorted, CircleRadiusComparator.getDescendingInstance());
+
+        // Place the first three circles
+        Circle c0 = sorted.get(0);
+        c0.cx = 0;
+        c0.cy = 0;
+        if (n == 1) {
+            return;
+        }
+        Circle c1 = sorted.get(1);
+        c0.cx = -c1.radius;
+        c1.cx = c0.radius;
+        c1.cy = 0;
+        if (n == 2) {
+            return;
+        }
+        Circle c2 = sorted.get(2);
+        Circles.placeTangent(c1, c0, c2);
+
+        // Create the front chain a, b, c
+        CircleGrid<Node> grid = new CircleGrid<Node>(sorted.get(n - 1).radius);
+        ArrayList<Node> near = new ArrayList<Node>();
+        PriorityQueue<Link> links = new PriorityQueue<Link>();
+        Node a = new Node(c0);
+        Node b = new Node(c1);
+        Node c = new Node(c2);
+        a.next = c.previous = b;
+        b.next = a.previous = c;
+        c.next = b.previous = a;
+        for (Node node : new Node[]{a, b, c}) {
+            grid.add(node.circle, node);
+            links.add(new Link(node));
+        }
+
+        for (int i = 3; i < n; i++) {
+            Circle circle = sorted.get(i);
+            Circles.placeTangent(a.circle, b.circle, circle);
+            while (intersectsChain(grid, circle, a, b, near)) {
+                // Remove the circles between the pair and the intersecting
+                // circle which is nearest on the chain.
+                Node j = b.next;
+                Node k = a.previous;
+                double sj = b.circle.radius;
+                double sk = a.circle.radius;
+                for (;;) {
+                    if (sj <= sk) {
+                        if (CircleGrid.intersects(j.circle, circle)) {
+                            for (Node r = b; r != j; r = r.next) {
+                                r.isOnChain = false;
+                            }
+                            b = j;
+                            break;
+                        }
+                        sj += j.circle.radius;
+                        j = j.next;
+                    } else {
+                        if (CircleGrid.intersects(k.circle, circle)) {
+                            for (Node r = a; r != k; r = r.previous) {
+                                r.isOnChain = false;
+                            }
+                            a = k;
+                            break;
+                        }
+                        sk += k.circle.radius;
+                        k = k.previous;
+                    }
+                }
+                a.next = b;
+                b.previous = a;
+                links.add(new Link(a));
+                Circles.placeTangent(a.circle, b.circle, circle);
+            }
+
+            // Insert the circle between the pair
+            c = new Node(circle);
+            c.previous = a;
+            c.next = b;
+            a.next = b.previous = c;
+            grid.add(circle, c);
+            links.add(new Link(a));
+            links.add(new Link(c));
+
+            // Take the pair which is closest to the center. Links which
+            // have been changed or removed are skipped.
+            Link link = links.poll();
+            while (!link.isValid()) {
+                link = links.poll();
+            }
+            links.add(link);
+            a = link.node;
+            b = a.next;
+        }
+    }
+
+    /**
+     * Returns true if the circle intersects a node on the chain, other than
+     * a and b.
+     *
+     * @param near A list for the nodes which are near the circle.
+     */
+    private static boolean intersectsChain(CircleGrid<Node> grid, Circle circle, Node a, Node b, ArrayList<Node> near) {
+        near.clear();
+        grid.findNear(circle.cx, circle.cy, circle.radius, near);
+        for (Node node : near) {
+            if (node.isOnChain && node != a && node != b
+                    && CircleGrid.intersects(node.circle, circle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A circle which has been placed.
+     */
+    private static class Node {
+
+        private Circle circle;
+        private Node next;
+        private Node previous;
+        private boolean isOnChain = true;
+
+        public Node(Circle circle) {
+            this.circle = circle;
+        }
+    }
+
+    /**
+     * A pair of neighbouring nodes on the chain. The pairs are ordered by
+     * the distance of their weighted midpoint from the center.
+     */
+    private static class Link implements Comparable<Link> {
+
+        private Node node;
+        private Node next;
+        private double score;
+
+        public Link(Node node) {
+            this.node = node;
+            this.next = node.next;
+            Circle a = node.circle;
+            Circle b = next.circle;
+            double ab = a.radius + b.radius;
+            double dx = (a.cx * b.radius + b.cx * a.radius) / ab;
+            double dy = (a.cy * b.radius + b.cy * a.radius) / ab;
+            score = dx * dx + dy * dy;
+        }
+
+        /** Returns true if the pair is still on the chain. */
+        public boolean isValid() {
+            return node.isOnChain && node.next == next;
+        }
+
+        @Override
+        public int compareTo(Link that) {
+            return Double.compare(this.score, that.score);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * @(#)AttributeSchema.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Assigns an id to each attribute name of a document.
+ * <p>
+ * The nodes of a document share a schema. Instead of a map, each node stores
+ * an array with the ids of its attributes and an array with their values.
+ * The names are interned, so that all nodes refer to the same string
+ * instances. Nodes with the same attribute names in the same order share
+ * the same id array.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public class AttributeSchema {
+
+    private HashMap<String, Integer> ids = new HashMap<String, Integer>();
+    private ArrayList<String> names = new ArrayList<String>();
+    private HashMap<IdList, int[]> shapes = new HashMap<IdList, int[]>();
+
+    /**
+     * Returns the id of the specified attribute name. Adds the name to the
+     * schema, if it is not yet known.
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            name = name.intern();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the specified attribute name, or -1 if the name is
+     * not part of the schema.
+     */
+    public int findId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the attribute name with the specified id.
+     */
+    public String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Returns the number of attribute names in the schema.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Returns an id array which is equal to the specified array. Equal
+     * arrays are shared by all nodes. The specified array must not be
+     * changed afterwards.
+     *
+     * @param ids An array of attribute ids, or null for no attributes.
+     */
+    public int[] share(int[] ids) {
+        IdList key = new IdList(ids == null ? new int[0] : ids);
+        int[] shared = shapes.get(key);
+        if (shared == null) {
+            shared = key.ids;
+            shapes.put(key, shared);
+        }
+        return shared;
+    }
+
+    private static class IdList {
+
+        private int[] ids;
+        private int hashCode;
+
+        public IdList(int[] ids) {
+            this.ids = ids;
+            this.hashCode = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof IdList) && Arrays.equals(ids, ((IdList) o).ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * @(#)BatchRenderer.java  1.3  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.gui.ProgressObserver;
+import ch.randelshofer.gui.ProgressTracker;
+import ch.randelshofer.tree.NodeInfo;
+import ch.randelshofer.tree.TreeNode;
+import ch.randelshofer.tree.circlemap.CirclemapDraw;
+import ch.randelshofer.tree.circlemap.CirclemapTree;
+import ch.randelshofer.tree.hypertree.HyperTree;
+import ch.randelshofer.tree.hypertree.SwingHTView;
+import ch.randelshofer.tree.rectmap.RectmapDraw;
+import ch.randelshofer.tree.rectmap.RectmapTree;
+import ch.randelshofer.tree.sunburst.IcicleDraw;
+import ch.randelshofer.tree.sunburst.SunburstDraw;
+import ch.randelshofer.tree.sunburst.SunburstTree;
+import ch.randelshofer.tree.sunray.IcerayDraw;
+import ch.randelshofer.tree.sunray.SunrayDraw;
+import ch.randelshofer.tree.sunray.SunrayTree;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+
+/**
+ * Renders trees into PNG images without a user interface.
+ * <p>
+ * Usage:
+ * <pre>
+ * java -cp treeviz.jar ch.randelshofer.tree.demo.BatchRenderer
+ *      [-view name] [-size WIDTHxHEIGHT] [-depth n] [-threads n] [-verbose]
+ *      input output.png [input output.png ...]
+ * </pre>
+ * The input can be a directory, a directory snapshot, a Many Eyes text file
+ * or an XML file. The view is one of {@link #VIEWS}. Each pair of input and
+ * output files is rendered by its own job; the jobs are run in parallel.
+ * With {@code -verbose}, the time needed for each image is printed. For
+ * XML files, the memory which has been saved by sharing attribute values is
+ * printed as well.
+ * <p>
+ * Each job scans or reads its input, lays out the tree and draws it straight
+ * into a {@code BufferedImage}. Progress is tracked with
+ * {@link ProgressTracker}s, so no windows are opened. The {@link #load} and
+ * {@link #render} methods can be used to render trees from within a server.
+ * <p>
+ * The maximal depth is honored by the circular treemap, the rectangular
+ * treemap and the hyperbolic tree. The other views always draw all levels.
+ *
+ * @author Werner Randelshofer
+ * @version 1.3 2026-10-18 Prints the memory saved by shared attribute
+ * values with -verbose.
+ * <br>1.2 2026-10-18 Prints timings only with -verbose.
+ * <br>1.1 2026-10-18 Loads .tsv and .csv files.
+ * <br>1.0 2026-10-18 Created.
+ */
+public class BatchRenderer {
+
+    /** The names of the supported views. */
+    public final static List<String> VIEWS = Arrays.asList(
+            "hyperbolic", "sunburst", "sunray", "icicle", "iceray",
+            "circlemap", "rectanglemap");
+
+    /** Prevent instance creation. */
+    private BatchRenderer() {
+    }
+
+    /**
+     * Reads the tree from the specified file or directory.
+     *
+     * @param file A directory, a snapshot file, a Many Eyes text file, a
+     * tab or comma separated file, or an XML file.
+     * @param p Tracks the progress.
+     */
+    public static DemoTree load(File file, ProgressObserver p) throws IOException {
+        if (file.isDirectory()) {
+            return new CompactFileTree(p, file);
+        } else if (DelimitedTableReader.isDelimitedFile(file.getName())) {
+            return new ManyEyesTree(file);
+        } else if (file.getName().endsWith(SnapshotTree.EXTENSION)) {
+            return new SnapshotTree(file);
+        } else {
+            try {
+                return new TreevizFileSystemXMLTree(file, p);
+            } catch (IOException ex) {
+                if (ex.getMessage() != null && ex.getMessage().equals("Aborted")) {
+                    throw ex;
+                }
+                // continue
+            }
+            return new XMLTree(file, p);
+        }
+    }
+
+    /**
+     * Lays out the tree and draws it into a new image.
+     *
+     * @param tree The tree.
+     * @param view The name of the view. One of {@link #VIEWS}.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param maxDepth The maximal depth which is drawn.
+     * @param p Tracks the progress.
+     */
+    public static BufferedImage render(DemoTree tree, String view, int width, int height, int maxDepth, ProgressObserver p) {
+        if (!VIEWS.contains(view)) {
+            throw new IllegalArgumentException("Unknown view: " + view);
+        }
+        TreeNode root = tree.getRoot();
+        NodeInfo info = tree.getInfo();
+
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setBackground(Color.WHITE);
+            g.clearRect(0, 0, width, height);
+            g.setFont(new Font("Dialog", Font.PLAIN, 9));
+            double size = Math.min(width, height);
+
+            p.setNote("Calculating layout...");
+            if (view.equals("sunburst")) {
+                SunburstDraw draw = new SunburstDraw(new SunburstTree(root, info));
+                draw.setCX(width / 2d);
+                draw.setCY(height / 2d);
+                draw.setOuterRadius(size / 2 - 4);
+                p.setNote("Drawing...");
+                draw.drawTree(g, p);
+            } else if (view.equals("sunray")) {
+                SunrayDraw draw = new SunrayDraw(new SunrayTree(root, info));
+                draw.setCX(width / 2d);
+                draw.setCY(height / 2d);
+                draw.setOuterRadius(size / 2 - 4);
+                p.setNote("Drawing...");
+                draw.drawTree(g);
+            } else if (view.equals("icicle")) {
+                IcicleDraw draw = new IcicleDraw(new SunburstTree(root, info));
+                draw.setX(4);
+                draw.setY(4);
+                draw.setWidth(width - 8);
+                draw.setHeight(height - 8);
+                p.setNote("Drawing...");
+                draw.drawTree(g);
+            } else if (view.equals("iceray")) {
+                IcerayDraw draw = new IcerayDraw(new SunrayTree(root, info));
+                draw.setX(4);
+                draw.setY(4);
+                draw.setWidth(width - 8);
+                draw.setHeight(height - 8);
+                p.setNote("Drawing...");
+                draw.drawTree(g);
+            } else if (view.equals("circlemap")) {
+                CirclemapDraw draw = new CirclemapDraw(new CirclemapTree(root, info, p));
+                draw.setCX(width / 2d);
+                draw.setCY(height / 2d);
+                draw.setRadius(size / 2 - 4);
+                draw.setMaxDepth(maxDepth);
+                p.setNote("Drawing...");
+                draw.drawTree(g, p);
+            } else if (view.equals("rectanglemap")) {
+                RectmapDraw draw = new RectmapDraw(new RectmapTree(root, info, p));
+                draw.setX((width - size) / 2 + 2);
+                draw.setY((height - size) / 2 + 2);
+                draw.setWidth(size - 4);
+                draw.setHeight(size - 4);
+                draw.setMaxDepth(maxDepth);
+                p.setNote("Drawing...");
+                draw.drawTree(g, p);
+            } else {
+                // The hyperbolic tree can only be drawn by its view.
+                SwingHTView htView = new HyperTree(root, info).getView();
+                htView.setSize(width, height);
+                htView.setMaxDepth(maxDepth);
+                p.setNote("Drawing...");
+                htView.printComponent(g);
+            }
+        } finally {
+            g.dispose();
+        }
+        return img;
+    }
+
+    /**
+     * Returns a description of the shared attribute values of each document
+     * of an XML tree. The descriptions tell how much memory the sharing has
+     * saved.
+     *
+     * @return the descriptions, or an empty list if the tree is not an XML
+     * tree, or if it has been read from its cache.
+     */
+    private static List<String> getValueStatistics(DemoTree tree) {
+        if (tree instanceof XMLTree) {
+            return ((XMLTree) tree).getValueStatistics();
+        } else if (tree instanceof TreevizFileSystemXMLTree) {
+            return ((TreevizFileSystemXMLTree) tree).getValueStatistics();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Loads, renders and writes a single image.
+     */
+    private static class Job implements Runnable {
+
+        private File input;
+        private File output;
+        private String view;
+        private int width;
+        private int height;
+        private int maxDepth;
+        private boolean isVerbose;
+
+        public Job(File input, File output, String view, int width, int height, int maxDepth, boolean isVerbose) {
+            this.input = input;
+            this.output = output;
+            this.view = view;
+            this.width = width;
+            this.height = height;
+            this.maxDepth = maxDepth;
+            this.isVerbose = isVerbose;
+        }
+
+        @Override
+        public void run() {
+            long start = System.currentTimeMillis();
+            ProgressTracker p = new ProgressTracker("Rendering " + input.getName(), "Reading...");
+            p.setIndeterminate(true);
+            try {
+                DemoTree tree = load(input, p);
+                long loaded = System.currentTimeMillis();
+                BufferedImage img = render(tree, view, width, height, maxDepth, p);
+                long rendered = System.currentTimeMillis();
+                if (!ImageIO.write(img, "png", output)) {
+                    throw new IOException("No PNG writer available");
+                }
+                long end = System.currentTimeMillis();
+                if (isVerbose) {
+                    System.out.println("BatchRenderer " + output
+                            + " load=" + (loaded - start)
+                            + " render=" + (rendered - loaded)
+                            + " write=" + (end - rendered)
+                            + " elapsed=" + (end - start));
+                    for (String statistics : getValueStatistics(tree)) {
+                        System.out.println("BatchRenderer " + output + " values: " + statistics);
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(input + ": " + e.getMessage(), e);
+            } finally {
+                p.close();
+            }
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: BatchRenderer [-view name] [-size WIDTHxHEIGHT] [-depth n] [-threads n] [-verbose]");
+        System.err.println("                     input output.png [input output.png ...]");
+        System.err.println("Views: " + VIEWS);
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+
+        String view = "sunburst";
+        int width = 800;
+        int height = 800;
+        int maxDepth = Integer.MAX_VALUE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean isVerbose = false;
+        ArrayList<File> files = new ArrayList<File>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-view")) {
+                    view = args[++i];
+                    if (!VIEWS.contains(view)) {
+                        usage();
+                    }
+                } else if (arg.equals("-size")) {
+                    String[] wh = args[++i].split("x");
+                    width = Integer.parseInt(wh[0]);
+                    height = Integer.parseInt(wh[wh.length - 1]);
+                } else if (arg.equals("-depth")) {
+                    maxDepth = Integer.parseInt(args[++i]);
+                } else if (arg.equals("-threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (arg.equals("-verbose")) {
+                    isVerbose = true;
+                } else if (arg.startsWith("-")) {
+                    usage();
+                } else {
+                    files.add(new File(arg));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+        } catch (NumberFormatException e) {
+            usage();
+        }
+        if (files.isEmpty() || files.size() % 2 != 0
+                || width < 1 || height < 1 || maxDepth < 1 || threads < 1) {
+            usage();
+        }
+
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size() / 2));
+        ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < files.size(); i += 2) {
+            futures.add(executor.submit(new Job(files.get(i), files.get(i + 1), view, width, height, maxDepth, isVerbose)));
+        }
+        executor.shutdown();
+
+        int failures = 0;
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                failures++;
+                System.err.println("BatchRenderer failed: " + e.getCause().getMessage());
+            }
+        }
+        long end = System.currentTimeMillis();
+        if (isVerbose) {
+            System.out.println("BatchRenderer " + futures.size() + " images elapsed:" + (end - start));
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
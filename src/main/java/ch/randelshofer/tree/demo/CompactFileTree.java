@@ -0,0 +1,504 @@
+/*
+ * @(#)CompactFileTree.java  1.2  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.gui.ProgressObserver;
+import ch.randelshofer.gui.ProgressSampler;
+import ch.randelshofer.gui.ProgressView;
+import ch.randelshofer.tree.NodeInfo;
+import ch.randelshofer.tree.TreeNode;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A file system tree which stores its nodes in parallel primitive arrays.
+ * <p>
+ * The directory hierarchy is read breadth first, so that the children of
+ * a node occupy a contiguous range of indices. A node is thus described by
+ * the index of its parent, the index of its first child and the number of
+ * its children; the next sibling of a node is simply the next index. Sizes
+ * and modification times are stored in {@code long} arrays, and the names of
+ * all files are packed into a single UTF-8 byte pool.
+ * <p>
+ * Without the name, a node takes 37 bytes: three ints for the structure,
+ * two longs for size and modification time, one int for the descendant
+ * count, one int for the offset into the name pool and one byte of flags.
+ * <p>
+ * The tree is exposed through {@link FileTreeNode} flyweights, which are
+ * created on demand and only hold a reference to the tree and an index.
+ * <p>
+ * Directories are listed ahead of time by a pool of worker threads, while
+ * the nodes are appended by the reading thread. While the tree is being
+ * read, it can publish partial snapshots to a {@link SnapshotListener}.
+ *
+ * @author Werner Randelshofer
+ * @version 1.2 2026-10-18 Reports the progress through a
+ * {@link ProgressSampler}.
+ * <br>1.1 2026-10-18 Lists directories in parallel and publishes
+ * snapshots while reading.
+ * <br>1.0 2026-10-18 Created.
+ */
+public class CompactFileTree implements DemoTree {
+
+    /**
+     * Receives partial snapshots of a tree while it is being read.
+     */
+    public interface SnapshotListener {
+
+        /**
+         * Invoked on the reading thread with an immutable snapshot of the
+         * part of the tree which has been read so far. Directories which
+         * have not been read yet have no children.
+         */
+        public void snapshotAvailable(CompactFileTree snapshot);
+    }
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+    private final static byte FLAG_DIRECTORY = 1;
+    private File rootFile;
+    private int count;
+    /** Nodes with an index smaller than this have their children read. */
+    private int processed;
+    private int[] parent;
+    private int[] firstChild;
+    private int[] childCount;
+    private int[] descendants;
+    private long[] size;
+    private long[] lastModified;
+    private byte[] flags;
+    /** Offset of the name of node i in the name pool. Has count + 1 elements. */
+    private int[] nameOffset;
+    private byte[] namePool;
+    private int namePoolSize;
+    private NodeInfo info;
+
+    /**
+     * Reads the specified directory and shows the progress in a
+     * {@link ProgressView}.
+     */
+    public CompactFileTree(File rootFile) {
+        ProgressObserver p = new ProgressView("Opening " + rootFile.getName(), "", 0, 1);
+        p.setIndeterminate(true);
+        try {
+            read(p, rootFile, null, 0);
+        } finally {
+            p.close();
+        }
+    }
+
+    /**
+     * Reads the specified directory and reports the progress to the
+     * specified progress observer.
+     */
+    public CompactFileTree(ProgressObserver p, File rootFile) {
+        read(p, rootFile, null, 0);
+    }
+
+    /**
+     * Reads the specified directory, and publishes snapshots of the part
+     * which has been read so far at the specified interval.
+     * <p>
+     * Since the directory is read breadth first, the top levels of the tree
+     * are complete in the first snapshots.
+     *
+     * @param p the progress observer.
+     * @param rootFile the directory.
+     * @param l the snapshot listener.
+     * @param interval the interval in milliseconds.
+     */
+    public CompactFileTree(ProgressObserver p, File rootFile, SnapshotListener l, long interval) {
+        read(p, rootFile, l, interval);
+    }
+
+    /**
+     * Creates a snapshot of a tree which is being read.
+     * <p>
+     * The snapshot shares the arrays of the tree. This is safe, because
+     * the tree only appends nodes, and only changes the children of nodes
+     * which have not been processed yet. Since sizes and descendant counts
+     * are cumulated, the snapshot has its own copies of these.
+     */
+    private CompactFileTree(CompactFileTree that) {
+        rootFile = that.rootFile;
+        count = that.count;
+        processed = that.processed;
+        parent = that.parent;
+        firstChild = that.firstChild;
+        childCount = that.childCount;
+        lastModified = that.lastModified;
+        flags = that.flags;
+        nameOffset = that.nameOffset;
+        namePool = that.namePool;
+        namePoolSize = that.namePoolSize;
+        size = Arrays.copyOf(that.size, count);
+        cumulate();
+    }
+
+    /**
+     * Describes a directory entry which has been read by a worker thread.
+     */
+    private static class Entry {
+
+        Path path;
+        boolean isDirectory;
+        long size;
+        long lastModified;
+    }
+
+    private void read(ProgressObserver p, File rootFile, SnapshotListener l, long interval) {
+        this.rootFile = rootFile;
+        int capacity = 1024;
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new int[capacity];
+        size = new long[capacity];
+        lastModified = new long[capacity];
+        flags = new byte[capacity];
+        nameOffset = new int[capacity + 1];
+        namePool = new byte[capacity * 16];
+
+        Path rootPath = rootFile.toPath();
+        final boolean isDos = FileNodeScanner.isDosFileSystem(rootPath.getFileSystem());
+        Entry rootEntry = readEntry(rootPath, isDos, false);
+        if (rootEntry == null) {
+            rootEntry = new Entry();
+            rootEntry.path = rootPath;
+        }
+        add(-1, rootEntry, rootFile.getName());
+        p.setIndeterminate(false);
+
+        // Breadth first traversal: the nodes array doubles as the queue.
+        // Directories ahead of the current node are listed by a thread pool,
+        // the results are appended to the arrays in queue order by this
+        // thread. The path of each directory is only needed until it has
+        // been submitted, so we keep it in a separate array.
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ArrayDeque<ForkJoinTask<ArrayList<Entry>>> pending = new ArrayDeque<ForkJoinTask<ArrayList<Entry>>>();
+        int window = parallelism * 8;
+        int submitted = 0;
+        Path[] paths = new Path[capacity];
+        paths[0] = rootPath;
+        long lastSnapshot = System.currentTimeMillis();
+        long snapshotTime = 0;
+        ProgressSampler sampler = new ProgressSampler(p);
+        int reportedCount = 0;
+        int reportedProcessed = 0;
+        sampler.start();
+        try {
+            for (int i = 0; i < count; i++) {
+                while (pending.size() < window && submitted < count && !p.isCanceled()) {
+                    if ((flags[submitted] & FLAG_DIRECTORY) != 0) {
+                        final Path dir = paths[submitted];
+                        paths[submitted] = null;
+                        pending.add(pool.submit(new Callable<ArrayList<Entry>>() {
+
+                            @Override
+                            public ArrayList<Entry> call() {
+                                return readDirectory(dir, isDos);
+                            }
+                        }));
+                    }
+                    submitted++;
+                }
+                if ((flags[i] & FLAG_DIRECTORY) != 0 && i < submitted) {
+                    ArrayList<Entry> entries = pending.remove().join();
+                    firstChild[i] = count;
+                    for (Entry entry : entries) {
+                        int index = add(i, entry, null);
+                        if (entry.isDirectory) {
+                            if (paths.length <= index) {
+                                paths = Arrays.copyOf(paths, parent.length);
+                            }
+                            paths[index] = entry.path;
+                        }
+                    }
+                    childCount[i] = count - firstChild[i];
+                }
+                processed = i + 1;
+
+                if ((i & 0xff) == 0) {
+                    sampler.addExpectedNodes(count - reportedCount);
+                    sampler.addNodes(processed - reportedProcessed);
+                    reportedCount = count;
+                    reportedProcessed = processed;
+                }
+                if (l != null) {
+                    long now = System.currentTimeMillis();
+                    // Make sure that we do not spend more than a fifth of the
+                    // time on snapshots.
+                    if (now - lastSnapshot >= Math.max(interval, snapshotTime * 5)) {
+                        l.snapshotAvailable(new CompactFileTree(this));
+                        lastSnapshot = System.currentTimeMillis();
+                        snapshotTime = lastSnapshot - now;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            sampler.addExpectedNodes(count - reportedCount);
+            sampler.addNodes(count - reportedProcessed);
+            sampler.stop();
+        }
+        processed = count;
+        trimToSize();
+        cumulate();
+    }
+
+    /**
+     * Cumulates sizes and descendant counts. Children have larger indices
+     * than their parents, so a single backwards pass is sufficient.
+     */
+    private void cumulate() {
+        descendants = new int[count];
+        for (int i = count - 1; i > 0; i--) {
+            int pi = parent[i];
+            size[pi] += size[i];
+            descendants[pi] += descendants[i] + 1;
+        }
+    }
+
+    /**
+     * Lists a directory. Skips hidden files and files which can not be read.
+     */
+    private static ArrayList<Entry> readDirectory(Path dir, boolean isDos) {
+        ArrayList<Entry> entries = new ArrayList<Entry>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                Entry entry = readEntry(path, isDos, true);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException | SecurityException e) {
+            // Unreadable directories are shown as empty, as with File.listFiles().
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the attributes of a file with a single call. Returns null if the
+     * file is hidden or can not be read.
+     */
+    private static Entry readEntry(Path path, boolean isDos, boolean skipHidden) {
+        BasicFileAttributes attrs;
+        Entry entry = new Entry();
+        entry.path = path;
+        try {
+            attrs = FileNodeScanner.readAttributes(path, isDos);
+        } catch (IOException e) {
+            try {
+                // Broken symbolic link: java.io.File reports a length and
+                // time of 0.
+                attrs = FileNodeScanner.readAttributes(path, isDos, LinkOption.NOFOLLOW_LINKS);
+                return (skipHidden && FileNodeScanner.isHidden(path, attrs, isDos)) ? null : entry;
+            } catch (IOException e2) {
+                return null;
+            }
+        }
+        if (skipHidden && FileNodeScanner.isHidden(path, attrs, isDos)) {
+            return null;
+        }
+        entry.isDirectory = attrs.isDirectory();
+        entry.size = entry.isDirectory ? 0 : attrs.size();
+        entry.lastModified = attrs.lastModifiedTime().toMillis();
+        return entry;
+    }
+
+    /**
+     * Appends a node and returns its index.
+     */
+    private int add(int parentIndex, Entry entry, String name) {
+        if (count == parent.length) {
+            grow();
+        }
+        if (name == null) {
+            name = entry.path.getFileName().toString();
+        }
+        byte[] nameBytes = name.getBytes(UTF_8);
+        if (namePoolSize + nameBytes.length > namePool.length) {
+            namePool = Arrays.copyOf(namePool, Math.max(namePoolSize + nameBytes.length, namePool.length * 3 / 2));
+        }
+        System.arraycopy(nameBytes, 0, namePool, namePoolSize, nameBytes.length);
+        nameOffset[count] = namePoolSize;
+        namePoolSize += nameBytes.length;
+        nameOffset[count + 1] = namePoolSize;
+
+        int index = count++;
+        parent[index] = parentIndex;
+        flags[index] = entry.isDirectory ? FLAG_DIRECTORY : 0;
+        size[index] = entry.size;
+        lastModified[index] = entry.lastModified;
+        return index;
+    }
+
+    private void grow() {
+        int capacity = parent.length * 3 / 2;
+        parent = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        childCount = Arrays.copyOf(childCount, capacity);
+        size = Arrays.copyOf(size, capacity);
+        lastModified = Arrays.copyOf(lastModified, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        nameOffset = Arrays.copyOf(nameOffset, capacity + 1);
+    }
+
+    private void trimToSize() {
+        parent = Arrays.copyOf(parent, count);
+        firstChild = Arrays.copyOf(firstChild, count);
+        childCount = Arrays.copyOf(childCount, count);
+        size = Arrays.copyOf(size, count);
+        lastModified = Arrays.copyOf(lastModified, count);
+        flags = Arrays.copyOf(flags, count);
+        nameOffset = Arrays.copyOf(nameOffset, count + 1);
+        namePool = Arrays.copyOf(namePool, namePoolSize);
+    }
+
+    /**
+     * Returns the number of nodes in the tree.
+     */
+    public int getNodeCount() {
+        return count;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the arrays of this
+     * tree.
+     */
+    public long getMemoryUsage() {
+        return 4L * (parent.length + firstChild.length + childCount.length
+                + (descendants == null ? 0 : descendants.length) + nameOffset.length)
+                + 8L * (size.length + lastModified.length)
+                + flags.length + namePool.length;
+    }
+
+    @Override
+    public FileTreeNode getRoot() {
+        return new Node(0);
+    }
+
+    @Override
+    public NodeInfo getInfo() {
+        if (info == null) {
+            info = new FileNodeInfo();
+        }
+        return info;
+    }
+
+    private String getName(int index) {
+        return new String(namePool, nameOffset[index], nameOffset[index + 1] - nameOffset[index], UTF_8);
+    }
+
+    private File getFile(int index) {
+        return (index == 0) ? rootFile : new File(getFile(parent[index]), getName(index));
+    }
+
+    /**
+     * Flyweight node.
+     */
+    private class Node implements FileTreeNode {
+
+        private final int index;
+
+        public Node(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public List<TreeNode> children() {
+            final int first = firstChild[index];
+            final int n = (index < processed) ? childCount[index] : 0;
+            return new AbstractList<TreeNode>() {
+
+                @Override
+                public TreeNode get(int i) {
+                    if (i < 0 || i >= n) {
+                        throw new IndexOutOfBoundsException("index:" + i + " size:" + n);
+                    }
+                    return new Node(first + i);
+                }
+
+                @Override
+                public int size() {
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public boolean getAllowsChildren() {
+            return (flags[index] & FLAG_DIRECTORY) != 0;
+        }
+
+        @Override
+        public String getName() {
+            return CompactFileTree.this.getName(index);
+        }
+
+        @Override
+        public File getFile() {
+            return CompactFileTree.this.getFile(index);
+        }
+
+        @Override
+        public long getFileSize() {
+            return size[index];
+        }
+
+        @Override
+        public long getLastModified() {
+            return lastModified[index];
+        }
+
+        @Override
+        public int getDescendantCount() {
+            return descendants[index];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Node) {
+                Node that = (Node) o;
+                return that.index == this.index && that.getTree() == getTree();
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        private CompactFileTree getTree() {
+            return CompactFileTree.this;
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+}
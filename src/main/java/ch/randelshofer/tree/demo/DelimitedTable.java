@@ -0,0 +1,210 @@
+/*
+ * @(#)DelimitedTable.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.tree.demo.AbstractNodeInfo.DataType;
+import java.text.DateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+
+/**
+ * Holds the rows of a delimited file column by column.
+ * <p>
+ * Numeric and date columns are stored as primitive values in an
+ * {@link AttributeColumn}. All other columns are stored as dictionary
+ * codes. The dictionary of a column holds its distinct values. It is sorted
+ * the first time the codes are requested, so that the codes order the same
+ * way as the values.
+ * <p>
+ * A column is stored as primitive values only if each value can be
+ * formatted back into the same string. Otherwise it is stored as codes,
+ * even if its data type is numeric or date.
+ * <p>
+ * A table is created by a {@link DelimitedTableReader}. It can be read by
+ * many threads.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public class DelimitedTable {
+
+    private String[] headers;
+    private int rowCount;
+    private DataType[] types;
+    /** The text columns. */
+    private TextColumn[] texts;
+    /** The values of the numeric and date columns. */
+    private AttributeColumn[] columns;
+    /** The formats of the date columns. */
+    private DateFormat[] dateFormats;
+
+    /**
+     * The codes and the dictionary of a text column. A sorted column
+     * replaces the unsorted one. The fields are final, so that a thread
+     * which reads a cell sees either column, but never a mix of both.
+     */
+    private static class TextColumn {
+
+        private final int[] codes;
+        private final String[] dictionary;
+        private final boolean isSorted;
+
+        public TextColumn(int[] codes, String[] dictionary, boolean isSorted) {
+            this.codes = codes;
+            this.dictionary = dictionary;
+            this.isSorted = isSorted;
+        }
+    }
+
+    /**
+     * Creates a new table.
+     *
+     * @param codes The codes of the text columns, indexed by column and row.
+     * Null for the columns which are stored as primitive values.
+     * @param dictionaries The values of the codes of the text columns.
+     */
+    DelimitedTable(String[] headers, int rowCount, DataType[] types,
+            int[][] codes, String[][] dictionaries,
+            AttributeColumn[] columns, DateFormat[] dateFormats) {
+        this.headers = headers;
+        this.rowCount = rowCount;
+        this.types = types;
+        this.columns = columns;
+        this.dateFormats = dateFormats;
+        texts = new TextColumn[headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            if (codes[i] != null) {
+                texts[i] = new TextColumn(codes[i], dictionaries[i], false);
+            }
+        }
+    }
+
+    public String[] getHeaders() {
+        return headers;
+    }
+
+    public int getColumnCount() {
+        return headers.length;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the data type of the values of a column.
+     */
+    public DataType getType(int column) {
+        return types[column];
+    }
+
+    /**
+     * Returns the value of a cell.
+     */
+    public String getString(int row, int column) {
+        TextColumn text = texts[column];
+        if (text != null) {
+            return text.dictionary[text.codes[row]];
+        }
+        AttributeColumn c = columns[column];
+        if (!c.isSet(row)) {
+            return "";
+        }
+        DateFormat format = dateFormats[column];
+        if (format == null) {
+            return Long.toString(c.get(row));
+        }
+        synchronized (format) {
+            return format.format(new Date(c.get(row)));
+        }
+    }
+
+    /**
+     * Returns the values of a row.
+     */
+    public String[] getRow(int row) {
+        String[] values = new String[headers.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getString(row, i);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the codes of a column, or null if the column is stored as
+     * primitive values. The codes are the ranks of the values in the sorted
+     * {@link #getDictionary dictionary} of the column. The array must not be
+     * changed.
+     */
+    public int[] getCodes(int column) {
+        TextColumn text = getSortedText(column);
+        return text == null ? null : text.codes;
+    }
+
+    /**
+     * Returns the sorted distinct values of a column, or null if the column
+     * is stored as primitive values. The array must not be changed.
+     */
+    public String[] getDictionary(int column) {
+        TextColumn text = getSortedText(column);
+        return text == null ? null : text.dictionary;
+    }
+
+    /**
+     * Sorts the dictionary of a text column, unless it has been sorted
+     * before, and replaces the codes by the ranks of the values. Different
+     * columns can be sorted at the same time.
+     */
+    private TextColumn getSortedText(int column) {
+        TextColumn text = texts[column];
+        if (text == null || text.isSorted) {
+            return text;
+        }
+        synchronized (text) {
+            if (texts[column].isSorted) {
+                return texts[column];
+            }
+            final String[] values = text.dictionary;
+            Integer[] order = new Integer[values.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+
+                public int compare(Integer o1, Integer o2) {
+                    return values[o1].compareTo(values[o2]);
+                }
+            });
+            int[] rank = new int[order.length];
+            String[] dictionary = new String[order.length];
+            for (int i = 0; i < order.length; i++) {
+                rank[order[i]] = i;
+                dictionary[i] = values[order[i]];
+            }
+            int[] codes = new int[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                codes[row] = rank[text.codes[row]];
+            }
+            TextColumn sorted = new TextColumn(codes, dictionary, true);
+            texts[column] = sorted;
+            return sorted;
+        }
+    }
+
+    /**
+     * Returns the primitive values of a column, or null if the column is
+     * stored as codes.
+     */
+    public AttributeColumn getColumn(int column) {
+        return columns[column];
+    }
+}
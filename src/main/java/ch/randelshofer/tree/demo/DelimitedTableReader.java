@@ -0,0 +1,505 @@
+/*
+ * @(#)DelimitedTableReader.java  1.1  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.tree.demo.AbstractNodeInfo.DataType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+
+/**
+ * Reads a delimited file into a {@link DelimitedTable}.
+ * <p>
+ * The first line of the file holds the column headers, each following line
+ * holds a row. The file is read in UTF-8. The reader works on the bytes of
+ * the file; it does not use regular expressions, and it does not create a
+ * string for a cell unless the value is seen for the first time in its
+ * column. Each column has a dictionary which maps the bytes of a value to
+ * a code.
+ * <p>
+ * When the file has been read, the data type of each column is determined
+ * from its distinct values. Each distinct value is parsed only once. The
+ * dictionaries of the text columns are sorted when they are needed, see
+ * {@link DelimitedTable#getCodes}.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ * <li>Tab-separated files ({@code .txt}, {@code .tsv}) in the format used
+ * by Many Eyes. Spaces around a tab are removed.</li>
+ * <li>Comma-separated files ({@code .csv}). A cell can be quoted with
+ * double quotes; a double quote in a quoted cell is written twice.</li>
+ * </ul>
+ * Missing cells at the end of a row are empty. Empty lines are skipped,
+ * unless the table has a single column. Then an empty line is a row with
+ * an empty value.
+ *
+ * @author Werner Randelshofer
+ * @version 1.1 2026-10-18 Keeps empty lines of a table with a single column.
+ * <br>1.0 2026-10-18 Created.
+ */
+public class DelimitedTableReader {
+
+    private final static int BUFFER_SIZE = 1 << 16;
+    private byte delimiter;
+    private boolean isQuoting;
+    private boolean isTrimming;
+    private InputStream in;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private boolean isEOF;
+    /** The cells of the current record. */
+    private int cellCount;
+    private int[] cellStarts = new int[16];
+    private int[] cellEnds = new int[16];
+    /** True for the quoted cells which contain a doubled quote. */
+    private boolean[] cellEscapes = new boolean[16];
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Creates a new reader.
+     *
+     * @param delimiter The delimiter of the cells.
+     * @param isQuoting True if cells can be quoted with double quotes.
+     * @param isTrimming True if spaces around a delimiter are removed.
+     */
+    public DelimitedTableReader(char delimiter, boolean isQuoting, boolean isTrimming) {
+        if (delimiter > 0x7f || delimiter == '\n' || delimiter == '\r' || delimiter == '"') {
+            throw new IllegalArgumentException("Illegal delimiter: " + (int) delimiter);
+        }
+        this.delimiter = (byte) delimiter;
+        this.isQuoting = isQuoting;
+        this.isTrimming = isTrimming;
+    }
+
+    /**
+     * Returns true if the file with the specified name can be read.
+     */
+    public static boolean isDelimitedFile(String name) {
+        String lc = name.toLowerCase();
+        return lc.endsWith(".txt") || lc.endsWith(".tsv") || lc.endsWith(".csv");
+    }
+
+    /**
+     * Creates a reader for the format of the file with the specified name.
+     */
+    public static DelimitedTableReader forName(String name) {
+        if (name.toLowerCase().endsWith(".csv")) {
+            return new DelimitedTableReader(',', true, false);
+        } else {
+            return new DelimitedTableReader('\t', false, true);
+        }
+    }
+
+    /**
+     * Reads a table. The input stream is not closed.
+     */
+    public DelimitedTable read(InputStream in) throws IOException {
+        this.in = in;
+        buf = new byte[BUFFER_SIZE];
+        pos = limit = 0;
+        isEOF = false;
+
+        // Skip the byte order mark
+        fill();
+        while (limit < 3 && !isEOF) {
+            fill();
+        }
+        if (limit >= 3 && buf[0] == (byte) 0xef && buf[1] == (byte) 0xbb && buf[2] == (byte) 0xbf) {
+            pos = 3;
+        }
+
+        // Read the header
+        if (!nextRecord()) {
+            throw new IOException("The file has no header.");
+        }
+        int columnCount = cellCount;
+        String[] headers = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            headers[i] = new String(buf, cellStarts[i], cellLength(i), StandardCharsets.UTF_8);
+            if (cellEscapes[i]) {
+                headers[i] = headers[i].replace("\"\"", "\"");
+            }
+        }
+
+        // Read the rows
+        ByteDictionary[] dictionaries = new ByteDictionary[columnCount];
+        int[][] codes = new int[columnCount][];
+        for (int i = 0; i < columnCount; i++) {
+            dictionaries[i] = new ByteDictionary();
+            codes[i] = new int[1024];
+        }
+        int rowCount = 0;
+        while (nextRecord()) {
+            if (columnCount > 1 && cellCount == 1 && cellStarts[0] == cellEnds[0] && !cellEscapes[0]
+                    && (cellStarts[0] == 0 || buf[cellStarts[0] - 1] != '"')) {
+                continue;
+            }
+            if (rowCount == codes[0].length) {
+                for (int i = 0; i < columnCount; i++) {
+                    codes[i] = Arrays.copyOf(codes[i], rowCount * 2);
+                }
+            }
+            for (int i = 0; i < columnCount; i++) {
+                int code;
+                if (i >= cellCount) {
+                    code = dictionaries[i].add(buf, 0, 0);
+                } else if (cellEscapes[i]) {
+                    int length = unescape(i);
+                    code = dictionaries[i].add(scratch, 0, length);
+                } else {
+                    code = dictionaries[i].add(buf, cellStarts[i], cellLength(i));
+                }
+                codes[i][rowCount] = code;
+            }
+            rowCount++;
+        }
+        buf = null;
+        this.in = null;
+        return createTable(headers, rowCount, codes, dictionaries);
+    }
+
+    private int cellLength(int i) {
+        return cellEnds[i] - cellStarts[i];
+    }
+
+    /**
+     * Copies a quoted cell into the scratch buffer, and replaces each doubled
+     * quote by a single one.
+     *
+     * @return the length of the value.
+     */
+    private int unescape(int i) {
+        if (scratch.length < cellLength(i)) {
+            scratch = new byte[cellLength(i) * 2];
+        }
+        int length = 0;
+        for (int p = cellStarts[i], end = cellEnds[i]; p < end; p++) {
+            scratch[length++] = buf[p];
+            if (buf[p] == '"') {
+                p++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Reads more bytes into the buffer. The bytes of the current record are
+     * moved to the start of the buffer. The buffer grows if the record does
+     * not fit.
+     */
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        } else if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int count = in.read(buf, limit, buf.length - limit);
+        if (count == -1) {
+            isEOF = true;
+        } else {
+            limit += count;
+        }
+    }
+
+    /**
+     * Reads the next record into the cell arrays.
+     *
+     * @return false if the end of the file has been reached.
+     */
+    private boolean nextRecord() throws IOException {
+        while (true) {
+            if (pos == limit && isEOF) {
+                return false;
+            }
+            if (scanRecord()) {
+                return true;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Scans the record at the current position. If the record is complete,
+     * the position is moved after the record.
+     *
+     * @return false if more bytes are needed.
+     */
+    private boolean scanRecord() {
+        byte[] b = buf;
+        int p = pos;
+        cellCount = 0;
+        while (true) {
+            int start = p;
+            int end;
+            boolean isEscaped = false;
+            if (isTrimming && cellCount > 0) {
+                while (p < limit && b[p] == ' ') {
+                    p++;
+                }
+                start = p;
+            }
+            if (isQuoting && p < limit && b[p] == '"') {
+                start = ++p;
+                while (true) {
+                    if (p == limit) {
+                        if (!isEOF) {
+                            return false;
+                        }
+                        end = p;
+                        break;
+                    }
+                    if (b[p] == '"') {
+                        if (p + 1 == limit && !isEOF) {
+                            return false;
+                        }
+                        if (p + 1 < limit && b[p + 1] == '"') {
+                            isEscaped = true;
+                            p += 2;
+                            continue;
+                        }
+                        end = p++;
+                        break;
+                    }
+                    p++;
+                }
+                // Skip characters after the closing quote
+                while (p < limit && b[p] != delimiter && b[p] != '\n' && b[p] != '\r') {
+                    p++;
+                }
+                if (p == limit && !isEOF) {
+                    return false;
+                }
+            } else {
+                while (p < limit) {
+                    byte c = b[p];
+                    if (c == delimiter || c == '\n' || c == '\r') {
+                        break;
+                    }
+                    p++;
+                }
+                if (p == limit && !isEOF) {
+                    return false;
+                }
+                end = p;
+                if (isTrimming && p < limit && b[p] == delimiter) {
+                    while (end > start && b[end - 1] == ' ') {
+                        end--;
+                    }
+                }
+            }
+            addCell(start, end, isEscaped);
+
+            if (p == limit) {
+                // The last record has no line terminator
+                pos = p;
+                return true;
+            }
+            if (b[p] == delimiter) {
+                p++;
+                continue;
+            }
+            if (b[p] == '\r') {
+                if (p + 1 < limit) {
+                    p += (b[p + 1] == '\n') ? 2 : 1;
+                } else if (isEOF) {
+                    p++;
+                } else {
+                    return false;
+                }
+            } else {
+                p++;
+            }
+            pos = p;
+            return true;
+        }
+    }
+
+    private void addCell(int start, int end, boolean isEscaped) {
+        if (cellCount == cellStarts.length) {
+            cellStarts = Arrays.copyOf(cellStarts, cellCount * 2);
+            cellEnds = Arrays.copyOf(cellEnds, cellCount * 2);
+            cellEscapes = Arrays.copyOf(cellEscapes, cellCount * 2);
+        }
+        cellStarts[cellCount] = start;
+        cellEnds[cellCount] = end;
+        cellEscapes[cellCount] = isEscaped;
+        cellCount++;
+    }
+
+    /**
+     * Creates the table from the codes which have been read. The data type
+     * of each column is determined from its distinct values.
+     */
+    private DelimitedTable createTable(String[] headers, int rowCount, int[][] codes, ByteDictionary[] byteDictionaries) {
+        int columnCount = headers.length;
+        DataType[] types = new DataType[columnCount];
+        String[][] dictionaries = new String[columnCount][];
+        AttributeColumn[] columns = new AttributeColumn[columnCount];
+        DateFormat[] dateFormats = new DateFormat[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            int[] columnCodes = (codes[i].length == rowCount) ? codes[i] : Arrays.copyOf(codes[i], rowCount);
+            String[] values = byteDictionaries[i].toStrings();
+            byteDictionaries[i] = null;
+            types[i] = AbstractNodeInfo.determineDataType(Arrays.asList(values));
+
+            if (types[i] == DataType.NUMERIC_STRING || types[i] == DataType.DATE_STRING) {
+                AttributeColumn parsed = new AttributeColumn(types[i], values.length);
+                for (int j = 0; j < values.length; j++) {
+                    parsed.parse(j, values[j]);
+                }
+                DateFormat format = null;
+                boolean isExact;
+                if (types[i] == DataType.NUMERIC_STRING) {
+                    isExact = isExact(parsed, values, null);
+                } else {
+                    format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+                    isExact = isExact(parsed, values, format);
+                    if (!isExact) {
+                        format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+                        isExact = isExact(parsed, values, format);
+                    }
+                }
+                if (isExact) {
+                    long[] columnValues = new long[rowCount];
+                    for (int row = 0; row < rowCount; row++) {
+                        columnValues[row] = parsed.get(columnCodes[row]);
+                    }
+                    BitSet isSet = new BitSet(rowCount);
+                    isSet.set(0, rowCount);
+                    columns[i] = new AttributeColumn(types[i], columnValues, isSet);
+                    dateFormats[i] = format;
+                    codes[i] = null;
+                    continue;
+                }
+            }
+
+            codes[i] = columnCodes;
+            dictionaries[i] = values;
+        }
+        return new DelimitedTable(headers, rowCount, types, codes, dictionaries, columns, dateFormats);
+    }
+
+    /**
+     * Returns true if each value has been parsed, and formats back into the
+     * same string.
+     *
+     * @param format The date format, or null for numbers.
+     */
+    private static boolean isExact(AttributeColumn parsed, String[] values, DateFormat format) {
+        for (int j = 0; j < values.length; j++) {
+            if (!parsed.isSet(j)) {
+                return false;
+            }
+            String str = (format == null) ? Long.toString(parsed.get(j)) : format.format(new Date(parsed.get(j)));
+            if (!str.equals(values[j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Maps the bytes of the values of a column to codes. The codes are
+     * assigned in the order in which the values are seen. The dictionary is
+     * an open addressing hash table; the bytes of the values are stored in
+     * a single array.
+     */
+    private static class ByteDictionary {
+
+        /** The hash in the high and the code + 1 in the low 32 bits of
+         * each slot, 0 for an empty slot. */
+        private long[] slots = new long[64];
+        /** The bytes of code i are at offsets[i] to offsets[i + 1]. */
+        private int[] offsets = new int[33];
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        public int add(byte[] b, int off, int len) {
+            int h = 0;
+            for (int i = off, end = off + len; i < end; i++) {
+                h = 31 * h + b[i];
+            }
+            h ^= (h >>> 16);
+            h *= 0x85ebca6b;
+            h ^= (h >>> 13);
+
+            int mask = slots.length - 1;
+            int slot = h & mask;
+            for (long s; (s = slots[slot]) != 0; slot = (slot + 1) & mask) {
+                int code = (int) s - 1;
+                if ((int) (s >>> 32) == h && equals(code, b, off, len)) {
+                    return code;
+                }
+            }
+
+            int code = size++;
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            int start = offsets[code];
+            if (start + len > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(start + len, bytes.length * 2));
+            }
+            System.arraycopy(b, off, bytes, start, len);
+            offsets[code + 1] = start + len;
+            slots[slot] = ((long) h << 32) | (code + 1);
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return code;
+        }
+
+        private boolean equals(int code, byte[] b, int off, int len) {
+            int start = offsets[code];
+            if (offsets[code + 1] - start != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (bytes[start + i] != b[off + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            int mask = slots.length - 1;
+            for (long s : old) {
+                if (s != 0) {
+                    int slot = (int) (s >>> 32) & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = s;
+                }
+            }
+        }
+
+        /** Returns the values indexed by code. */
+        public String[] toStrings() {
+            String[] values = new String[size];
+            for (int code = 0; code < size; code++) {
+                values[code] = new String(bytes, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8);
+            }
+            return values;
+        }
+    }
+}
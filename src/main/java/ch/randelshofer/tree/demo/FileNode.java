@@ -1,7 +1,7 @@
 /*
- * @(#)FileNode.java  1.0  September 16, 2007
+ * @(#)FileNode.java  1.3  2026-10-18
  *
- * Copyright (c) 2007 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2007-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -18,11 +18,21 @@ import java.util.*;
 
 /**
  * The FileNode implements an example of HTNode encapsulating a File.
+ *
+ * @author Werner Randelshofer
+ * @version 1.3 2026-10-18 Reports the progress through a
+ * {@link ProgressSampler}.
+ * <br>1.2 2026-10-18 Nodes know their parent and can be patched
+ * by a {@link FileTreeWatcher}.
+ * <br>1.1 2026-10-18 Implements FileTreeNode. Adds support for nodes
+ * created by a {@link FileNodeScanner}.
+ * <br>1.0 September 16, 2007 Created.
  */
 public class FileNode
-        implements TreeNode {
+        implements FileTreeNode {
 
     private File file = null; // the File encapsulated
+    private FileNode parent; // the parent of this node, null for the root
     private ArrayList<TreeNode> children = null; // the children of this node
     private int depth;
     private boolean isLeaf;
@@ -67,6 +77,28 @@ public class FileNode
             p = new ProgressView("Opening " + file.getName(), "", 0, 1);
             p.setIndeterminate(true);
         }
+        ProgressSampler sampler = new ProgressSampler(p);
+        sampler.addExpectedNodes(1);
+        sampler.start();
+        try {
+            read(p, sampler, depth, file, onlyChild);
+        } finally {
+            sampler.stop();
+        }
+        if (oldP == null) {
+            p.close();
+        }
+    }
+
+    /**
+     * Reads a descendant of the node which has been created by the public
+     * constructor.
+     */
+    private FileNode(ProgressObserver p, ProgressSampler sampler, int depth, File file) {
+        read(p, sampler, depth, file, null);
+    }
+
+    private void read(ProgressObserver p, ProgressSampler sampler, int depth, File file, File onlyChild) {
         this.depth = depth;
         this.lastModified = file.lastModified();
         boolean isDir = file.isDirectory();
@@ -76,26 +108,150 @@ public class FileNode
         if (isLeaf || p.isCanceled()) {
             fileSize = file.length();
         } else {
-            p.setNote("Reading (" + p.getProgress() + ") " + file.getName());
+            sampler.setItem(file.getName());
+            sampler.incrementDirectories();
             File[] tabFichiers = (onlyChild == null) ? file.listFiles() : new File[]{onlyChild};
             fileSize = 0;
             if (tabFichiers != null) {
-                p.setMaximum(p.getMaximum() + tabFichiers.length);
+                sampler.addExpectedNodes(tabFichiers.length);
                 for (int i = 0, n = tabFichiers.length; i < n; i++) {
                     File fichier = tabFichiers[i];
                     if (!fichier.isHidden()) {
-                        FileNode child = new FileNode(p, depth + 1, fichier);
+                        FileNode child = new FileNode(p, sampler, depth + 1, fichier);
                         fileSize += child.getFileSize();
                         addChild(child);
+                    } else {
+                        sampler.incrementNodes();
                     }
                 }
             }
         }
         size = (fileSize == 0) ? 0 : Math.max(0, Math.min(10, (int) Math.log10(fileSize) - 5));
-        p.setProgress(p.getProgress() + 1);
-        if (oldP == null) {
-            p.close();
+        sampler.incrementNodes();
+    }
+
+    /**
+     * Creates a node for a file whose attributes have already been read.
+     * <p>
+     * This constructor does not access the file system. It is used by
+     * {@link FileNodeScanner}, which adds the children of a directory
+     * by invoking {@link #setChildren}.
+     *
+     * @param depth       the depth of the node in the tree
+     * @param file        the File encapsulated in this node
+     * @param isDirectory whether the file is a directory
+     * @param fileSize    the length of the file, ignored for directories
+     * @param lastModified the last modification time of the file
+     */
+    FileNode(int depth, File file, boolean isDirectory, long fileSize, long lastModified) {
+        this.depth = depth;
+        this.file = file;
+        this.isLeaf = !isDirectory;
+        this.lastModified = lastModified;
+        this.children = new ArrayList<TreeNode>(0);
+        this.fileSize = isDirectory ? 0 : fileSize;
+        if (!isDirectory) {
+            descendants = 0;
         }
+        size = (this.fileSize == 0) ? 0 : Math.max(0, Math.min(10, (int) Math.log10(this.fileSize) - 5));
+    }
+
+    /**
+     * Sets the children of a directory node and aggregates their file sizes
+     * and descendant counts.
+     *
+     * @param newValue the children of this node
+     */
+    void setChildren(ArrayList<TreeNode> newValue) {
+        children = newValue;
+        fileSize = 0;
+        descendants = children.size();
+        for (TreeNode c : children) {
+            FileNode child = (FileNode) c;
+            child.parent = this;
+            fileSize += child.getFileSize();
+            descendants += child.getDescendantCount();
+        }
+        size = (fileSize == 0) ? 0 : Math.max(0, Math.min(10, (int) Math.log10(fileSize) - 5));
+    }
+
+    /**
+     * Returns the parent of this node, or null if this is the root.
+     */
+    FileNode getParent() {
+        return parent;
+    }
+
+    /**
+     * Returns the path from the root to this node.
+     */
+    TreePath2<TreeNode> getPath() {
+        int depth = 0;
+        for (FileNode n = this; n != null; n = n.parent) {
+            depth++;
+        }
+        TreeNode[] path = new TreeNode[depth];
+        for (FileNode n = this; n != null; n = n.parent) {
+            path[--depth] = n;
+        }
+        return new TreePath2<TreeNode>(path);
+    }
+
+    /**
+     * Adds a child to this directory node, and adds its size and descendants
+     * to all ancestors.
+     * <p>
+     * The children list is replaced instead of modified, so that
+     * threads which are iterating over the old list are not disturbed.
+     */
+    void childAdded(FileNode child) {
+        ArrayList<TreeNode> newChildren = new ArrayList<TreeNode>(children.size() + 1);
+        newChildren.addAll(children);
+        newChildren.add(child);
+        child.parent = this;
+        children = newChildren;
+        propagateDelta(child.getFileSize(), child.getDescendantCount() + 1);
+    }
+
+    /**
+     * Removes a child from this directory node, and subtracts its size and
+     * descendants from all ancestors.
+     */
+    void childRemoved(FileNode child) {
+        ArrayList<TreeNode> newChildren = new ArrayList<TreeNode>(children);
+        if (newChildren.remove(child)) {
+            children = newChildren;
+            propagateDelta(-child.getFileSize(), -child.getDescendantCount() - 1);
+            child.parent = null;
+        }
+    }
+
+    /**
+     * Updates the size and modification time of this node. The size
+     * difference is propagated to all ancestors.
+     */
+    void fileChanged(long newFileSize, long newLastModified) {
+        lastModified = newLastModified;
+        if (isLeaf) {
+            propagateDelta(newFileSize - fileSize, 0);
+        }
+    }
+
+    private void propagateDelta(long sizeDelta, int descendantsDelta) {
+        for (FileNode n = this; n != null; n = n.parent) {
+            n.fileSize += sizeDelta;
+            n.size = (n.fileSize == 0) ? 0 : Math.max(0, Math.min(10, (int) Math.log10(n.fileSize) - 5));
+            if (n.descendants != -1) {
+                n.descendants += descendantsDelta;
+            }
+        }
+    }
+
+    /**
+     * Returns the depth of this node in the tree.
+     */
+    int getDepth() {
+        return depth;
     }
 
     public long getLastModified() {
@@ -109,6 +265,7 @@ public class FileNode
      * @param child    the HSBFileNodeto add as a child
      */
     protected void addChild(FileNode child) {
+        child.parent = this;
         children.add(child);
     }
 
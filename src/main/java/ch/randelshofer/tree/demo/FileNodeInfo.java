@@ -1,5 +1,5 @@
 /*
- * @(#)FileNodeInfo.java  1.2  2011-01-16
+ * @(#)FileNodeInfo.java  1.3  2026-10-18
  *
  * Copyright (colorizer) 2007-2011 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -30,7 +30,8 @@ import javax.swing.plaf.basic.BasicToolTipUI;
  * FileNodeInfo.
  * 
  * @author Werner Randelshofer
- * @version 1.2 2011-01-16 Added actions for opening files and folders.
+ * @version 1.3 2026-10-18 Works with FileTreeNode instead of FileNode.
+ * <br>1.2 2011-01-16 Added actions for opening files and folders.
  * <br>1.1 2009-03-20 Factured weight formatting out.
  * <br>1.0 September 25, 2007 Created.
  */
@@ -84,19 +85,19 @@ public class FileNodeInfo extends DefaultNodeInfo {
 
     @Override
     public long getWeight(TreePath2<TreeNode> path) {
-        FileNode fn = (FileNode) path.getLastPathComponent();
+        FileTreeNode fn = (FileTreeNode) path.getLastPathComponent();
         return fn.getFileSize();
     }
 
     @Override
     public Color getColor(TreePath2<TreeNode> path) {
-        FileNode fn = (FileNode) path.getLastPathComponent();
+        FileTreeNode fn = (FileTreeNode) path.getLastPathComponent();
         return colorizer.get(weighter.getWeight(path));
     }
 
     @Override
     public String getName(TreePath2<TreeNode> path) {
-        FileNode fn = (FileNode) path.getLastPathComponent();
+        FileTreeNode fn = (FileTreeNode) path.getLastPathComponent();
         return fn.getName();
     }
 
@@ -113,7 +114,7 @@ public class FileNodeInfo extends DefaultNodeInfo {
         buf.insert(0, "<html>");
         buf.append("<br>");
 
-        FileNode node = (FileNode) path.getLastPathComponent();
+        FileTreeNode node = (FileTreeNode) path.getLastPathComponent();
         if (node.getAllowsChildren()) {
             buf.append("<br>children: ");
             buf.append(intFormat.format(node.children().size()));
@@ -177,7 +178,7 @@ public class FileNodeInfo extends DefaultNodeInfo {
 
     @Override
     public Action[] getActions(TreePath2<TreeNode> path) {
-        FileNode n = (FileNode) path.getLastPathComponent();
+        FileTreeNode n = (FileTreeNode) path.getLastPathComponent();
         final File file = n.getFile();
         if (file.isDirectory()) {
             Action a = new AbstractAction("Open Folder") {
@@ -0,0 +1,524 @@
+/*
+ * @(#)FileNodeScanner.java  1.4  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.gui.ProgressObserver;
+import ch.randelshofer.gui.ProgressSampler;
+import ch.randelshofer.gui.ProgressView;
+import ch.randelshofer.tree.TreeNode;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Builds a tree of {@link FileNode}s by scanning a directory hierarchy with
+ * a fork/join pool.
+ * <p>
+ * Each directory is read by its own task, so that sibling directories are
+ * scanned concurrently. The children of a directory are kept in the order
+ * returned by {@link File#listFiles()}, and hidden files are skipped, so the
+ * resulting tree is the same as the one built by
+ * {@link FileNode#FileNode(File)}.
+ * <p>
+ * In {@link Mode#NIO_ATTRIBUTES} mode, which is the default, directories are
+ * read with a {@link DirectoryStream} and the type, size, modification time
+ * and hidden flag of an entry are fetched with a single call to
+ * {@link Files#readAttributes(Path, Class, LinkOption...)}. In
+ * {@link Mode#IO_FILE} mode, the methods of {@link File} are used, which
+ * costs one system call per attribute.
+ * <p>
+ * The worker threads do not touch the {@link ProgressObserver}. Instead they
+ * update the counters of a {@link ProgressSampler}. The thread that invoked
+ * {@code scan} polls the observer for cancellation. If the observer is
+ * canceled, directories which have not been read yet are treated as empty.
+ * <p>
+ * A scan can publish partial snapshots of the tree. Then the directories are
+ * read breadth-first, level by level, so that the top levels of the tree
+ * appear first. The worker threads publish the children of each directory
+ * as soon as it has been read, and the thread that invoked {@code scan}
+ * copies the published part of the tree into a new tree of
+ * {@link FileNode}s at the snapshot interval.
+ *
+ * @author Werner Randelshofer
+ * @version 1.4 2026-10-18 Reads the directories breadth-first when
+ * snapshots are published.
+ * <br>1.3 2026-10-18 Publishes partial snapshots while scanning.
+ * <br>1.2 2026-10-18 Reports the progress through a
+ * {@link ProgressSampler}.
+ * <br>1.1 2026-10-18 Reads file attributes with a single call.
+ * <br>1.0 2026-10-18 Created.
+ */
+public class FileNodeScanner {
+
+    /**
+     * Receives partial snapshots of a tree while it is being scanned.
+     */
+    public interface SnapshotListener {
+
+        /**
+         * Invoked on the scanning thread with a snapshot of the part of the
+         * tree which has been read so far. The snapshot does not share
+         * nodes with the tree which is being scanned. Directories which
+         * have not been read yet have no children.
+         */
+        public void snapshotAvailable(FileNode snapshot);
+    }
+    /**
+     * Specifies how file attributes are read.
+     */
+    public enum Mode {
+
+        /**
+         * Uses {@code java.io.File}. Each attribute is a separate system call.
+         */
+        IO_FILE,
+        /**
+         * Uses a {@code DirectoryStream} and reads all attributes of an entry
+         * at once.
+         */
+        NIO_ATTRIBUTES
+    }
+    /** Interval in milliseconds at which cancellation is checked. */
+    private final static long CANCEL_INTERVAL = 100;
+    private int parallelism;
+    private Mode mode = Mode.NIO_ATTRIBUTES;
+    private volatile boolean isCanceled;
+    private ProgressSampler sampler;
+    /**
+     * The children of the directories which have been read, or null if no
+     * snapshots are published.
+     */
+    private ConcurrentHashMap<FileNode, ArrayList<FileNode>> listings;
+
+    /**
+     * Creates a scanner which uses one thread per available processor.
+     */
+    public FileNodeScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a scanner with the specified number of threads.
+     *
+     * @param parallelism the number of threads, must be at least 1.
+     */
+    public FileNodeScanner(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism < 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setMode(Mode newValue) {
+        mode = newValue;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Scans the specified file and shows the progress in a
+     * {@link ProgressView}.
+     *
+     * @param file the root of the tree.
+     * @return the root node.
+     */
+    public FileNode scan(File file) {
+        ProgressObserver p = new ProgressView("Opening " + file.getName(), "", 0, 1);
+        p.setIndeterminate(true);
+        try {
+            return scan(p, file);
+        } finally {
+            p.close();
+        }
+    }
+
+    /**
+     * Scans the specified file and reports the progress to the specified
+     * progress observer.
+     *
+     * @param p    the progress observer.
+     * @param file the root of the tree.
+     * @return the root node.
+     */
+    public FileNode scan(ProgressObserver p, File file) {
+        return scan(p, file, 0, null, 0);
+    }
+
+    /**
+     * Scans the specified file, and publishes snapshots of the part which
+     * has been read so far at the specified interval.
+     * <p>
+     * Copying a snapshot takes time proportional to the number of nodes
+     * read so far. Therefore the interval is extended, so that no more
+     * than a fifth of the time is spent on snapshots.
+     *
+     * @param p        the progress observer.
+     * @param file     the root of the tree.
+     * @param l        the snapshot listener.
+     * @param interval the interval in milliseconds.
+     * @return the root node.
+     */
+    public FileNode scan(ProgressObserver p, File file, SnapshotListener l, long interval) {
+        return scan(p, file, 0, l, interval);
+    }
+
+    /**
+     * Scans a subtree which will be inserted at the specified depth into an
+     * existing tree.
+     *
+     * @param p     the progress observer.
+     * @param file  the root of the subtree.
+     * @param depth the depth of the root of the subtree.
+     * @return the root node of the subtree, or null if the file is hidden.
+     */
+    FileNode scan(ProgressObserver p, File file, int depth) {
+        return scan(p, file, depth, null, 0);
+    }
+
+    private FileNode scan(ProgressObserver p, File file, int depth, SnapshotListener l, long interval) {
+        isCanceled = false;
+        listings = (l == null) ? null : new ConcurrentHashMap<FileNode, ArrayList<FileNode>>();
+        sampler = new ProgressSampler(p);
+        sampler.addExpectedNodes(1);
+        sampler.start();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            final FileNode rootNode;
+            if (mode == Mode.NIO_ATTRIBUTES) {
+                Path path = file.toPath();
+                rootNode = createNode(depth, path, isDosFileSystem(path.getFileSystem()));
+            } else {
+                rootNode = (depth > 0 && file.isHidden()) ? null : createNode(depth, file);
+            }
+            sampler.incrementNodes();
+            if (rootNode == null) {
+                return (depth == 0) ? new FileNode(0, file, false, 0, 0) : null;
+            }
+            ForkJoinTask<FileNode> task = pool.submit((l == null) ? new ScanTask(rootNode) : new LevelScanTask(rootNode));
+            long lastSnapshot = System.currentTimeMillis();
+            long snapshotTime = 0;
+            while (true) {
+                try {
+                    return task.get(CANCEL_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (p.isCanceled()) {
+                        isCanceled = true;
+                    }
+                    long now = System.currentTimeMillis();
+                    if (l != null && now - lastSnapshot >= Math.max(interval, snapshotTime * 5)) {
+                        l.snapshotAvailable(copyListed(rootNode));
+                        lastSnapshot = System.currentTimeMillis();
+                        snapshotTime = lastSnapshot - now;
+                    }
+                } catch (InterruptedException e) {
+                    isCanceled = true;
+                    Thread.currentThread().interrupt();
+                    return task.join();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            pool.shutdown();
+            sampler.stop();
+            listings = null;
+        }
+    }
+
+    /**
+     * Copies a node and the published children of its descendants.
+     * <p>
+     * Only the values which are set by the constructor of a node are read,
+     * because the aggregated values of a directory are set by a worker
+     * thread while the copy is made. The listings map guarantees the
+     * visibility of the constructor values.
+     */
+    private FileNode copyListed(FileNode node) {
+        boolean isDir = node.getAllowsChildren();
+        FileNode copy = new FileNode(node.getDepth(), node.getFile(), isDir,
+                isDir ? 0 : node.getFileSize(), node.getLastModified());
+        ArrayList<FileNode> nodes = listings.get(node);
+        if (nodes != null) {
+            ArrayList<TreeNode> children = new ArrayList<TreeNode>(nodes.size());
+            for (FileNode child : nodes) {
+                children.add(copyListed(child));
+            }
+            copy.setChildren(children);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns true if the hidden flag is an attribute of the file. Linux
+     * supports a "dos" view too, but stores it in an extended attribute, so
+     * we only use it on file systems without a "posix" view.
+     */
+    static boolean isDosFileSystem(FileSystem fs) {
+        return fs.supportedFileAttributeViews().contains("dos")
+                && !fs.supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Returns true if the file is hidden. This does not access the file
+     * system, if the attributes have been read with
+     * {@link #readAttributes}.
+     */
+    static boolean isHidden(Path path, BasicFileAttributes attrs, boolean isDos) {
+        if (isDos) {
+            return ((DosFileAttributes) attrs).isHidden();
+        } else {
+            Path name = path.getFileName();
+            return name != null && name.toString().startsWith(".");
+        }
+    }
+
+    /**
+     * Creates a node using {@code java.io.File}.
+     */
+    private static FileNode createNode(int depth, File file) {
+        boolean isDir = file.isDirectory();
+        return new FileNode(depth, file, isDir, isDir ? 0 : file.length(), file.lastModified());
+    }
+
+    /**
+     * Creates a node using a single attribute read. Returns null if the
+     * file is hidden or its attributes can not be read.
+     */
+    static FileNode createNode(int depth, Path path, boolean isDos) {
+        BasicFileAttributes attrs;
+        boolean isBrokenLink = false;
+        try {
+            attrs = readAttributes(path, isDos);
+        } catch (IOException e) {
+            try {
+                // Broken symbolic link: describe the link itself.
+                attrs = readAttributes(path, isDos, LinkOption.NOFOLLOW_LINKS);
+                isBrokenLink = true;
+            } catch (IOException e2) {
+                return null;
+            }
+        }
+        if (depth > 0 && isHidden(path, attrs, isDos)) {
+            return null;
+        }
+        if (isBrokenLink) {
+            // java.io.File reports a length and time of 0 for broken links
+            return new FileNode(depth, path.toFile(), false, 0, 0);
+        }
+        boolean isDir = attrs.isDirectory();
+        return new FileNode(depth, path.toFile(), isDir, isDir ? 0 : attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    static BasicFileAttributes readAttributes(Path path, boolean isDos, LinkOption... options) throws IOException {
+        if (isDos) {
+            return Files.readAttributes(path, DosFileAttributes.class, options);
+        } else {
+            return Files.readAttributes(path, BasicFileAttributes.class, options);
+        }
+    }
+
+    /**
+     * Reads the children of a directory node, and publishes them if
+     * snapshots are published. Returns an empty list, if the scan has been
+     * canceled.
+     */
+    private ArrayList<FileNode> readChildren(FileNode node) {
+        if (isCanceled) {
+            return new ArrayList<FileNode>();
+        }
+        sampler.setItem(node.getName());
+        sampler.incrementDirectories();
+        ArrayList<FileNode> nodes = (mode == Mode.NIO_ATTRIBUTES) ? readDirectory(node) : listFiles(node);
+        if (listings != null) {
+            listings.put(node, nodes);
+        }
+        return nodes;
+    }
+
+    private static void setChildren(FileNode node, ArrayList<FileNode> nodes) {
+        ArrayList<TreeNode> children = new ArrayList<TreeNode>(nodes.size());
+        for (FileNode child : nodes) {
+            children.add(child);
+        }
+        node.setChildren(children);
+    }
+
+    private ArrayList<FileNode> listFiles(FileNode node) {
+        ArrayList<FileNode> nodes = new ArrayList<FileNode>();
+        File[] files = node.getFile().listFiles();
+        if (files == null) {
+            return nodes;
+        }
+        sampler.addExpectedNodes(files.length);
+        int depth = node.getDepth() + 1;
+        for (File f : files) {
+            if (!f.isHidden()) {
+                nodes.add(createNode(depth, f));
+            }
+            sampler.incrementNodes();
+        }
+        return nodes;
+    }
+
+    private ArrayList<FileNode> readDirectory(FileNode node) {
+        ArrayList<FileNode> nodes = new ArrayList<FileNode>();
+        Path dir = node.getFile().toPath();
+        boolean isDos = isDosFileSystem(dir.getFileSystem());
+        int depth = node.getDepth() + 1;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                sampler.addExpectedNodes(1);
+                FileNode child = createNode(depth, entry, isDos);
+                if (child != null) {
+                    nodes.add(child);
+                }
+                sampler.incrementNodes();
+            }
+        } catch (IOException | DirectoryIteratorException | SecurityException e) {
+            // Unreadable directories are shown as empty, as with File.listFiles().
+            nodes.clear();
+        }
+        return nodes;
+    }
+
+    /**
+     * Reads the children of a directory node and forks a task for each
+     * subdirectory.
+     */
+    private class ScanTask extends RecursiveTask<FileNode> {
+
+        private static final long serialVersionUID = 1L;
+        private FileNode node;
+
+        public ScanTask(FileNode node) {
+            this.node = node;
+        }
+
+        @Override
+        protected FileNode compute() {
+            if (!node.getAllowsChildren() || isCanceled) {
+                return node;
+            }
+            ArrayList<FileNode> nodes = readChildren(node);
+
+            // Leaves are complete, directories are forked. The order of the
+            // nodes is preserved.
+            ArrayList<ScanTask> tasks = new ArrayList<ScanTask>();
+            for (FileNode child : nodes) {
+                if (child.getAllowsChildren()) {
+                    tasks.add(new ScanTask(child));
+                }
+            }
+            invokeAll(tasks);
+
+            setChildren(node, nodes);
+            return node;
+        }
+    }
+
+    /**
+     * Reads the directories level by level, so that the snapshots show the
+     * top levels of the tree first. The directories of a level are read
+     * concurrently. When all levels have been read, the children of the
+     * directories are set from the deepest level up, so that the sizes of
+     * the subdirectories are complete when a directory sums them up.
+     */
+    private class LevelScanTask extends RecursiveTask<FileNode> {
+
+        private static final long serialVersionUID = 1L;
+        private FileNode root;
+
+        public LevelScanTask(FileNode root) {
+            this.root = root;
+        }
+
+        @Override
+        protected FileNode compute() {
+            ArrayList<ArrayList<ListTask>> levels = new ArrayList<ArrayList<ListTask>>();
+            ArrayList<FileNode> directories = new ArrayList<FileNode>();
+            if (root.getAllowsChildren()) {
+                directories.add(root);
+            }
+            while (!directories.isEmpty()) {
+                ArrayList<ListTask> tasks = new ArrayList<ListTask>(directories.size());
+                for (FileNode directory : directories) {
+                    tasks.add(new ListTask(directory));
+                }
+                invokeAll(tasks);
+                levels.add(tasks);
+
+                // The directories of the next level, in the order of the tree
+                directories = new ArrayList<FileNode>();
+                for (ListTask task : tasks) {
+                    for (FileNode child : task.nodes) {
+                        if (child.getAllowsChildren()) {
+                            directories.add(child);
+                        }
+                    }
+                }
+            }
+            for (int i = levels.size() - 1; i >= 0; i--) {
+                for (ListTask task : levels.get(i)) {
+                    setChildren(task.node, task.nodes);
+                }
+            }
+            return root;
+        }
+    }
+
+    /**
+     * Reads the children of a single directory node.
+     */
+    private class ListTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private FileNode node;
+        private ArrayList<FileNode> nodes;
+
+        public ListTask(FileNode node) {
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            nodes = readChildren(node);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * @(#)FileTreeNode.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.tree.TreeNode;
+import java.io.File;
+
+/**
+ * A node of a file system tree.
+ * <p>
+ * {@link FileNodeInfo} and the weighters of the file system demo work with
+ * this interface, so that they can be used with {@link FileNode} as well as
+ * with the flyweight nodes of {@link CompactFileTree}.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public interface FileTreeNode extends TreeNode {
+
+    /**
+     * Returns the name of the file.
+     */
+    public String getName();
+
+    /**
+     * Returns the file represented by this node.
+     */
+    public File getFile();
+
+    /**
+     * Returns the size of the file, or the cumulated size of all files
+     * contained in a directory.
+     */
+    public long getFileSize();
+
+    /**
+     * Returns the last modification time of the file.
+     */
+    public long getLastModified();
+
+    /**
+     * Returns the number of descendants of this node.
+     */
+    public int getDescendantCount();
+}
@@ -0,0 +1,336 @@
+/*
+ * @(#)FileTreeWatcher.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.gui.ProgressTracker;
+import ch.randelshofer.tree.TreeNode;
+import ch.randelshofer.tree.TreePath2;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+
+/**
+ * Keeps a tree of {@link FileNode}s up to date with the file system.
+ * <p>
+ * Every directory of the tree is registered with a {@link WatchService}.
+ * When a directory reports events, it is marked as dirty. Once no events
+ * have arrived for a short while, each dirty directory is listed again and
+ * compared with its children: new entries are scanned, missing entries are
+ * removed, and files whose size or modification time have changed are
+ * updated. Size and descendant count differences are propagated up to the
+ * root by {@link FileNode}.
+ * <p>
+ * The file system is read on the watcher thread. The tree is patched on
+ * the AWT event dispatch thread, after which the listeners are informed
+ * about the paths of the directories whose children have changed.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public class FileTreeWatcher {
+
+    /**
+     * Is informed on the event dispatch thread when the tree has been patched.
+     */
+    public interface Listener {
+
+        /**
+         * Invoked after the children of the specified directories have
+         * changed.
+         */
+        public void subtreesChanged(FileTreeWatcher source, List<TreePath2<TreeNode>> changedDirectories);
+    }
+    /** Time in milliseconds without events, before changes are applied. */
+    private final static long QUIET_PERIOD = 300;
+    /** Maximal time in milliseconds that changes are held back. */
+    private final static long MAX_DELAY = 2000;
+    private FileNode root;
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean isStopped;
+    private HashMap<WatchKey, FileNode> directories = new HashMap<WatchKey, FileNode>();
+    private HashMap<FileNode, WatchKey> keys = new HashMap<FileNode, WatchKey>();
+    private LinkedHashSet<FileNode> dirty = new LinkedHashSet<FileNode>();
+    private ArrayList<Listener> listeners = new ArrayList<Listener>();
+    private boolean isRegisterFailureReported;
+
+    /** Creates a new instance. */
+    public FileTreeWatcher(FileNode root) {
+        this.root = root;
+    }
+
+    public void addListener(Listener l) {
+        listeners.add(l);
+    }
+
+    public void removeListener(Listener l) {
+        listeners.remove(l);
+    }
+
+    /**
+     * Starts watching the tree.
+     */
+    public void start() throws IOException {
+        watchService = root.getFile().toPath().getFileSystem().newWatchService();
+        thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                FileTreeWatcher.this.run();
+            }
+        }, "FileTreeWatcher " + root.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the tree.
+     */
+    public void stop() {
+        isStopped = true;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // we are not interested in this exception
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            register(root);
+            long firstDirtyTime = 0;
+            while (!isStopped) {
+                WatchKey key;
+                if (dirty.isEmpty()) {
+                    key = watchService.take();
+                    firstDirtyTime = System.currentTimeMillis();
+                } else {
+                    key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+                }
+                if (key != null) {
+                    FileNode dir = directories.get(key);
+                    // We only need to know which directory has changed.
+                    // Its children are compared with the file system later.
+                    key.pollEvents();
+                    if (dir != null) {
+                        dirty.add(dir);
+                        if (!key.reset()) {
+                            directories.remove(key);
+                            keys.remove(dir);
+                            if (dir.getParent() != null) {
+                                dirty.add(dir.getParent());
+                            }
+                        }
+                    }
+                }
+                if (!dirty.isEmpty() && (key == null
+                        || System.currentTimeMillis() - firstDirtyTime > MAX_DELAY)) {
+                    applyChanges();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // we have been stopped
+        } catch (InterruptedException e) {
+            // we have been stopped
+        }
+    }
+
+    /**
+     * Registers the specified directory and all its subdirectories.
+     */
+    private void register(FileNode node) {
+        if (!node.getAllowsChildren() || isStopped) {
+            return;
+        }
+        try {
+            WatchKey key = node.getFile().toPath().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            directories.put(key, node);
+            keys.put(node, key);
+        } catch (IOException e) {
+            if (!isRegisterFailureReported) {
+                isRegisterFailureReported = true;
+                System.err.println("FileTreeWatcher can not watch " + node.getFile() + ": " + e);
+            }
+        }
+        for (TreeNode child : node.children()) {
+            register((FileNode) child);
+        }
+    }
+
+    /**
+     * Unregisters the specified directory and all its subdirectories.
+     */
+    private void unregister(FileNode node) {
+        WatchKey key = keys.remove(node);
+        if (key != null) {
+            key.cancel();
+            directories.remove(key);
+        }
+        dirty.remove(node);
+        for (TreeNode child : node.children()) {
+            unregister((FileNode) child);
+        }
+    }
+
+    private void applyChanges() throws InterruptedException {
+        final ArrayList<DirectoryChange> changes = new ArrayList<DirectoryChange>();
+        for (FileNode dir : dirty) {
+            DirectoryChange change = compare(dir);
+            if (!change.isEmpty()) {
+                changes.add(change);
+            }
+        }
+        dirty.clear();
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        try {
+            SwingUtilities.invokeAndWait(new Runnable() {
+
+                @Override
+                public void run() {
+                    ArrayList<TreePath2<TreeNode>> paths = new ArrayList<TreePath2<TreeNode>>();
+                    for (DirectoryChange change : changes) {
+                        if (isAttached(change.directory)) {
+                            change.apply();
+                            paths.add(change.directory.getPath());
+                        }
+                    }
+                    if (!paths.isEmpty()) {
+                        for (Listener l : new ArrayList<Listener>(listeners)) {
+                            l.subtreesChanged(FileTreeWatcher.this, paths);
+                        }
+                    }
+                }
+            });
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+        }
+
+        for (DirectoryChange change : changes) {
+            for (FileNode n : change.removed) {
+                unregister(n);
+            }
+            for (FileNode n : change.added) {
+                register(n);
+            }
+        }
+    }
+
+    private boolean isAttached(FileNode node) {
+        FileNode n = node;
+        while (n.getParent() != null) {
+            n = n.getParent();
+        }
+        return n == root;
+    }
+
+    /**
+     * Lists the specified directory and compares the entries with the
+     * children of the node.
+     */
+    private DirectoryChange compare(FileNode dir) {
+        DirectoryChange change = new DirectoryChange(dir);
+        HashMap<String, FileNode> existing = new HashMap<String, FileNode>();
+        for (TreeNode c : dir.children()) {
+            FileNode child = (FileNode) c;
+            existing.put(child.getName(), child);
+        }
+
+        Path dirPath = dir.getFile().toPath();
+        boolean isDos = FileNodeScanner.isDosFileSystem(dirPath.getFileSystem());
+        int depth = dir.getDepth() + 1;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath)) {
+            for (Path entry : stream) {
+                FileNode fresh = FileNodeScanner.createNode(depth, entry, isDos);
+                if (fresh == null) {
+                    continue;
+                }
+                FileNode old = existing.remove(fresh.getName());
+                if (old == null || old.getAllowsChildren() != fresh.getAllowsChildren()) {
+                    if (old != null) {
+                        change.removed.add(old);
+                    }
+                    if (fresh.getAllowsChildren()) {
+                        fresh = new FileNodeScanner().scan(new ProgressTracker("Watching", ""), fresh.getFile(), depth);
+                    }
+                    if (fresh != null) {
+                        change.added.add(fresh);
+                    }
+                } else if (old.getLastModified() != fresh.getLastModified()
+                        || !old.getAllowsChildren() && old.getFileSize() != fresh.getFileSize()) {
+                    change.changed.add(old);
+                    change.fresh.add(fresh);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException | SecurityException e) {
+            // The directory is gone or unreadable: it has no children anymore.
+            change = new DirectoryChange(dir);
+            for (TreeNode c : dir.children()) {
+                change.removed.add((FileNode) c);
+            }
+            return change;
+        }
+        change.removed.addAll(existing.values());
+        return change;
+    }
+
+    /**
+     * Describes how the children of a directory differ from the file system.
+     */
+    private static class DirectoryChange {
+
+        private FileNode directory;
+        private ArrayList<FileNode> added = new ArrayList<FileNode>();
+        private ArrayList<FileNode> removed = new ArrayList<FileNode>();
+        private ArrayList<FileNode> changed = new ArrayList<FileNode>();
+        private ArrayList<FileNode> fresh = new ArrayList<FileNode>();
+
+        public DirectoryChange(FileNode directory) {
+            this.directory = directory;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+
+        public void apply() {
+            for (FileNode n : removed) {
+                directory.childRemoved(n);
+            }
+            for (FileNode n : added) {
+                directory.childAdded(n);
+            }
+            for (int i = 0, n = changed.size(); i < n; i++) {
+                changed.get(i).fileChanged(fresh.get(i).getFileSize(), fresh.get(i).getLastModified());
+            }
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * @(#)LastModifiedByYearWeighter.java  1.0  2010-01-11
+ * @(#)LastModifiedByYearWeighter.java  1.2  2026-10-18
  * 
  * Copyright (c) 2010 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -13,8 +13,7 @@ package ch.randelshofer.tree.demo;
 
 import ch.randelshofer.tree.TreeNode;
 import ch.randelshofer.tree.TreePath2;
-import java.util.ArrayList;
-import java.util.Collections;
+import ch.randelshofer.tree.TreeStatistics;
 import java.util.Date;
 import java.util.GregorianCalendar;
 
@@ -22,7 +21,10 @@ import java.util.GregorianCalendar;
  * LastModifiedByYearWeighter.
  *
  * @author Werner Randelshofer
- * @version 1.0 2010-01-11 Created.
+ * @version 1.2 2026-10-18 Counts the years with the ranks of the sorted
+ * dates instead of walking the tree again.
+ * <br>1.1 2026-10-18 Works with FileTreeNode instead of FileNode.
+ * <br>1.0 2010-01-11 Created.
  */
 public class LastModifiedByYearWeighter extends LastModifiedWeighter {
     protected int minYear;
@@ -33,17 +35,11 @@ private GregorianCalendar cal=new GregorianCalendar();
     public void init(TreeNode root) {
         min = Long.MAX_VALUE;
         max = Long.MIN_VALUE;
-        ArrayList<Long> dates = new ArrayList<Long>();
-        collectDatesRecursive(root, dates);
-        Collections.sort(dates);
-        if (dates.size() > 0) {
-            min = dates.get(0);
-            max = dates.get(dates.size() - 1);
-            median = dates.get(dates.size() / 2);
-        }
-//        new Date(min)
-//        medianRecursive(root, valueList);
-        if (dates.size() > 0) {
+        TreeStatistics stats = createStatistics(root);
+        if (stats.getCount() > 0) {
+            min = stats.getMin();
+            max = stats.getMax();
+            median = stats.getMedian();
 cal.setTimeInMillis(min);
 minYear=cal.get(GregorianCalendar.YEAR);
 cal.setTimeInMillis(max);
@@ -51,26 +47,23 @@ maxYear=cal.get(GregorianCalendar.YEAR);
 cal.setTimeInMillis(median);
 medianYear=cal.get(GregorianCalendar.YEAR);
 
+            // The values are sorted, so the number of values in a year is
+            // the difference of the ranks of the first days of two years.
             histogram = new int[maxYear-minYear+1];
-            histogramRecursive(root); // XXX - Could be done without recursion, because we got all values now
+            cal.clear();
+            cal.set(minYear, GregorianCalendar.JANUARY, 1);
+            int rank = stats.getRank(cal.getTimeInMillis());
+            for (int i = 0; i < histogram.length; i++) {
+                cal.set(minYear + i + 1, GregorianCalendar.JANUARY, 1);
+                int nextRank = stats.getRank(cal.getTimeInMillis());
+                histogram[i] = nextRank - rank;
+                rank = nextRank;
+            }
         } else {
             histogram = new int[1];
             histogram[0] = 1;
         }
     }
-    protected void histogramRecursive(TreeNode root) {
-        FileNode fn = (FileNode) root;
-        long lastModified = fn.getLastModified();
-cal.setTimeInMillis(lastModified);
-int lmYear=cal.get(GregorianCalendar.YEAR);
-
-        int index = lmYear-minYear;
-        histogram[index]++;
-
-        for (TreeNode child : root.children()) {
-            histogramRecursive(child);
-        }
-    }
     @Override
     public float getMedianWeight() {
         return (float) ((medianYear - minYear) /
@@ -79,7 +72,7 @@ int lmYear=cal.get(GregorianCalendar.YEAR);
     @Override
     public float getWeight(TreePath2 path) {
         TreeNode node = (TreeNode) path.getLastPathComponent();
-        FileNode fn = (FileNode) node;
+        FileTreeNode fn = (FileTreeNode) node;
         long lastModified = fn.getLastModified();
 cal.setTimeInMillis(lastModified);
 int lmYear=cal.get(GregorianCalendar.YEAR);
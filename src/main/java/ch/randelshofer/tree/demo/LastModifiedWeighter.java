@@ -1,5 +1,5 @@
 /*
- * @(#)LastModifiedWeighter.java  2.0  2008-01-27
+ * @(#)LastModifiedWeighter.java  2.2  2026-10-18
  *
  * Copyright (c) 2007-2008 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -12,20 +12,21 @@ package ch.randelshofer.tree.demo;
 
 import ch.randelshofer.tree.TreeNode;
 import ch.randelshofer.tree.TreePath2;
+import ch.randelshofer.tree.TreeStatistics;
 import ch.randelshofer.tree.Weighter;
 import ch.randelshofer.text.FileSizeFormat;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 
 /**
  * LastModifiedWeighter.
  *
  * @author Werner Randelshofer
- * @version 2.0 2008-01-27 Added computation and drawing of histogram. 
+ * @version 2.2 2026-10-18 Collects the dates with a parallel tree reduction.
+ * <br>2.1 2026-10-18 Works with FileTreeNode instead of FileNode.
+ * <br>2.0 2008-01-27 Added computation and drawing of histogram. 
  * <br>1.0 September 26, 2007 Created.
  */
 public class LastModifiedWeighter implements Weighter {
@@ -46,7 +47,7 @@ public class LastModifiedWeighter implements Weighter {
 
     public float getWeight(TreePath2 path) {
         TreeNode node = (TreeNode) path.getLastPathComponent();
-        FileNode fn = (FileNode) node;
+        FileTreeNode fn = (FileTreeNode) node;
         long lastModified = fn.getLastModified();
 
         return (float) ((lastModified - min) /
@@ -61,43 +62,32 @@ public class LastModifiedWeighter implements Weighter {
     public void init(TreeNode root) {
         min = Long.MAX_VALUE;
         max = Long.MIN_VALUE;
-        ArrayList<Long> dates = new ArrayList<Long>();
-        collectDatesRecursive(root, dates);
-        Collections.sort(dates);
-        if (dates.size() > 0) {
-            min = dates.get(0);
-            max = dates.get(dates.size() - 1);
-            median = dates.get(dates.size() / 2);
-        }
-//        medianRecursive(root, valueList);
-        if (dates.size() > 0) {
-            histogram = new int[256];
-            histogramRecursive(root); // XXX - Could be done without recursion, because we got all values now
+        TreeStatistics stats = createStatistics(root);
+        if (stats.getCount() > 0) {
+            min = stats.getMin();
+            max = stats.getMax();
+            median = stats.getMedian();
+            histogram = stats.getHistogram(256);
         } else {
             histogram = new int[1];
             histogram[0] = 1;
         }
     }
 
-    protected void collectDatesRecursive(TreeNode node, java.util.List<Long> dates) {
-        FileNode fn = (FileNode) node;
-        long lastModified = fn.getLastModified();
-        dates.add(lastModified);
-        for (TreeNode child : node.children()) {
-            collectDatesRecursive((TreeNode) child, dates);
-        }
-    }
+    /**
+     * Collects the last modification dates of all nodes.
+     */
+    protected TreeStatistics createStatistics(TreeNode root) {
+        return new TreeStatistics(root, new TreeStatistics.Extractor() {
 
-    protected void histogramRecursive(TreeNode root) {
-        FileNode fn = (FileNode) root;
-        long lastModified = fn.getLastModified();
-
-        int index = Math.min(histogram.length - 1, Math.max(0, (int) ((lastModified - min) * (histogram.length - 1) / (double) (max - min))));
-        histogram[index]++;
+            public boolean hasValue(TreeNode node) {
+                return true;
+            }
 
-        for (TreeNode child : root.children()) {
-            histogramRecursive(child);
-        }
+            public long getValue(TreeNode node) {
+                return ((FileTreeNode) node).getLastModified();
+            }
+        });
     }
 
     public int[] getHistogram() {
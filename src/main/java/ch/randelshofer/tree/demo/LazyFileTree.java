@@ -0,0 +1,450 @@
+/*
+ * @(#)LazyFileTree.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.tree.NodeInfo;
+import ch.randelshofer.tree.TreeNode;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.EventListenerList;
+
+/**
+ * A file system tree which reads directories on demand.
+ * <p>
+ * Only directories above the visible depth show their children. A directory
+ * is read when its children are requested for the first time, and the
+ * directories one level below the visible depth are read ahead of time by a
+ * background thread. Thus, browsing the top of a huge file system does not
+ * require reading all of it, and increasing the visible depth by one level
+ * is instant.
+ * <p>
+ * The sizes and descendant counts of directories which have not been read
+ * yet are estimated by low priority background threads, which walk the
+ * directory and add their findings to the node and its ancestors as they go.
+ * When a directory is read, its estimate is replaced by the values of its
+ * children.
+ * <p>
+ * Change listeners are informed on the AWT event dispatch thread, at most
+ * once per {@link #CHANGE_INTERVAL}, when the tree or the estimates have
+ * changed.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public class LazyFileTree implements DemoTree {
+
+    /** Minimal interval in milliseconds between change events. */
+    public final static int CHANGE_INTERVAL = 2000;
+    /** Number of entries after which an estimating thread reports. */
+    private final static int ESTIMATE_BATCH = 1024;
+    private Node root;
+    private volatile int visibleDepth;
+    private boolean isDos;
+    /** Guards the cumulated sizes and descendant counts of all nodes. */
+    private final Object lock = new Object();
+    private ExecutorService prefetcher;
+    private ExecutorService estimator;
+    private volatile boolean isChanged;
+    private volatile boolean isDisposed;
+    private Timer timer;
+    private EventListenerList listenerList = new EventListenerList();
+    private NodeInfo info;
+
+    /**
+     * Creates a lazy tree for the specified directory.
+     *
+     * @param rootFile the directory.
+     * @param visibleDepth the number of levels below the root which show
+     * their children.
+     */
+    public LazyFileTree(File rootFile, int visibleDepth) {
+        this.visibleDepth = Math.max(1, visibleDepth);
+        Path rootPath = rootFile.toPath();
+        isDos = FileNodeScanner.isDosFileSystem(rootPath.getFileSystem());
+        long lastModified = rootFile.lastModified();
+        root = new Node(null, rootFile, 0, rootFile.isDirectory(), rootFile.isDirectory() ? 0 : rootFile.length(), lastModified);
+
+        prefetcher = Executors.newFixedThreadPool(2, new DaemonThreadFactory("LazyFileTree prefetch", Thread.NORM_PRIORITY));
+        estimator = Executors.newFixedThreadPool(2, new DaemonThreadFactory("LazyFileTree estimate", Thread.MIN_PRIORITY));
+        timer = new Timer(CHANGE_INTERVAL, new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (isChanged) {
+                    isChanged = false;
+                    fireStateChanged();
+                }
+            }
+        });
+        timer.start();
+
+        root.expand();
+    }
+
+    /**
+     * Sets the number of levels below the root which show their children.
+     * Directories down to one level below are read in the background.
+     */
+    public void setVisibleDepth(int newValue) {
+        visibleDepth = Math.max(1, newValue);
+        isChanged = true;
+        execute(prefetcher, new Runnable() {
+
+            @Override
+            public void run() {
+                prefetch(root);
+            }
+        });
+    }
+
+    public int getVisibleDepth() {
+        return visibleDepth;
+    }
+
+    /**
+     * Reads all directories down to one level below the visible depth.
+     */
+    private void prefetch(Node node) {
+        if (isDisposed || !node.isDirectory || node.depth > visibleDepth) {
+            return;
+        }
+        for (TreeNode child : node.expand()) {
+            prefetch((Node) child);
+        }
+    }
+
+    /**
+     * Stops all background threads. The tree can still be browsed, but no
+     * more directories are read.
+     */
+    public void dispose() {
+        isDisposed = true;
+        timer.stop();
+        prefetcher.shutdownNow();
+        estimator.shutdownNow();
+    }
+
+    public void addChangeListener(ChangeListener l) {
+        listenerList.add(ChangeListener.class, l);
+    }
+
+    public void removeChangeListener(ChangeListener l) {
+        listenerList.remove(ChangeListener.class, l);
+    }
+
+    protected void fireStateChanged() {
+        ChangeEvent event = null;
+        Object[] listeners = listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == ChangeListener.class) {
+                if (event == null) {
+                    event = new ChangeEvent(this);
+                }
+                ((ChangeListener) listeners[i + 1]).stateChanged(event);
+            }
+        }
+    }
+
+    @Override
+    public FileTreeNode getRoot() {
+        return root;
+    }
+
+    @Override
+    public NodeInfo getInfo() {
+        if (info == null) {
+            info = new FileNodeInfo();
+        }
+        return info;
+    }
+
+    /**
+     * Adds size and descendant differences to a node and all its ancestors.
+     * Must be called while holding the lock.
+     */
+    private void propagate(Node node, long sizeDelta, int descendantsDelta) {
+        for (Node n = node; n != null; n = n.parent) {
+            n.size += sizeDelta;
+            n.descendants += descendantsDelta;
+        }
+        isChanged = true;
+    }
+
+    private void scheduleEstimate(final Node node) {
+        execute(estimator, new Runnable() {
+
+            @Override
+            public void run() {
+                node.estimate();
+            }
+        });
+    }
+
+    /**
+     * Executes a task, unless the tree has been disposed.
+     */
+    private void execute(ExecutorService executor, Runnable r) {
+        if (!isDisposed) {
+            try {
+                executor.execute(r);
+            } catch (RejectedExecutionException e) {
+                // the tree has been disposed in the meantime
+            }
+        }
+    }
+
+    /**
+     * Creates daemon threads with the specified priority.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private String name;
+        private int priority;
+
+        public DaemonThreadFactory(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            t.setPriority(priority);
+            return t;
+        }
+    }
+
+    /**
+     * A node of the lazy tree.
+     */
+    private class Node implements FileTreeNode {
+
+        private final Node parent;
+        private final File file;
+        private final int depth;
+        private final boolean isDirectory;
+        private final long lastModified;
+        /** The children, or null if the directory has not been read yet. */
+        private volatile List<TreeNode> children;
+        /** Cumulated size. Guarded by lock. */
+        private volatile long size;
+        /** Cumulated descendant count. Guarded by lock. */
+        private volatile int descendants;
+        /** Estimated size of an unread directory. Guarded by lock. */
+        private long estimatedSize;
+        /** Estimated descendant count of an unread directory. Guarded by lock. */
+        private int estimatedDescendants;
+
+        public Node(Node parent, File file, int depth, boolean isDirectory, long size, long lastModified) {
+            this.parent = parent;
+            this.file = file;
+            this.depth = depth;
+            this.isDirectory = isDirectory;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public List<TreeNode> children() {
+            if (!isDirectory || depth >= visibleDepth) {
+                return Collections.emptyList();
+            }
+            return expand();
+        }
+
+        /**
+         * Reads the directory if this has not been done yet, and returns
+         * its children.
+         */
+        private synchronized List<TreeNode> expand() {
+            if (children != null) {
+                return children;
+            }
+            if (!isDirectory) {
+                return children = Collections.emptyList();
+            }
+            ArrayList<TreeNode> list = new ArrayList<TreeNode>();
+            long childrenSize = 0;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(file.toPath())) {
+                for (Path path : stream) {
+                    FileNode n = FileNodeScanner.createNode(depth + 1, path, isDos);
+                    if (n != null) {
+                        Node child = new Node(this, n.getFile(), depth + 1, n.getAllowsChildren(), n.getFileSize(), n.getLastModified());
+                        childrenSize += child.size;
+                        list.add(child);
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException | SecurityException e) {
+                // Unreadable directories are shown as empty, as with File.listFiles().
+                list.clear();
+                childrenSize = 0;
+            }
+            synchronized (lock) {
+                children = Collections.unmodifiableList(list);
+                propagate(this, childrenSize - estimatedSize, list.size() - estimatedDescendants);
+                estimatedSize = 0;
+                estimatedDescendants = 0;
+            }
+            for (TreeNode c : list) {
+                final Node child = (Node) c;
+                if (child.isDirectory) {
+                    scheduleEstimate(child);
+                    if (child.depth <= visibleDepth) {
+                        execute(prefetcher, new Runnable() {
+
+                            @Override
+                            public void run() {
+                                if (!isDisposed) {
+                                    child.expand();
+                                }
+                            }
+                        });
+                    }
+                }
+            }
+            return children;
+        }
+
+        /**
+         * Walks the directory and adds the sizes and the number of its
+         * files to the estimate. Stops as soon as the directory has been
+         * read.
+         */
+        private void estimate() {
+            if (children != null || isDisposed) {
+                return;
+            }
+            final Path start = file.toPath();
+            try {
+                // Follow links like FileNodeScanner does. Loops are reported
+                // to visitFileFailed.
+                Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+
+                    private long batchSize;
+                    private int batchCount;
+
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        if (!dir.equals(start) && FileNodeScanner.isHidden(dir, attrs, isDos)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        if (!dir.equals(start)) {
+                            batchCount++;
+                        }
+                        return flush();
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) {
+                        if (!FileNodeScanner.isHidden(f, attrs, isDos)) {
+                            batchSize += attrs.size();
+                            batchCount++;
+                        }
+                        return flush();
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path f, IOException e) {
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                        if (dir.equals(start)) {
+                            return flush(true);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    private FileVisitResult flush() {
+                        return flush(false);
+                    }
+
+                    private FileVisitResult flush(boolean force) {
+                        if (!force && batchCount < ESTIMATE_BATCH) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        synchronized (lock) {
+                            if (children != null || isDisposed) {
+                                return FileVisitResult.TERMINATE;
+                            }
+                            estimatedSize += batchSize;
+                            estimatedDescendants += batchCount;
+                            propagate(Node.this, batchSize, batchCount);
+                        }
+                        batchSize = 0;
+                        batchCount = 0;
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                // we keep the estimate that we have got so far
+            }
+        }
+
+        @Override
+        public boolean getAllowsChildren() {
+            return isDirectory;
+        }
+
+        @Override
+        public String getName() {
+            return file.getName();
+        }
+
+        @Override
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public long getFileSize() {
+            return size;
+        }
+
+        @Override
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public int getDescendantCount() {
+            return descendants;
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * @(#)Main.java  1.1.1  2011-08-19
+ * @(#)Main.java  1.4  2026-10-18
  *
  * Copyright (c) 2007-2011 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -10,6 +10,7 @@
  */
 package ch.randelshofer.tree.demo;
 
+import ch.randelshofer.gui.ProgressObserver;
 import ch.randelshofer.gui.ProgressView;
 import ch.randelshofer.tree.*;
 import ch.randelshofer.tree.hypertree.HyperTree;
@@ -25,6 +26,8 @@ import ch.randelshofer.util.prefs.PreferencesUtil2;
 import java.awt.*;
 import java.awt.datatransfer.*;
 import java.awt.dnd.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.awt.print.PageFormat;
@@ -41,6 +44,8 @@ import javax.print.attribute.HashPrintRequestAttributeSet;
 import javax.print.attribute.PrintRequestAttributeSet;
 import javax.print.attribute.standard.PrinterResolution;
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.table.DefaultTableCellRenderer;
@@ -49,7 +54,13 @@ import javax.swing.table.TableModel;
 /**
  *
  * @author werni
- * @version 1.1.1 2011-08-19 Shows an error dialog when the tree structure could
+ * @version 1.4 2026-10-18 Opens .tsv and .csv files as ManyEyes trees.
+ * <br>1.3 2026-10-18 ManyEyes files can be pivoted with a
+ * {@link ManyEyesPivotPanel}.
+ * <br>1.2 2026-10-18 Directories can be read into a CompactFileTree,
+ * can be watched for changes, and can be saved as snapshots. Shows partial
+ * directory trees while they are being read, or reads them lazily.
+ * <br>1.1.1 2011-08-19 Shows an error dialog when the tree structure could
  * not be created. <br>1.0.1 2009-01-28 Fixed tooltip enabling. <br>1.0
  * 2007-09-16 Created.
  */
@@ -61,6 +72,26 @@ public class Main extends javax.swing.JFrame {
     private File rootFile;
     private TreeNode rootNode;
     private Preferences prefs;
+    private JCheckBoxMenuItem compactFileTreeRadio;
+    private JCheckBoxMenuItem liveUpdateRadio;
+    private JCheckBoxMenuItem lazyFileTreeRadio;
+    /** The current lazy directory tree, or null. */
+    private LazyFileTree lazyTree;
+    /** Number of levels that are initially shown of a lazy directory tree. */
+    private final static int LAZY_VISIBLE_DEPTH = 2;
+    private FileTreeWatcher watcher;
+    /** Interval in milliseconds at which partial directory trees are shown. */
+    private final static long SNAPSHOT_INTERVAL = 1000;
+    /** Incremented each time a directory is opened. */
+    private int scanGeneration;
+    /** Number of view models which are being built. */
+    private int pendingViewUpdates;
+    /** The pivot panel of the current ManyEyes tree, or null. */
+    private ManyEyesPivotPanel pivotPanel;
+    /** True while a ManyEyes tree is being pivoted. */
+    private boolean isPivoting;
+    /** The path indices of the next pivot, or null. */
+    private int[] nextPivot;
     private NodeInfo info;
     private DropTargetListener dropHandler = new DropTargetListener() {
         /**
@@ -198,6 +229,73 @@ public class Main extends javax.swing.JFrame {
         multilineLabelsRadio.setSelected(prefs.getBoolean("multilineLabels", false));
         toolTipEnabledRadio.setSelected(prefs.getBoolean("toolTipEnabled", true));
 
+        compactFileTreeRadio = new JCheckBoxMenuItem("Compact Directory Trees");
+        compactFileTreeRadio.setSelected(prefs.getBoolean("compactFileTree", false));
+        compactFileTreeRadio.addActionListener(new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                prefs.putBoolean("compactFileTree", compactFileTreeRadio.isSelected());
+            }
+        });
+        fileMenu.insert(compactFileTreeRadio, 1);
+
+        liveUpdateRadio = new JCheckBoxMenuItem("Live Directory Updates");
+        liveUpdateRadio.setSelected(prefs.getBoolean("liveUpdate", false));
+        liveUpdateRadio.addActionListener(new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                prefs.putBoolean("liveUpdate", liveUpdateRadio.isSelected());
+                if (liveUpdateRadio.isSelected()) {
+                    startWatcher();
+                } else {
+                    stopWatcher();
+                }
+            }
+        });
+        fileMenu.insert(liveUpdateRadio, 2);
+
+        lazyFileTreeRadio = new JCheckBoxMenuItem("Lazy Directory Trees");
+        lazyFileTreeRadio.setSelected(prefs.getBoolean("lazyFileTree", false));
+        lazyFileTreeRadio.addActionListener(new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                prefs.putBoolean("lazyFileTree", lazyFileTreeRadio.isSelected());
+            }
+        });
+        fileMenu.insert(lazyFileTreeRadio, 3);
+
+        JMenuItem moreLevelsMenuItem = new JMenuItem("Show More Levels");
+        moreLevelsMenuItem.addActionListener(new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                changeLazyTreeDepth(1);
+            }
+        });
+        viewMenu.add(moreLevelsMenuItem);
+        JMenuItem fewerLevelsMenuItem = new JMenuItem("Show Fewer Levels");
+        fewerLevelsMenuItem.addActionListener(new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                changeLazyTreeDepth(-1);
+            }
+        });
+        viewMenu.add(fewerLevelsMenuItem);
+
+        JMenuItem saveSnapshotMenuItem = new JMenuItem("Save Snapshot…");
+        saveSnapshotMenuItem.addActionListener(new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                saveSnapshot();
+            }
+        });
+        fileMenu.insert(saveSnapshotMenuItem, fileMenu.getMenuComponentCount() - 1);
+
         updateMaxDepth();
 
         new DropTarget(this, dropHandler);
@@ -296,8 +394,10 @@ public class Main extends javax.swing.JFrame {
             @Override
             public void finished() {
                 p.close();
+                pendingViewUpdates--;
             }
         };
+        pendingViewUpdates++;
         worker.start();
     }
 
@@ -342,8 +442,10 @@ public class Main extends javax.swing.JFrame {
             @Override
             public void finished() {
                 p.close();
+                pendingViewUpdates--;
             }
         };
+        pendingViewUpdates++;
         worker.start();
     }
 
@@ -388,8 +490,10 @@ public class Main extends javax.swing.JFrame {
             @Override
             public void finished() {
                 p.close();
+                pendingViewUpdates--;
             }
         };
+        pendingViewUpdates++;
         worker.start();
     }
 
@@ -438,8 +542,10 @@ public class Main extends javax.swing.JFrame {
             @Override
             public void finished() {
                 p.close();
+                pendingViewUpdates--;
             }
         };
+        pendingViewUpdates++;
         worker.start();
     }
 
@@ -507,8 +613,10 @@ public class Main extends javax.swing.JFrame {
             @Override
             public void finished() {
                 p.close();
+                pendingViewUpdates--;
             }
         };
+        pendingViewUpdates++;
         worker.start();
     }
 
@@ -566,8 +674,10 @@ public class Main extends javax.swing.JFrame {
             @Override
             public void finished() {
                 p.close();
+                pendingViewUpdates--;
             }
         };
+        pendingViewUpdates++;
         worker.start();
     }
 
@@ -625,8 +735,10 @@ public class Main extends javax.swing.JFrame {
             @Override
             public void finished() {
                 p.close();
+                pendingViewUpdates--;
             }
         };
+        pendingViewUpdates++;
         worker.start();
     }
 
@@ -963,14 +1075,23 @@ public class Main extends javax.swing.JFrame {
     }//GEN-LAST:event_openFile
 
     private void openFile(File file) {
+        stopWatcher();
+        disposeLazyTree();
+        showPivotPanel(null);
         rootFile = file;
         new Worker<DemoTree>() {
             @Override
             public DemoTree construct() throws Exception {
                 DemoTree tree;
 
-                if (rootFile.getName().endsWith(".txt")) {
+                if (DelimitedTableReader.isDelimitedFile(rootFile.getName())) {
                     tree = new ManyEyesTree(rootFile);
+                    // Choose the default hierarchy before the pivot panel
+                    // shows it.
+                    tree.getInfo().init(tree.getRoot());
+                    return tree;
+                } else if (rootFile.getName().endsWith(SnapshotTree.EXTENSION)) {
+                    tree = new SnapshotTree(rootFile);
                     return tree;
                 } else {
 
@@ -998,6 +1119,7 @@ public class Main extends javax.swing.JFrame {
                 info = ((DemoTree) result).getInfo();
                 setTitle("Tree Visualizer: " + info.getName(new TreePath2(rootNode)));
                 treeView = null; // remove tree view
+                showPivotPanel((result instanceof ManyEyesTree) ? (ManyEyesTree) result : null);
                 updateView();
             }
 
@@ -1184,36 +1306,282 @@ public class Main extends javax.swing.JFrame {
     }//GEN-LAST:event_printPerformed
 
     private void openDirectory(File dir) {
+        stopWatcher();
+        disposeLazyTree();
+        showPivotPanel(null);
         rootNode = null;
         viewPanel.removeAll();
         treeView=null;
         repaint();
         rootFile = dir;
+        final int generation = ++scanGeneration;
         new Worker() {
             @Override
             public Object construct() {
+                if (prefs.getBoolean("lazyFileTree", false)) {
+                    return new LazyFileTree(rootFile, LAZY_VISIBLE_DEPTH);
+                }
+                ProgressObserver p = new ProgressView("Opening " + rootFile.getName(), "", 0, 1);
+                p.setIndeterminate(true);
+                try {
+                    // Partial snapshots of the tree are shown while it is
+                    // being read.
+                    if (prefs.getBoolean("compactFileTree", false)) {
+                        return new CompactFileTree(p, rootFile, new CompactFileTree.SnapshotListener() {
+
+                            @Override
+                            public void snapshotAvailable(final CompactFileTree snapshot) {
+                                SwingUtilities.invokeLater(new Runnable() {
+
+                                    @Override
+                                    public void run() {
+                                        showSnapshot(generation, snapshot.getRoot(), snapshot.getInfo());
+                                    }
+                                });
+                            }
+                        }, SNAPSHOT_INTERVAL);
+                    }
+                    return new FileNodeScanner().scan(p, rootFile, new FileNodeScanner.SnapshotListener() {
 
-                FileNode root;
-                /*if (rootFile.getParentFile() != null) {
-                    root = new FileNode(rootFile.getParentFile(), rootFile);
-                } else {
-                    root = new FileNode(rootFile);
+                        @Override
+                        public void snapshotAvailable(final FileNode snapshot) {
+                            SwingUtilities.invokeLater(new Runnable() {
+
+                                @Override
+                                public void run() {
+                                    showSnapshot(generation, snapshot, new FileNodeInfo());
+                                }
+                            });
+                        }
+                    }, SNAPSHOT_INTERVAL);
+                } finally {
+                    p.close();
                 }
-                */
-                    root = new FileNode(rootFile);
-                return root;
             }
 
             @Override
             public void done(Object result) {
-                rootNode = (FileNode) result;
-                info = new FileNodeInfo();
+                if (generation != scanGeneration) {
+                    if (result instanceof LazyFileTree) {
+                        ((LazyFileTree) result).dispose();
+                    }
+                    return;
+                }
+                treeView = null;
+                if (result instanceof LazyFileTree) {
+                    lazyTree = (LazyFileTree) result;
+                    lazyTree.addChangeListener(new ChangeListener() {
+
+                        @Override
+                        public void stateChanged(ChangeEvent e) {
+                            // Rebuild the view with the new estimates, unless
+                            // it is still busy with the previous ones.
+                            if (e.getSource() == lazyTree && pendingViewUpdates == 0) {
+                                treeView = null;
+                                updateView();
+                            }
+                        }
+                    });
+                    rootNode = lazyTree.getRoot();
+                    info = lazyTree.getInfo();
+                } else if (result instanceof CompactFileTree) {
+                    rootNode = ((CompactFileTree) result).getRoot();
+                    info = ((CompactFileTree) result).getInfo();
+                } else {
+                    rootNode = (FileNode) result;
+                    info = new FileNodeInfo();
+                    if (prefs.getBoolean("liveUpdate", false)) {
+                        startWatcher();
+                    }
+                }
                 setTitle("Tree Visualizer: " + rootFile.getName());
                 updateView();
             }
         }.start();
     }
 
+    /**
+     * Shows a partial snapshot of a directory which is being read. The
+     * snapshot is skipped if a newer directory is being read, or if the view
+     * is still busy with the previous snapshot.
+     */
+    private void showSnapshot(int generation, TreeNode snapshot, NodeInfo snapshotInfo) {
+        if (generation != scanGeneration || pendingViewUpdates > 0) {
+            return;
+        }
+        rootNode = snapshot;
+        info = snapshotInfo;
+        treeView = null;
+        setTitle("Tree Visualizer: " + rootFile.getName() + " (reading…)");
+        updateView();
+    }
+
+    /**
+     * Saves the current directory tree into a snapshot file, which can be
+     * opened much faster than the directory itself.
+     */
+    private void saveSnapshot() {
+        if (!(rootNode instanceof FileTreeNode)) {
+            JOptionPane.showMessageDialog(Main.this, "Only directory trees can be saved as snapshots.", "TreeViz", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        if (rootFile != null) {
+            chooser.setSelectedFile(new File(rootFile.getName() + SnapshotTree.EXTENSION));
+        }
+        if (JFileChooser.APPROVE_OPTION != chooser.showSaveDialog(this)) {
+            return;
+        }
+        File f = chooser.getSelectedFile();
+        if (!f.getName().endsWith(SnapshotTree.EXTENSION)) {
+            f = new File(f.getPath() + SnapshotTree.EXTENSION);
+        }
+        final File snapshotFile = f;
+        final FileTreeNode root = (FileTreeNode) rootNode;
+        new Worker<Object>() {
+            @Override
+            public Object construct() throws Exception {
+                SnapshotTree.write(root, snapshotFile);
+                return null;
+            }
+
+            @Override
+            public void failed(Throwable t) {
+                JOptionPane.showMessageDialog(Main.this, "Could not save snapshot.\n" + t.getMessage(), "TreeViz", JOptionPane.ERROR_MESSAGE);
+                t.printStackTrace();
+            }
+        }.start();
+    }
+
+    /**
+     * Shows the pivot panel of the specified tree, or removes the pivot
+     * panel if the tree is null.
+     */
+    private void showPivotPanel(final ManyEyesTree tree) {
+        if (pivotPanel != null) {
+            getContentPane().remove(pivotPanel);
+            pivotPanel = null;
+        }
+        nextPivot = null;
+        if (tree != null) {
+            pivotPanel = new ManyEyesPivotPanel(tree);
+            pivotPanel.addChangeListener(new ChangeListener() {
+
+                @Override
+                public void stateChanged(ChangeEvent e) {
+                    if (e.getSource() == pivotPanel) {
+                        pivot(tree, pivotPanel.getPathIndices());
+                    }
+                }
+            });
+            getContentPane().add(pivotPanel, BorderLayout.EAST);
+        }
+        validate();
+    }
+
+    /**
+     * Rearranges the hierarchy of a ManyEyes tree. While the tree is being
+     * rearranged, only the most recent request is kept, so that the view can
+     * follow the user while columns are being dragged around.
+     */
+    private void pivot(final ManyEyesTree tree, final int[] pathIndices) {
+        if (isPivoting) {
+            nextPivot = pathIndices;
+            return;
+        }
+        isPivoting = true;
+        final ManyEyesPivotPanel panel = pivotPanel;
+        new Worker<TreeNode>() {
+
+            @Override
+            public TreeNode construct() {
+                tree.createTreeStructure(pathIndices);
+                return tree.getRoot();
+            }
+
+            @Override
+            public void done(TreeNode result) {
+                if (panel == pivotPanel) {
+                    rootNode = result;
+                    treeView = null;
+                    updateView();
+                }
+            }
+
+            @Override
+            public void finished() {
+                isPivoting = false;
+                if (panel == pivotPanel && nextPivot != null) {
+                    int[] indices = nextPivot;
+                    nextPivot = null;
+                    pivot(tree, indices);
+                }
+            }
+        }.start();
+    }
+
+    /**
+     * Starts watching the file system for changes in the current directory
+     * tree.
+     */
+    private void startWatcher() {
+        stopWatcher();
+        if (!(rootNode instanceof FileNode)) {
+            return;
+        }
+        watcher = new FileTreeWatcher((FileNode) rootNode);
+        watcher.addListener(new FileTreeWatcher.Listener() {
+
+            @Override
+            public void subtreesChanged(FileTreeWatcher source, java.util.List<TreePath2<TreeNode>> changedDirectories) {
+                if (source != watcher) {
+                    return;
+                }
+                if (treeView instanceof CirclemapView) {
+                    ((CirclemapView) treeView).subtreesChanged(changedDirectories);
+                } else {
+                    // The other views can not update parts of their layout.
+                    // We rebuild the view from the patched tree.
+                    updateView();
+                }
+            }
+        });
+        try {
+            watcher.start();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Stops the background threads of the current lazy directory tree.
+     */
+    private void disposeLazyTree() {
+        if (lazyTree != null) {
+            lazyTree.dispose();
+            lazyTree = null;
+        }
+    }
+
+    /**
+     * Shows one more or one less level of the current lazy directory tree.
+     */
+    private void changeLazyTreeDepth(int delta) {
+        if (lazyTree != null) {
+            lazyTree.setVisibleDepth(lazyTree.getVisibleDepth() + delta);
+            treeView = null;
+            updateView();
+        }
+    }
+
+    private void stopWatcher() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+    }
+
     /**
      * Supports the following command line parameters:
      * <pre>
@@ -1,7 +1,7 @@
 /*
- * @(#)ManyEyesNode.java  1.0  2009-02-07
+ * @(#)ManyEyesNode.java  1.1  2026-10-18
  *
- * Copyright (c) 2009 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2009-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -16,23 +16,65 @@ import java.util.List;
 
 /**
  * ManyEyesNode.
+ * <p>
+ * The node of a row refers to the row in a {@link DelimitedTable}, it does
+ * not hold the values by itself.
  *
  * @author Werner Randelshofer, Staldenmattweg 2, CH-6410 Goldau
- * @version 1.0 2009-02-07 Created.
+ * @version 1.1 2026-10-18 Can refer to a row of a table.
+ * <br>1.0 2009-02-07 Created.
  */
 public class ManyEyesNode implements TreeNode {
 
     protected ManyEyesCompositeNode parent;
     private String name;
     private String[] values;
+    private DelimitedTable table;
+    private int row;
     private long weight;
 
     public ManyEyesNode(String[] values) {
         this.values = values;
     }
 
+    /**
+     * Creates a node for a row of a table.
+     */
+    public ManyEyesNode(DelimitedTable table, int row) {
+        this.table = table;
+        this.row = row;
+    }
+
+    /**
+     * Returns the values of the node. The values of a row are created on
+     * each invocation.
+     */
     public String[] getValues() {
-        return values;
+        return (values != null) ? values : table.getRow(row);
+    }
+
+    /**
+     * Returns the value of the specified column.
+     */
+    public String getValue(int column) {
+        if (values != null) {
+            return column < values.length ? values[column] : "";
+        }
+        return table.getString(row, column);
+    }
+
+    /**
+     * Returns the table of the node, or null if the node is not a row.
+     */
+    public DelimitedTable getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the index of the row of the node in its table.
+     */
+    public int getRow() {
+        return row;
     }
 
     public ManyEyesCompositeNode getParent() {
@@ -1,7 +1,7 @@
 /*
- * @(#)ManyEyesNodeInfo.java  1.0  2009-02-07
+ * @(#)ManyEyesNodeInfo.java  1.2  2026-10-18
  * 
- * Copyright (c) 2009 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2009-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -24,13 +24,16 @@ import javax.swing.event.ChangeListener;
  * ManyEyesNodeInfo.
  *
  * @author Werner Randelshofer, Staldenmattweg 2, CH-6410 Goldau
- * @version 1.0 2009-02-07 Created.
+ * @version 1.2 2026-10-18 Takes the data types and the weights from the
+ * columns of the table.
+ * <br>1.1 2026-10-18 Computes the statistics only once, so that the
+ * hierarchy which has been chosen by the user is kept.
+ * <br>1.0 2009-02-07 Created.
  */
 public class ManyEyesNodeInfo extends AbstractNodeInfo {
 
     private ManyEyesTree tree;
     private HashMap<String, DataType> types;
-    private HashMap<String, HashSet<String>> attributes;
     /** Index of the weight attribute. The value -1 indicates that
      * we have none.
      */
@@ -49,18 +52,22 @@ public class ManyEyesNodeInfo extends AbstractNodeInfo {
         this.tree = tree;
     }
 
+    /**
+     * Computes the statistics and the default hierarchy the first time it
+     * is invoked. The views invoke this method each time they are created,
+     * for example after the user has pivoted the hierarchy.
+     */
     @Override
     public void init(TreeNode root) {
+        if (types != null) {
+            return;
+        }
         types = new HashMap<String, DataType>();
-        attributes = new HashMap<String, HashSet<String>>();
-        computeBasicStats(tree.getNodes(), types, attributes);
+        computeBasicStats(tree.getTable(), types);
     }
 
-    public void computeBasicStats(ArrayList<ManyEyesNode> nodes, HashMap<String, DataType> typeMap, HashMap<String, HashSet<String>> attrMap) {
-        collectAttributes(nodes, attrMap);
-        for (Map.Entry<String, HashSet<String>> entry : attrMap.entrySet()) {
-            typeMap.put(entry.getKey(), determineDataType(entry.getValue()));
-        }
+    public void computeBasicStats(DelimitedTable table, HashMap<String, DataType> typeMap) {
+        collectTypes(table, typeMap);
 
         String[] headers = tree.getHeaders();
 
@@ -98,20 +105,17 @@ public class ManyEyesNodeInfo extends AbstractNodeInfo {
 
     }
 
-    public void collectAttributes(ArrayList<ManyEyesNode> nodes, HashMap<String, HashSet<String>> attrMap) {
-        String[] headers = tree.getHeaders();
+    /**
+     * Maps each header to the data type of its column. If several columns
+     * have the same header, and their types differ, the type is text.
+     */
+    public void collectTypes(DelimitedTable table, HashMap<String, DataType> typeMap) {
+        String[] headers = table.getHeaders();
         for (int i = 0; i < headers.length; i++) {
-            HashSet<String> valueSet;
-            valueSet = new HashSet<String>();
-            attrMap.put(headers[i], valueSet);
-        }
-
-        for (ManyEyesNode node : nodes) {
-            String[] values = node.getValues();
-            for (int i = 0; i < headers.length; i++) {
-                HashSet<String> valueSet;
-                valueSet = attrMap.get(headers[i]);
-                valueSet.add(values[i]);
+            DataType type = table.getType(i);
+            DataType previous = typeMap.put(headers[i], type);
+            if (previous != null && previous != type) {
+                typeMap.put(headers[i], DataType.TEXT_STRING);
             }
         }
     }
@@ -138,9 +142,13 @@ public class ManyEyesNodeInfo extends AbstractNodeInfo {
             return 1;
         } else {
             ManyEyesNode node = (ManyEyesNode) path.getLastPathComponent();
-            String[] values = node.getValues();
+            DelimitedTable table = node.getTable();
+            AttributeColumn column = (table == null) ? null : table.getColumn(weightAttributeIndex);
+            if (column != null) {
+                return column.isSet(node.getRow()) ? column.get(node.getRow()) : 1;
+            }
             try {
-                return Long.valueOf(values[weightAttributeIndex]);
+                return Long.valueOf(node.getValue(weightAttributeIndex));
             } catch (NumberFormatException e) {
                 return 1;
             }
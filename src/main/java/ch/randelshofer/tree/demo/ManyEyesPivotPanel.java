@@ -0,0 +1,291 @@
+/*
+ * @(#)ManyEyesPivotPanel.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.GridLayout;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.DropMode;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.ListSelectionModel;
+import javax.swing.TransferHandler;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.EventListenerList;
+
+/**
+ * Lets the user choose the columns of a {@link ManyEyesTree} which form the
+ * hierarchy, and the order of these columns.
+ * <p>
+ * The upper list shows the hierarchy columns, the lower list the other
+ * columns. Columns can be dragged within and between the lists, or moved
+ * with the buttons. Each change fires a {@code ChangeEvent}; the listener
+ * is expected to invoke {@link ManyEyesTree#createTreeStructure} with the
+ * {@link #getPathIndices path indices} of the panel.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public class ManyEyesPivotPanel extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+    private String[] headers;
+    private DefaultListModel<Integer> hierarchyModel = new DefaultListModel<Integer>();
+    private DefaultListModel<Integer> columnsModel = new DefaultListModel<Integer>();
+    private JList<Integer> hierarchyList = new JList<Integer>(hierarchyModel);
+    private JList<Integer> columnsList = new JList<Integer>(columnsModel);
+    private EventListenerList listenerList = new EventListenerList();
+
+    /**
+     * Creates a new panel for the columns of the specified tree.
+     */
+    public ManyEyesPivotPanel(ManyEyesTree tree) {
+        headers = tree.getHeaders();
+        int[] pathIndices = tree.getPathIndices();
+        boolean[] isPath = new boolean[headers.length];
+        for (int i : pathIndices) {
+            hierarchyModel.addElement(i);
+            isPath[i] = true;
+        }
+        for (int i = 0; i < headers.length; i++) {
+            if (!isPath[i]) {
+                columnsModel.addElement(i);
+            }
+        }
+        initComponents();
+    }
+
+    private void initComponents() {
+        DefaultListCellRenderer renderer = new DefaultListCellRenderer() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                int column = (Integer) value;
+                return super.getListCellRendererComponent(list, (column + 1) + ": " + headers[column], index, isSelected, cellHasFocus);
+            }
+        };
+        ColumnTransferHandler transferHandler = new ColumnTransferHandler();
+        initList(hierarchyList, renderer, transferHandler);
+        initList(columnsList, renderer, transferHandler);
+
+        JPanel hierarchyButtons = new JPanel(new GridLayout(1, 3));
+        hierarchyButtons.add(createButton("Up", new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                int i = hierarchyList.getSelectedIndex();
+                if (i > 0) {
+                    move(hierarchyList, i, hierarchyList, i - 1);
+                }
+            }
+        }));
+        hierarchyButtons.add(createButton("Down", new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                int i = hierarchyList.getSelectedIndex();
+                if (i != -1 && i < hierarchyModel.size() - 1) {
+                    move(hierarchyList, i, hierarchyList, i + 2);
+                }
+            }
+        }));
+        hierarchyButtons.add(createButton("Remove", new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                int i = hierarchyList.getSelectedIndex();
+                if (i != -1) {
+                    move(hierarchyList, i, columnsList, columnsModel.size());
+                }
+            }
+        }));
+        JPanel columnsButtons = new JPanel(new GridLayout(1, 1));
+        columnsButtons.add(createButton("Add to Hierarchy", new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                int i = columnsList.getSelectedIndex();
+                if (i != -1) {
+                    move(columnsList, i, hierarchyList, hierarchyModel.size());
+                }
+            }
+        }));
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                createListPanel("Hierarchy", hierarchyList, hierarchyButtons),
+                createListPanel("Columns", columnsList, columnsButtons));
+        splitPane.setResizeWeight(0.5);
+        setLayout(new BorderLayout());
+        add(splitPane, BorderLayout.CENTER);
+    }
+
+    private static void initList(JList<Integer> list, DefaultListCellRenderer renderer, TransferHandler transferHandler) {
+        list.setCellRenderer(renderer);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setDragEnabled(true);
+        list.setDropMode(DropMode.INSERT);
+        list.setTransferHandler(transferHandler);
+    }
+
+    private static JButton createButton(String text, ActionListener l) {
+        JButton button = new JButton(text);
+        button.addActionListener(l);
+        return button;
+    }
+
+    private static JComponent createListPanel(String title, JList<Integer> list, JComponent buttons) {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createTitledBorder(title));
+        panel.add(new JScrollPane(list), BorderLayout.CENTER);
+        panel.add(buttons, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    /**
+     * Moves a column within or between the lists. The hierarchy must keep
+     * at least one column.
+     *
+     * @param from The list which contains the column.
+     * @param fromIndex The index of the column.
+     * @param to The list to which the column is moved.
+     * @param toIndex The insertion index, before the column is removed.
+     */
+    private void move(JList<Integer> from, int fromIndex, JList<Integer> to, int toIndex) {
+        DefaultListModel<Integer> fromModel = (DefaultListModel<Integer>) from.getModel();
+        DefaultListModel<Integer> toModel = (DefaultListModel<Integer>) to.getModel();
+        if (from == hierarchyList && to != hierarchyList && hierarchyModel.size() == 1) {
+            return;
+        }
+        if (from == to && (toIndex == fromIndex || toIndex == fromIndex + 1)) {
+            return;
+        }
+        Integer column = fromModel.remove(fromIndex);
+        if (from == to && toIndex > fromIndex) {
+            toIndex--;
+        }
+        toModel.add(toIndex, column);
+        to.setSelectedIndex(toIndex);
+        if (from == hierarchyList || to == hierarchyList) {
+            fireStateChanged();
+        }
+    }
+
+    /**
+     * Returns the indices of the hierarchy columns.
+     */
+    public int[] getPathIndices() {
+        int[] indices = new int[hierarchyModel.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = hierarchyModel.get(i);
+        }
+        return indices;
+    }
+
+    public void addChangeListener(ChangeListener l) {
+        listenerList.add(ChangeListener.class, l);
+    }
+
+    public void removeChangeListener(ChangeListener l) {
+        listenerList.remove(ChangeListener.class, l);
+    }
+
+    protected void fireStateChanged() {
+        ChangeEvent event = new ChangeEvent(this);
+        Object[] listeners = listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == ChangeListener.class) {
+                ((ChangeListener) listeners[i + 1]).stateChanged(event);
+            }
+        }
+    }
+
+    /**
+     * Drags a column within or between the lists. The column is
+     * transferred as the string "list:index"; the drop moves it.
+     */
+    private class ColumnTransferHandler extends TransferHandler {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int getSourceActions(JComponent c) {
+            return MOVE;
+        }
+
+        @Override
+        protected Transferable createTransferable(JComponent c) {
+            JList<?> list = (JList<?>) c;
+            int index = list.getSelectedIndex();
+            if (index == -1) {
+                return null;
+            }
+            return new StringSelection((list == hierarchyList ? "h:" : "c:") + index);
+        }
+
+        @Override
+        public boolean canImport(TransferSupport support) {
+            return support.isDrop() && support.isDataFlavorSupported(DataFlavor.stringFlavor);
+        }
+
+        @Override
+        public boolean importData(TransferSupport support) {
+            if (!canImport(support)) {
+                return false;
+            }
+            String data;
+            try {
+                data = (String) support.getTransferable().getTransferData(DataFlavor.stringFlavor);
+            } catch (UnsupportedFlavorException e) {
+                return false;
+            } catch (IOException e) {
+                return false;
+            }
+            if (!data.startsWith("h:") && !data.startsWith("c:")) {
+                return false;
+            }
+            JList<Integer> from = data.startsWith("h:") ? hierarchyList : columnsList;
+            int fromIndex;
+            try {
+                fromIndex = Integer.parseInt(data.substring(2));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (fromIndex >= from.getModel().getSize()) {
+                return false;
+            }
+            @SuppressWarnings("unchecked")
+            JList<Integer> to = (JList<Integer>) support.getComponent();
+            int toIndex = ((JList.DropLocation) support.getDropLocation()).getIndex();
+            if (toIndex == -1) {
+                toIndex = to.getModel().getSize();
+            }
+            move(from, fromIndex, to, toIndex);
+            return true;
+        }
+    }
+}
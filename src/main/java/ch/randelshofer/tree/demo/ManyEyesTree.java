@@ -1,7 +1,7 @@
 /*
- * @(#)ManyEyesTree.java  1.1  2011-01-20
+ * @(#)ManyEyesTree.java  1.5  2026-10-18
  * 
- * Copyright (c) 2009-2011 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2009-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -15,15 +15,29 @@ import ch.randelshofer.tree.TreeNode;
 import java.io.*;
 import java.net.URL;
 import java.util.*;
-import java.util.regex.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * ManyEyesTree represents a tree structure in the tab-separated
  * table format used by
  * {@linkplain http://manyeyes.alphaworks.ibm.com/manyeyes/page/Data_Format.html Many Eyes}.
+ * <p>
+ * Tab-separated ({@code .txt}, {@code .tsv}) and comma-separated
+ * ({@code .csv}) files are read by a {@link DelimitedTableReader}. The
+ * nodes of the rows refer to the rows of the {@link DelimitedTable}.
  *
  * @author Werner Randelshofer, Staldenmattweg 2, CH-6410 Goldau
- * @version 1.1 2011-01-20 Adds network support.
+ * @version 1.5 2026-10-18 Creates new nodes for the rows of each hierarchy,
+ * and keeps the root node.
+ * <br>1.4 2026-10-18 Reads the file into a table with typed columns.
+ * <br>1.3 2026-10-18 Encodes the path columns and arranges the
+ * hierarchy in parallel.
+ * <br>1.2 2026-10-18 Builds the hierarchy with a trie.
+ * <br>1.1 2011-01-20 Adds network support.
  * <br>1.0 2009-02-07 Created.
  */
 public class ManyEyesTree implements DemoTree {
@@ -32,7 +46,17 @@ public class ManyEyesTree implements DemoTree {
     private String[] headers;
     private int[] pathIndices;
     private ArrayList<ManyEyesNode> nodes;
+    private DelimitedTable table;
     private ManyEyesNodeInfo info;
+    /**
+     * The dictionary codes of the values of each column, indexed by column
+     * and row. A column is encoded the first time it is used in a path.
+     */
+    private int[][] codes;
+    /** The number of distinct values of each encoded column. */
+    private int[] distinctCounts;
+    /** The codes of the values "" and "-", which end a path. */
+    private BitSet[] terminalCodes;
 
     public ManyEyesTree(File manyEyesFile) throws IOException {
         FileInputStream in = new FileInputStream(manyEyesFile);
@@ -58,41 +82,24 @@ public class ManyEyesTree implements DemoTree {
     }
 
     public void read(InputStream in, String rootName) throws IOException {
-        BufferedReader r = null;
         try {
-            r = new BufferedReader(new InputStreamReader(in, "UTF-8"));
-            Pattern pattern = Pattern.compile(" *\t *");
-
-            // Read the header
-            String line = r.readLine();
-            headers = pattern.split(line);
-
-            // Create the root node
-            {
-                String[] values = new String[headers.length];
-                Arrays.fill(values, "");
-                root = new ManyEyesCompositeNode(values);
-                root.setName(rootName.substring(0, rootName.length() - 4));
-            }
-
-            // Create the nodes list
-            nodes = new ArrayList<ManyEyesNode>();
-
-            // Read the nodes
-            while ((line = r.readLine()) != null) {
-                String[] values = pattern.split(line);
-                ManyEyesNode node = new ManyEyesNode(values);
-                nodes.add(node);
-            }
-
-            // Create a default tree structure
-            createDefaultTreeStructure();
-
+            table = DelimitedTableReader.forName(rootName).read(in);
         } finally {
-            if (r != null) {
-                r.close();
-            }
+            in.close();
         }
+        headers = table.getHeaders();
+
+        // Create the root node
+        {
+            String[] values = new String[headers.length];
+            Arrays.fill(values, "");
+            root = new ManyEyesCompositeNode(values);
+            int p = rootName.lastIndexOf('.');
+            root.setName(p == -1 ? rootName : rootName.substring(0, p));
+        }
+
+        // Create a default tree structure with the nodes of the rows
+        createDefaultTreeStructure();
     }
 
     public String[] getHeaders() {
@@ -107,6 +114,10 @@ public class ManyEyesTree implements DemoTree {
         return nodes;
     }
 
+    public DelimitedTable getTable() {
+        return table;
+    }
+
     public void createDefaultTreeStructure() {
         int length = 1;
         for (; length < headers.length && headers[0].equals(headers[length]); length++) {
@@ -118,111 +129,311 @@ public class ManyEyesTree implements DemoTree {
         createTreeStructure(indices);
     }
 
+    /**
+     * Arranges the nodes in a hierarchy, which is given by the values of
+     * the specified path columns.
+     * <p>
+     * The values of a column are encoded into int codes the first time the
+     * column is used in a path. The codes preserve the order of the values,
+     * so the nodes can be sorted and grouped without comparing strings.
+     * The nodes are sorted level by level with a radix sort, and large
+     * groups of nodes are arranged in parallel. Artificial nodes are created
+     * for the path prefixes of the nodes. An artificial node which has the
+     * same path as its only child is replaced by the child.
+     * <p>
+     * The new hierarchy is built with new nodes for the rows below a
+     * temporary root, so that a view of the previous hierarchy is not
+     * disturbed while the new hierarchy is being built. Then the children of
+     * the root are replaced, so that the root stays the same node.
+     *
+     * @param pathIndices the indices of the path columns.
+     */
     public void createTreeStructure(final int[] pathIndices) {
-        this.pathIndices = pathIndices;
-
-        // Sort nodes by path
-        ArrayList<ManyEyesNode> sorted = (ArrayList<ManyEyesNode>) nodes.clone();
-        Collections.sort(sorted, new Comparator<ManyEyesNode>() {
-
-            public int compare(ManyEyesNode n1, ManyEyesNode n2) {
-                String[] v1 = n1.getValues();
-                String[] v2 = n2.getValues();
-                for (int i = 0; i < pathIndices.length; i++) {
-                    int c = v1[pathIndices[i]].compareTo(v2[pathIndices[i]]);
-                    if (c != 0) {
-                        return c;
-                    }
-                }
-                return 0;
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            encodeColumns(pool, pathIndices);
+
+            ManyEyesCompositeNode newRoot = new ManyEyesCompositeNode(root.getValues());
+            int n = table.getRowCount();
+            int[] rows = new int[n];
+            for (int i = 0; i < n; i++) {
+                rows[i] = i;
             }
-        });
+            ManyEyesNode[] leaves = new ManyEyesNode[n];
+            pool.invoke(new PivotTask(pathIndices, rows, new int[n], leaves, newRoot, 0, n, 0));
+            this.pathIndices = pathIndices;
+            nodes = new ArrayList<ManyEyesNode>(Arrays.asList(leaves));
+            root.removeAllChildren();
+            for (TreeNode child : newRoot.children()) {
+                root.add((ManyEyesNode) child);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
 
+    /**
+     * Encodes the values of the specified columns, unless they have already
+     * been encoded.
+     */
+    private void encodeColumns(ForkJoinPool pool, int[] columns) {
+        if (codes == null) {
+            codes = new int[headers.length][];
+            distinctCounts = new int[headers.length];
+            terminalCodes = new BitSet[headers.length];
+        }
+        ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        BitSet isScheduled = new BitSet();
+        for (final int column : columns) {
+            if (codes[column] == null && !isScheduled.get(column)) {
+                isScheduled.set(column);
+                tasks.add(new Callable<Object>() {
 
-        root.removeAllChildren();
-        ManyEyesCompositeNode parent = root;
-        for (ManyEyesNode node : sorted) {
-            // Find parent
-            if (!isDescendantOf(node, parent) && parent != root) {
-                ManyEyesNode child = (ManyEyesNode) parent.children().get(0);
-                ManyEyesCompositeNode grandParent = parent.getParent();
-                grandParent.remove(parent);
-                grandParent.add(child);
-                parent = grandParent;
+                    @Override
+                    public Object call() {
+                        encodeColumn(column);
+                        return null;
+                    }
+                });
             }
-            while (!isDescendantOf(node, parent)) {
-                parent = parent.getParent();
+        }
+        for (Future<Object> f : pool.invokeAll(tasks)) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
             }
+        }
+    }
 
-            // Create artifical intermediate children, if necessary
-            int parentDepth = getDepth(parent);
-            int nodeDepth = getDepth(node);
-            while (nodeDepth > parentDepth) {
-                String[] artificial = new String[headers.length];
-                Arrays.fill(artificial, "");
-                String[] nv = node.getValues();
-                for (int i = 0; i <= parentDepth; i++) {
-                    artificial[pathIndices[i]] = nv[pathIndices[i]];
+    /**
+     * Encodes the values of a column into codes, which are the ranks of the
+     * values in the sorted dictionary of the column. The codes of a text
+     * column are taken from the table.
+     */
+    private void encodeColumn(int column) {
+        if (table.getCodes(column) != null) {
+            String[] dictionary = table.getDictionary(column);
+            BitSet terminal = new BitSet();
+            for (int i = 0; i < dictionary.length; i++) {
+                if (dictionary[i].length() == 0 || dictionary[i].equals("-")) {
+                    terminal.set(i);
                 }
-                ManyEyesCompositeNode newParent = new ManyEyesCompositeNode(artificial);
-                parent.add(newParent);
-                newParent.setName(artificial[pathIndices[parentDepth]]);
-                parent = newParent;
-                parentDepth++;
             }
+            distinctCounts[column] = dictionary.length;
+            terminalCodes[column] = terminal;
+            codes[column] = table.getCodes(column);
+            return;
+        }
 
+        int n = table.getRowCount();
+        int[] columnCodes = new int[n];
+        HashMap<String, Integer> dictionary = new HashMap<String, Integer>();
+        ArrayList<String> distinct = new ArrayList<String>();
+        for (int i = 0; i < n; i++) {
+            String value = table.getString(i, column);
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = distinct.size();
+                dictionary.put(value, code);
+                distinct.add(value);
+            }
+            columnCodes[i] = code;
+        }
 
-            node.setName(node.getValues()[pathIndices[nodeDepth - 1]]);
+        // Replace the codes by the ranks of the values
+        Integer[] order = new Integer[distinct.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        final ArrayList<String> values = distinct;
+        Arrays.sort(order, new Comparator<Integer>() {
 
-            // Add node to parent
-            System.out.println("adding " + node + " to " + parent);
-            parent.add(node);
+            public int compare(Integer o1, Integer o2) {
+                return values.get(o1).compareTo(values.get(o2));
+            }
+        });
+        int[] rank = new int[order.length];
+        BitSet terminal = new BitSet();
+        for (int i = 0; i < order.length; i++) {
+            rank[order[i]] = i;
+            String value = values.get(order[i]);
+            if (value.length() == 0 || value.equals("-")) {
+                terminal.set(i);
+            }
         }
-        if (parent != root) {
-            // If the parent has only one child, remove unnecessary artifical parent
-            ManyEyesNode child = (ManyEyesNode) parent.children().get(0);
-            ManyEyesCompositeNode grandParent = parent.getParent();
-            grandParent.remove(parent);
-            grandParent.add(child);
+        for (int i = 0; i < n; i++) {
+            columnCodes[i] = rank[columnCodes[i]];
         }
+
+        distinctCounts[column] = order.length;
+        terminalCodes[column] = terminal;
+        codes[column] = columnCodes;
     }
 
     /**
-     * Returns true if n1 is a descendant of n2.
-     * @param n1
-     * @param n2
-     * @return
+     * Arranges a range of rows below a parent node. The rows have the same
+     * values in the path columns before the depth of the task.
      */
-    private boolean isDescendantOf(ManyEyesNode n1, ManyEyesNode n2) {
-        // Short-circuit root, in case one of the nodes is a root as well
-        if (n2 == root) {
-            return true;
-        }
-        String[] v1 = n1.getValues();
-        String[] v2 = n2.getValues();
-        for (int i = 0; i < pathIndices.length && v2[pathIndices[i]].length() > 0; i++) {
-            System.out.print("." + v1[pathIndices[i]]);
-            if (!v1[pathIndices[i]].equals(v2[pathIndices[i]])) {
-                System.out.println("#");
-                return false;
+    private class PivotTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        /** Groups with fewer rows are arranged by the task of their parent. */
+        private final static int FORK_THRESHOLD = 4096;
+        private int[] pathIndices;
+        /** The indices of the nodes. */
+        private int[] rows;
+        /** Scratch space for sorting the rows. */
+        private int[] tmp;
+        /** The nodes of the rows, indexed by row. */
+        private ManyEyesNode[] leaves;
+        private ManyEyesCompositeNode parent;
+        private int lo, hi, depth;
+
+        public PivotTask(int[] pathIndices, int[] rows, int[] tmp, ManyEyesNode[] leaves, ManyEyesCompositeNode parent, int lo, int hi, int depth) {
+            this.pathIndices = pathIndices;
+            this.rows = rows;
+            this.tmp = tmp;
+            this.leaves = leaves;
+            this.parent = parent;
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            ArrayList<PivotTask> forks = new ArrayList<PivotTask>();
+            arrange(parent, lo, hi, depth, forks);
+            invokeAll(forks);
+        }
+
+        /**
+         * Arranges the rows below the parent. Large groups are added to
+         * the forks.
+         */
+        private void arrange(ManyEyesCompositeNode parent, int lo, int hi, int depth, ArrayList<PivotTask> forks) {
+            int column = pathIndices[depth];
+            int[] columnCodes = codes[column];
+            BitSet terminal = terminalCodes[column];
+            sort(lo, hi, depth);
+            for (int i = lo; i < hi;) {
+                int code = columnCodes[rows[i]];
+                int j = i + 1;
+                while (j < hi && columnCodes[rows[j]] == code) {
+                    j++;
+                }
+                if (terminal.get(code)) {
+                    // The path of the rows ends here.
+                    sortAll(i, j, depth + 1);
+                    for (int k = i; k < j; k++) {
+                        addRow(parent, rows[k], pathIndices[Math.max(0, depth - 1)]);
+                    }
+                } else if (j - i == 1 && isLastLevel(rows[i], depth + 1)) {
+                    // Collapse the artificial node of a single row.
+                    addRow(parent, rows[i], column);
+                } else {
+                    String[] artificial = new String[headers.length];
+                    Arrays.fill(artificial, "");
+                    for (int k = 0; k <= depth; k++) {
+                        artificial[pathIndices[k]] = table.getString(rows[i], pathIndices[k]);
+                    }
+                    ManyEyesCompositeNode newParent = new ManyEyesCompositeNode(artificial);
+                    newParent.setName(artificial[column]);
+                    parent.add(newParent);
+                    if (depth + 1 == pathIndices.length) {
+                        for (int k = i; k < j; k++) {
+                            addRow(newParent, rows[k], column);
+                        }
+                    } else if (j - i >= FORK_THRESHOLD) {
+                        forks.add(new PivotTask(pathIndices, rows, tmp, leaves, newParent, i, j, depth + 1));
+                    } else {
+                        arrange(newParent, i, j, depth + 1, forks);
+                    }
+                }
+                i = j;
             }
         }
-        System.out.println();
-        return true;
-    }
 
-    /**
-     * Returns true if n1 is v1 descendant of n2.
-     * @param v1
-     * @param v2
-     * @return
-     */
-    private int getDepth(ManyEyesNode n1) {
-        int i = 0;
-        String[] v1 = n1.getValues();
-        for (; i < pathIndices.length && v1[pathIndices[i]].length() > 0 && !v1[pathIndices[i]].equals("-"); i++) {
+        /**
+         * Returns true if the path of a row ends at the specified depth.
+         */
+        private boolean isLastLevel(int row, int depth) {
+            if (depth == pathIndices.length) {
+                return true;
+            }
+            int column = pathIndices[depth];
+            return terminalCodes[column].get(codes[column][row]);
+        }
+
+        private void addRow(ManyEyesCompositeNode parent, int row, int nameColumn) {
+            ManyEyesNode node = new ManyEyesNode(table, row);
+            node.setName(table.getString(row, nameColumn));
+            parent.add(node);
+            leaves[row] = node;
+        }
+
+        /**
+         * Sorts the rows by all path columns from the specified depth on.
+         */
+        private void sortAll(int lo, int hi, int depth) {
+            if (depth == pathIndices.length || hi - lo < 2) {
+                return;
+            }
+            sort(lo, hi, depth);
+            int[] columnCodes = codes[pathIndices[depth]];
+            for (int i = lo; i < hi;) {
+                int j = i + 1;
+                while (j < hi && columnCodes[rows[j]] == columnCodes[rows[i]]) {
+                    j++;
+                }
+                sortAll(i, j, depth + 1);
+                i = j;
+            }
+        }
+
+        /**
+         * Sorts the rows by the path column at the specified depth. Rows
+         * with the same value keep the order in which they have been read.
+         */
+        private void sort(int lo, int hi, int depth) {
+            int n = hi - lo;
+            if (n < 2) {
+                return;
+            }
+            int column = pathIndices[depth];
+            int[] columnCodes = codes[column];
+            int distinctCount = distinctCounts[column];
+            if (distinctCount <= n * 4) {
+                // Counting sort. The rows of a group are in the order in
+                // which they have been read, and the sort is stable.
+                int[] counts = new int[distinctCount + 1];
+                for (int i = lo; i < hi; i++) {
+                    counts[columnCodes[rows[i]] + 1]++;
+                }
+                for (int i = 1; i < counts.length; i++) {
+                    counts[i] += counts[i - 1];
+                }
+                for (int i = lo; i < hi; i++) {
+                    tmp[lo + counts[columnCodes[rows[i]]]++] = rows[i];
+                }
+                System.arraycopy(tmp, lo, rows, lo, n);
+            } else {
+                // Sort by code and row, so that rows with the same code
+                // keep the order in which they have been read.
+                long[] keys = new long[n];
+                for (int i = 0; i < n; i++) {
+                    int row = rows[lo + i];
+                    keys[i] = ((long) columnCodes[row] << 32) | row;
+                }
+                Arrays.sort(keys);
+                for (int i = 0; i < n; i++) {
+                    rows[lo + i] = (int) keys[i];
+                }
+            }
         }
-        return i;
     }
 
     public TreeNode getRoot() {
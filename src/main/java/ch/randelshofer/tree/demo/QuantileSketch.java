@@ -0,0 +1,196 @@
+/*
+ * @(#)QuantileSketch.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the quantiles of a stream of values with a merging t-digest.
+ * <p>
+ * The digest summarizes the values by a sorted list of centroids. Each
+ * centroid has a mean and a weight. The centroids at the ends of the value
+ * range are kept small, so that quantiles near 0 and 1 are accurate. The
+ * number of centroids is bounded by the compression, so the memory needed
+ * does not depend on the number of values. The minimum and the maximum are
+ * exact.
+ * <p>
+ * Values are collected in a buffer. When the buffer is full, it is sorted
+ * and merged with the centroids.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public class QuantileSketch {
+
+    /** The default compression. */
+    public final static double DEFAULT_COMPRESSION = 100;
+    private double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroidCount;
+    private double[] buffer;
+    private int bufferCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /** Creates a sketch with the default compression. */
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a new sketch.
+     *
+     * @param compression The number of centroids is at most about twice
+     * the compression.
+     */
+    public QuantileSketch(double compression) {
+        this.compression = compression;
+        int size = (int) Math.ceil(compression) * 2 + 10;
+        means = new double[size];
+        weights = new double[size];
+        buffer = new double[size * 5];
+    }
+
+    /** Adds a value. */
+    public void add(double value) {
+        if (bufferCount == buffer.length) {
+            merge();
+        }
+        buffer[bufferCount++] = value;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /** Returns the number of values. */
+    public long getCount() {
+        return count;
+    }
+
+    /** Returns the smallest value, or NaN if there are no values. */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /** Returns the largest value, or NaN if there are no values. */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /** Returns an estimate of the median, or NaN if there are no values. */
+    public double getMedian() {
+        return getQuantile(0.5);
+    }
+
+    /**
+     * Returns an estimate of the specified quantile.
+     *
+     * @param q A value between 0 and 1.
+     * @return the estimate, or NaN if there are no values.
+     */
+    public double getQuantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q=" + q);
+        }
+        merge();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (centroidCount == 1) {
+            return means[0];
+        }
+
+        // Each centroid is centered at the middle of its weight. The
+        // estimate is interpolated between the neighbouring centers, and
+        // between the outer centers and the minimum and maximum.
+        double index = q * count;
+        if (index < weights[0] / 2) {
+            return min + (means[0] - min) * index / (weights[0] / 2);
+        }
+        double center = weights[0] / 2;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double next = center + (weights[i] + weights[i + 1]) / 2;
+            if (index < next) {
+                return means[i] + (means[i + 1] - means[i]) * (index - center) / (next - center);
+            }
+            center = next;
+        }
+        double last = weights[centroidCount - 1] / 2;
+        return means[centroidCount - 1] + (max - means[centroidCount - 1]) * Math.min(1, (index - center) / last);
+    }
+
+    /**
+     * Merges the buffer into the centroids.
+     */
+    private void merge() {
+        if (bufferCount == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, bufferCount);
+
+        // Merge the sorted centroids and the sorted buffer
+        int n = centroidCount + bufferCount;
+        double[] m = new double[n];
+        double[] w = new double[n];
+        for (int i = 0, j = 0, k = 0; k < n; k++) {
+            if (j == bufferCount || i < centroidCount && means[i] <= buffer[j]) {
+                m[k] = means[i];
+                w[k] = weights[i++];
+            } else {
+                m[k] = buffer[j++];
+                w[k] = 1;
+            }
+        }
+        bufferCount = 0;
+
+        // Combine neighbours as long as a centroid does not span more than
+        // one unit of the scale function.
+        double total = count;
+        centroidCount = 0;
+        double mean = m[0];
+        double weight = w[0];
+        double weightSoFar = 0;
+        double kLeft = scale(0);
+        for (int i = 1; i < n; i++) {
+            double proposed = weight + w[i];
+            if (scale((weightSoFar + proposed) / total) - kLeft <= 1) {
+                mean += (m[i] - mean) * w[i] / proposed;
+                weight = proposed;
+            } else {
+                addCentroid(mean, weight);
+                weightSoFar += weight;
+                kLeft = scale(weightSoFar / total);
+                mean = m[i];
+                weight = w[i];
+            }
+        }
+        addCentroid(mean, weight);
+    }
+
+    private void addCentroid(double mean, double weight) {
+        if (centroidCount == means.length) {
+            means = Arrays.copyOf(means, centroidCount * 2);
+            weights = Arrays.copyOf(weights, centroidCount * 2);
+        }
+        means[centroidCount] = mean;
+        weights[centroidCount++] = weight;
+    }
+
+    /**
+     * The scale function of the digest. It is steep near 0 and 1, so that
+     * the centroids are small there.
+     */
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+    }
+}
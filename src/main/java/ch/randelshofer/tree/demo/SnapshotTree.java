@@ -0,0 +1,430 @@
+/*
+ * @(#)SnapshotTree.java  1.1  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.tree.NodeInfo;
+import ch.randelshofer.tree.TreeNode;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A file system tree which is read from a memory mapped snapshot file.
+ * <p>
+ * A snapshot is written with {@link #write} from any tree of
+ * {@link FileTreeNode}s. Opening a snapshot maps its sections into memory
+ * and checks once that the indices in them are within bounds; nodes are
+ * {@link FileTreeNode} flyweights which read their values directly from the
+ * mapped buffers.
+ * <p>
+ * The nodes are stored in breadth first order, so that the children of
+ * a node occupy a contiguous range of indices. The file starts with a header
+ * followed by a section table and the sections. All numbers are big-endian.
+ * <pre>
+ * header:   int magic 'TVZS', int version, int nodeCount, int sectionCount
+ * table:    sectionCount * (long offset, long length)
+ * sections: ROOT_PATH      UTF-8 path of the root directory
+ *           PARENT         int[nodeCount]
+ *           FIRST_CHILD    int[nodeCount]
+ *           CHILD_COUNT    int[nodeCount]
+ *           DESCENDANTS    int[nodeCount]
+ *           SIZE           long[nodeCount], cumulated for directories
+ *           LAST_MODIFIED  long[nodeCount]
+ *           FLAGS          byte[nodeCount]
+ *           NAME_OFFSET    int[nodeCount + 1]
+ *           NAMES          UTF-8 bytes
+ * </pre>
+ * Every section starts at an offset which is a multiple of 8.
+ *
+ * @author Werner Randelshofer
+ * @version 1.1 2026-10-18 Rejects snapshot files with indices out of
+ * bounds.
+ * <br>1.0 2026-10-18 Created.
+ */
+public class SnapshotTree implements DemoTree {
+
+    /** The file name extension of snapshot files. */
+    public final static String EXTENSION = ".tvsnap";
+    private final static int MAGIC = 0x54565a53; // 'TVZS'
+    private final static int VERSION = 1;
+    private final static int ROOT_PATH = 0;
+    private final static int PARENT = 1;
+    private final static int FIRST_CHILD = 2;
+    private final static int CHILD_COUNT = 3;
+    private final static int DESCENDANTS = 4;
+    private final static int SIZE = 5;
+    private final static int LAST_MODIFIED = 6;
+    private final static int FLAGS = 7;
+    private final static int NAME_OFFSET = 8;
+    private final static int NAMES = 9;
+    private final static int SECTION_COUNT = 10;
+    private final static byte FLAG_DIRECTORY = 1;
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+    private File rootFile;
+    private int count;
+    private IntBuffer parent;
+    private IntBuffer firstChild;
+    private IntBuffer childCount;
+    private IntBuffer descendants;
+    private LongBuffer size;
+    private LongBuffer lastModified;
+    private ByteBuffer flags;
+    private IntBuffer nameOffset;
+    private ByteBuffer names;
+    private NodeInfo info;
+
+    /**
+     * Opens a snapshot file.
+     */
+    public SnapshotTree(File snapshotFile) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(snapshotFile, "r")) {
+            FileChannel ch = raf.getChannel();
+            if (ch.size() < 16) {
+                throw new IOException("Not a snapshot file: " + snapshotFile);
+            }
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, 16);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + snapshotFile);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            count = header.getInt();
+            int sectionCount = header.getInt();
+            if (sectionCount < SECTION_COUNT || 16 + sectionCount * 16L > ch.size()) {
+                throw new IOException("Snapshot file is incomplete: " + snapshotFile);
+            }
+            ByteBuffer table = ch.map(FileChannel.MapMode.READ_ONLY, 16, sectionCount * 16L);
+            ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+            for (int i = 0; i < SECTION_COUNT; i++) {
+                long offset = table.getLong();
+                long length = table.getLong();
+                if (offset < 0 || length < 0 || offset + length > ch.size()) {
+                    throw new IOException("Snapshot file is corrupt: " + snapshotFile);
+                }
+                sections[i] = ch.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            }
+            // The mapped buffers stay valid after the channel is closed.
+
+            byte[] rootPath = new byte[sections[ROOT_PATH].remaining()];
+            sections[ROOT_PATH].get(rootPath);
+            rootFile = new File(new String(rootPath, UTF_8));
+            parent = sections[PARENT].asIntBuffer();
+            firstChild = sections[FIRST_CHILD].asIntBuffer();
+            childCount = sections[CHILD_COUNT].asIntBuffer();
+            descendants = sections[DESCENDANTS].asIntBuffer();
+            size = sections[SIZE].asLongBuffer();
+            lastModified = sections[LAST_MODIFIED].asLongBuffer();
+            flags = sections[FLAGS];
+            nameOffset = sections[NAME_OFFSET].asIntBuffer();
+            names = sections[NAMES];
+            if (!isValid()) {
+                throw new IOException("Snapshot file is corrupt: " + snapshotFile);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the sections are large enough for the nodes, and if
+     * the indices and offsets which are stored in them are within their
+     * bounds. The parent of a node must have a smaller index than the node,
+     * and its children must have larger indices, so that walking up or down
+     * the tree always terminates.
+     */
+    private boolean isValid() {
+        if (count < 1 || parent.capacity() < count || firstChild.capacity() < count
+                || childCount.capacity() < count || descendants.capacity() < count
+                || size.capacity() < count || lastModified.capacity() < count
+                || flags.capacity() < count || nameOffset.capacity() < count + 1) {
+            return false;
+        }
+        if (parent.get(0) != -1 || nameOffset.get(0) < 0
+                || nameOffset.get(count) > names.capacity()) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            int p = parent.get(i);
+            int first = firstChild.get(i);
+            int n = childCount.get(i);
+            if (i > 0 && (p < 0 || p >= i)
+                    || n < 0 || n > 0 && (first <= i || first > count - n)
+                    || nameOffset.get(i) > nameOffset.get(i + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a snapshot of the specified tree.
+     *
+     * @param root the root of the tree.
+     * @param snapshotFile the file to write to.
+     */
+    public static void write(FileTreeNode root, File snapshotFile) throws IOException {
+        // Number the nodes in breadth first order.
+        int capacity = Math.max(16, root.getDescendantCount() + 1);
+        int[] parent = new int[capacity];
+        int[] firstChild = new int[capacity];
+        int[] childCount = new int[capacity];
+        int[] descendants = new int[capacity];
+        long[] size = new long[capacity];
+        long[] lastModified = new long[capacity];
+        byte[] flags = new byte[capacity];
+        int[] nameOffset = new int[capacity + 1];
+        byte[] names = new byte[capacity * 16];
+        int namesLength = 0;
+
+        ArrayDeque<FileTreeNode> queue = new ArrayDeque<FileTreeNode>();
+        queue.add(root);
+        parent[0] = -1;
+        int count = 1;
+        for (int i = 0; !queue.isEmpty(); i++) {
+            FileTreeNode node = queue.remove();
+            if (i + 1 >= nameOffset.length) {
+                nameOffset = Arrays.copyOf(nameOffset, nameOffset.length * 2);
+            }
+            byte[] name = node.getName().getBytes(UTF_8);
+            if (namesLength + name.length > names.length) {
+                names = Arrays.copyOf(names, Math.max(namesLength + name.length, names.length * 2));
+            }
+            System.arraycopy(name, 0, names, namesLength, name.length);
+            nameOffset[i] = namesLength;
+            namesLength += name.length;
+            nameOffset[i + 1] = namesLength;
+            size[i] = node.getFileSize();
+            lastModified[i] = node.getLastModified();
+            descendants[i] = node.getDescendantCount();
+            if (node.getAllowsChildren()) {
+                flags[i] = FLAG_DIRECTORY;
+            }
+            List<? extends TreeNode> children = node.children();
+            firstChild[i] = count;
+            childCount[i] = children.size();
+            if (count + children.size() > parent.length) {
+                int newCapacity = Math.max(count + children.size(), parent.length * 2);
+                parent = Arrays.copyOf(parent, newCapacity);
+                firstChild = Arrays.copyOf(firstChild, newCapacity);
+                childCount = Arrays.copyOf(childCount, newCapacity);
+                descendants = Arrays.copyOf(descendants, newCapacity);
+                size = Arrays.copyOf(size, newCapacity);
+                lastModified = Arrays.copyOf(lastModified, newCapacity);
+                flags = Arrays.copyOf(flags, newCapacity);
+            }
+            for (TreeNode child : children) {
+                parent[count++] = i;
+                queue.add((FileTreeNode) child);
+            }
+        }
+
+        byte[] rootPath = root.getFile().getPath().getBytes(UTF_8);
+        long[] lengths = new long[SECTION_COUNT];
+        lengths[ROOT_PATH] = rootPath.length;
+        lengths[PARENT] = lengths[FIRST_CHILD] = lengths[CHILD_COUNT] = lengths[DESCENDANTS] = 4L * count;
+        lengths[SIZE] = lengths[LAST_MODIFIED] = 8L * count;
+        lengths[FLAGS] = count;
+        lengths[NAME_OFFSET] = 4L * (count + 1);
+        lengths[NAMES] = namesLength;
+        long[] offsets = new long[SECTION_COUNT];
+        long offset = align(16 + 16L * SECTION_COUNT);
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            offsets[i] = offset;
+            offset = align(offset + lengths[i]);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(snapshotFile, "rw")) {
+            raf.setLength(0);
+            FileChannel ch = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(16 + 16 * SECTION_COUNT);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(SECTION_COUNT);
+            for (int i = 0; i < SECTION_COUNT; i++) {
+                header.putLong(offsets[i]).putLong(lengths[i]);
+            }
+            header.flip();
+            writeFully(ch, header, 0);
+            writeFully(ch, ByteBuffer.wrap(rootPath), offsets[ROOT_PATH]);
+            writeInts(ch, parent, count, offsets[PARENT]);
+            writeInts(ch, firstChild, count, offsets[FIRST_CHILD]);
+            writeInts(ch, childCount, count, offsets[CHILD_COUNT]);
+            writeInts(ch, descendants, count, offsets[DESCENDANTS]);
+            writeLongs(ch, size, count, offsets[SIZE]);
+            writeLongs(ch, lastModified, count, offsets[LAST_MODIFIED]);
+            writeFully(ch, ByteBuffer.wrap(flags, 0, count), offsets[FLAGS]);
+            writeInts(ch, nameOffset, count + 1, offsets[NAME_OFFSET]);
+            writeFully(ch, ByteBuffer.wrap(names, 0, namesLength), offsets[NAMES]);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += ch.write(buf, position);
+        }
+    }
+
+    private static void writeInts(FileChannel ch, int[] values, int length, long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        for (int off = 0; off < length;) {
+            int n = Math.min(length - off, buf.capacity() / 4);
+            buf.clear();
+            buf.asIntBuffer().put(values, off, n);
+            buf.limit(n * 4);
+            writeFully(ch, buf, position);
+            position += n * 4L;
+            off += n;
+        }
+    }
+
+    private static void writeLongs(FileChannel ch, long[] values, int length, long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        for (int off = 0; off < length;) {
+            int n = Math.min(length - off, buf.capacity() / 8);
+            buf.clear();
+            buf.asLongBuffer().put(values, off, n);
+            buf.limit(n * 8);
+            writeFully(ch, buf, position);
+            position += n * 8L;
+            off += n;
+        }
+    }
+
+    /**
+     * Returns the number of nodes in the tree.
+     */
+    public int getNodeCount() {
+        return count;
+    }
+
+    @Override
+    public FileTreeNode getRoot() {
+        return new Node(0);
+    }
+
+    @Override
+    public NodeInfo getInfo() {
+        if (info == null) {
+            info = new FileNodeInfo();
+        }
+        return info;
+    }
+
+    private String getName(int index) {
+        int from = nameOffset.get(index);
+        byte[] b = new byte[nameOffset.get(index + 1) - from];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = names.get(from + i);
+        }
+        return new String(b, UTF_8);
+    }
+
+    private File getFile(int index) {
+        return (index == 0) ? rootFile : new File(getFile(parent.get(index)), getName(index));
+    }
+
+    /**
+     * Flyweight node.
+     */
+    private class Node implements FileTreeNode {
+
+        private final int index;
+
+        public Node(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public List<TreeNode> children() {
+            final int first = firstChild.get(index);
+            final int n = childCount.get(index);
+            return new AbstractList<TreeNode>() {
+
+                @Override
+                public TreeNode get(int i) {
+                    if (i < 0 || i >= n) {
+                        throw new IndexOutOfBoundsException("index:" + i + " size:" + n);
+                    }
+                    return new Node(first + i);
+                }
+
+                @Override
+                public int size() {
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public boolean getAllowsChildren() {
+            return (flags.get(index) & FLAG_DIRECTORY) != 0;
+        }
+
+        @Override
+        public String getName() {
+            return SnapshotTree.this.getName(index);
+        }
+
+        @Override
+        public File getFile() {
+            return SnapshotTree.this.getFile(index);
+        }
+
+        @Override
+        public long getFileSize() {
+            return size.get(index);
+        }
+
+        @Override
+        public long getLastModified() {
+            return lastModified.get(index);
+        }
+
+        @Override
+        public int getDescendantCount() {
+            return descendants.get(index);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Node) {
+                Node that = (Node) o;
+                return that.index == this.index && that.getTree() == getTree();
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        private SnapshotTree getTree() {
+            return SnapshotTree.this;
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+}
@@ -1,7 +1,7 @@
 /*
- * @(#)TreevizApplet.java  1.0  2011-01-20
+ * @(#)TreevizApplet.java  1.1  2026-10-18
  * 
- * Copyright (c) 2011 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2011-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  * 
  * You may not use, copy or modify this file, except in compliance with the
@@ -651,7 +651,7 @@ public class TreevizApplet extends javax.swing.JApplet {
             public DemoTree construct() throws Exception {
                 DemoTree tree;
 
-                if (rootFile.getPath().endsWith(".txt")) {
+                if (DelimitedTableReader.isDelimitedFile(rootFile.getPath())) {
                     tree = new ManyEyesTree(rootFile);
                     return tree;
                 } else {
@@ -1,5 +1,5 @@
 /*
- * @(#)LastModifiedByYearWeighter.java  1.0  2010-01-11
+ * @(#)LastModifiedByYearWeighter.java  1.4  2026-10-18
  * 
  * Copyright (c) 2010 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -13,18 +13,19 @@ package ch.randelshofer.tree.demo;
 
 import ch.randelshofer.tree.TreeNode;
 import ch.randelshofer.tree.TreePath2;
-import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
-import java.util.Set;
 
 /**
  * LastModifiedByYearWeighter.
  *
  * @author Werner Randelshofer
- * @version 1.0 2010-01-11 Created.
+ * @version 1.4 2026-10-18 Calculates the histograms in parallel.
+ * <br>1.3 2026-10-18 Takes the minimum, maximum and median from a
+ * quantile sketch instead of sorting the dates.
+ * <br>1.2 2026-10-18 Does not request the set of attribute values.
+ * <br>1.1 2026-10-18 Reads the dates from an attribute column.
+ * <br>1.0 2010-01-11 Created.
  */
 public class TreevizFileSystemXMLByYearInfoWeighter extends TreevizFileSystemXMLInfoWeighter {
     protected int minYear;
@@ -44,17 +45,15 @@ private GregorianCalendar cal=new GregorianCalendar();
     @Override
     public void init(TreeNode root) {
         if (info.getType(key) == AbstractNodeInfo.DataType.DATE_STRING) {
+            column = info.getColumn(key);
             Date minDate = new Date(Long.MAX_VALUE);
             Date maxDate = new Date(Long.MIN_VALUE);
-            Set<String> stringValues = info.getValues(key);
-
-            ArrayList<Date> dates = new ArrayList<Date>();
-            collectDatesRecursive((TreevizFileSystemXMLNode) root, dates);
-            Collections.sort(dates);
-            if (dates.size() > 0) {
-                minDate = dates.get(0);
-                maxDate = dates.get(dates.size() - 1);
-                median = dates.get(dates.size() / 2);
+
+            QuantileSketch sketch = column.getSketch();
+            if (sketch.getCount() > 0) {
+                minDate = new Date((long) sketch.getMin());
+                maxDate = new Date((long) sketch.getMax());
+                median = new Date(Math.round(sketch.getMedian()));
                 min = minDate;
                 max = maxDate;
             }
@@ -72,14 +71,14 @@ medianYear=cal.get(GregorianCalendar.YEAR);
             histogram = new int[maxYear-minYear+1];
         sizeHistogram=new long[histogram.length];
 
-            calculateDateHistogramRecursive(root); 
+            calculateDateHistogram(root); 
 
 
             } else {
                 histogram = new int[1];
                 histogram[0] = 1;
         sizeHistogram=new long[histogram.length];
-            calculateDateHistogramRecursive(root);
+            calculateDateHistogram(root);
             }
         } else {
             histogram = new int[1];
@@ -121,26 +120,10 @@ int lmYear=cal.get(GregorianCalendar.YEAR);
     @Override
     public float getWeight(TreePath2 path) {
         TreevizFileSystemXMLNode node = (TreevizFileSystemXMLNode) path.getLastPathComponent();
-        Object obj = node.getAttribute(key);
-        String str = (obj != null) ? obj.toString() : null;
-        if (str != null && min != null && max != null) {
-            try {
-                Date value;
-                try {
-                    value = (Date) isoDateFormatter.parse(str);
-
-                } catch (ParseException ex) {
-                    value = (Date) isoDateFormatter2.parse(str);
-                }
-cal.setTime(value);
-int lmYear=cal.get(GregorianCalendar.YEAR);
-        return (float) ((lmYear - minYear) /
-                (float) (maxYear - minYear));
-                //return (value.getTime() - ((Date) min).getTime()) / (float) (((Date) max).getTime() - ((Date) min).getTime());
-            } catch (ParseException ex) {
-            } catch (NumberFormatException ex) {
-            } catch (ArrayIndexOutOfBoundsException ex) {
-            }
+        if (column != null && min != null && max != null && column.isSet(node.getIndex())) {
+            cal.setTimeInMillis(column.get(node.getIndex()));
+            int lmYear = cal.get(GregorianCalendar.YEAR);
+            return (float) ((lmYear - minYear) / (float) (maxYear - minYear));
         }
         return 0f;
     }
@@ -1,5 +1,5 @@
 /*
- * @(#)InfoWeighter.java  1.0  23. Juni 2008
+ * @(#)InfoWeighter.java  1.4  2026-10-18
  *
  * Copyright (c) 2007 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -15,19 +15,19 @@ import ch.randelshofer.text.FileSizeFormat;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.List;
-import java.util.Set;
 
 /**
  * InfoWeighter.
  *
  * @author  Werner Randelshofer
- * @version 1.0 23. Juni 2008 Created.
+ * @version 1.4 2026-10-18 Calculates the histograms with a parallel tree
+ * reduction.
+ * <br>1.3 2026-10-18 Takes the minimum, maximum and median from a
+ * quantile sketch instead of sorting the dates.
+ * <br>1.2 2026-10-18 Does not request the set of attribute values.
+ * <br>1.1 2026-10-18 Reads the dates from an attribute column.
+ * <br>1.0 23. Juni 2008 Created.
  */
 public class TreevizFileSystemXMLInfoWeighter implements Weighter {
 
@@ -39,8 +39,7 @@ public class TreevizFileSystemXMLInfoWeighter implements Weighter {
     protected Object min;
     protected Object max;
     protected Object median;
-    protected DateFormat isoDateFormatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-    protected DateFormat isoDateFormatter2 = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    protected AttributeColumn column;
     protected static FileSizeFormat shortWeightFormat;
     protected static NumberFormat intFormat = DecimalFormat.getIntegerInstance();
 
@@ -61,17 +60,15 @@ public class TreevizFileSystemXMLInfoWeighter implements Weighter {
     @Override
     public void init(TreeNode root) {
         if (info.getType(key) == AbstractNodeInfo.DataType.DATE_STRING) {
+            column = info.getColumn(key);
             Date minDate = new Date(Long.MAX_VALUE);
             Date maxDate = new Date(Long.MIN_VALUE);
-            Set<String> stringValues = info.getValues(key);
-
-            ArrayList<Date> dates = new ArrayList<Date>();
-            collectDatesRecursive((TreevizFileSystemXMLNode) root, dates);
-            Collections.sort(dates);
-            if (dates.size() > 0) {
-                minDate = dates.get(0);
-                maxDate = dates.get(dates.size() - 1);
-                median = dates.get(dates.size() / 2);
+
+            QuantileSketch sketch = column.getSketch();
+            if (sketch.getCount() > 0) {
+                minDate = new Date((long) sketch.getMin());
+                maxDate = new Date((long) sketch.getMax());
+                median = new Date(Math.round(sketch.getMedian()));
                 min = minDate;
                 max = maxDate;
             }
@@ -80,7 +77,7 @@ public class TreevizFileSystemXMLInfoWeighter implements Weighter {
                 histogram = new int[256];
                 sizeHistogram = new long[histogram.length];
 
-                calculateDateHistogramRecursive(root);
+                calculateDateHistogram(root);
             } else {
                 histogram = new int[1];
                 histogram[0] = 1;
@@ -93,94 +90,60 @@ public class TreevizFileSystemXMLInfoWeighter implements Weighter {
         }
     }
 
-    protected void collectDatesRecursive(TreevizFileSystemXMLNode node, List<Date> dates) {
-        Object obj = node.getAttribute(key);
-        String str = (obj != null) ? obj.toString() : null;
-        if (str != null) {
-            try {
-                Date value;
-                try {
-                    synchronized (isoDateFormatter) {
-                    value = (Date) isoDateFormatter.parse(str);
-                    }
-                } catch (ParseException ex) {
-                    synchronized (isoDateFormatter2) {
-                    value = (Date) isoDateFormatter2.parse(str);
-                    }
-                }
-                dates.add(value);
-            } catch (ParseException ex) {
-                // skip unparsable dates
-            }
-        }
-        for (TreeNode child : node.children()) {
-            collectDatesRecursive((TreevizFileSystemXMLNode) child, dates);
-        }
-    }
-
     /**
-     * Calculates the date histogram recursively.
-     * 
+     * Calculates the date histogram and the size histogram. The histograms
+     * must have been created. The tree is walked by many threads; each
+     * thread counts into histograms of its own.
+     *
      * @param root
      */
-    protected void calculateDateHistogramRecursive(TreeNode root) {
-        TreevizFileSystemXMLNode node = (TreevizFileSystemXMLNode) root;
-        Object obj = node.getAttribute(key);
-        String str = (obj != null) ? obj.toString() : null;
-        if (str != null) {
-            try {
-                Date value;
-                try {
-                    synchronized (isoDateFormatter) {
-                    value = (Date) isoDateFormatter.parse(str);
-                    }
-                } catch (ParseException ex) {
-                    synchronized (isoDateFormatter2) {
-                    value = (Date) isoDateFormatter2.parse(str);
+    protected void calculateDateHistogram(TreeNode root) {
+        final int binCount = histogram.length;
+        final long mn = ((Date) min).getTime();
+        final double range = ((Date) max).getTime() - mn;
+        TreeReduction<long[][]> reduction = new TreeReduction<long[][]>() {
+
+            @Override
+            protected long[][] createResult() {
+                return new long[2][binCount];
+            }
+
+            @Override
+            protected void accumulate(long[][] result, TreeNode n) {
+                TreevizFileSystemXMLNode node = (TreevizFileSystemXMLNode) n;
+                if (column.isSet(node.getIndex())) {
+                    long value = column.get(node.getIndex());
+                    int index = Math.min(binCount - 1, Math.max(0, (int) ((value - mn) * (binCount - 1) / range)));
+                    result[0][index]++;
+
+                    if (!node.getAllowsChildren()) {
+                        result[1][index] += node.getCumulatedWeight();
                     }
                 }
-                int index = Math.min(histogram.length - 1, Math.max(0, (int) ((value.getTime() - ((Date) min).getTime()) * (histogram.length - 1) / (double) (((Date) max).getTime() - ((Date) min).getTime()))));
-                histogram[index]++;
+            }
 
-                if (!node.getAllowsChildren()) {
-                    sizeHistogram[index] += node.getCumulatedWeight();
+            @Override
+            protected long[][] combine(long[][] result1, long[][] result2) {
+                for (int i = 0; i < binCount; i++) {
+                    result1[0][i] += result2[0][i];
+                    result1[1][i] += result2[1][i];
                 }
-
-
-            } catch (NumberFormatException ex) {
-                // skip unparsable dates
-            } catch (ParseException ex) {
-                // skip unparsable dates
+                return result1;
             }
-        }
-        for (TreeNode child : root.children()) {
-            calculateDateHistogramRecursive(child);
+        };
+        long[][] result = reduction.reduce(root);
+        for (int i = 0; i < binCount; i++) {
+            histogram[i] += (int) result[0][i];
+            sizeHistogram[i] += result[1][i];
         }
     }
 
     @Override
     public float getWeight(TreePath2 path) {
         TreevizFileSystemXMLNode node = (TreevizFileSystemXMLNode) path.getLastPathComponent();
-        Object obj = node.getAttribute(key);
-        String str = (obj != null) ? obj.toString() : null;
-        if (str != null && min != null && max != null) {
-            try {
-                Date value;
-                try {
-                    synchronized (isoDateFormatter) {
-                    value = (Date) isoDateFormatter.parse(str);
-                    }
-
-                } catch (ParseException ex) {
-                    synchronized (isoDateFormatter2) {
-                    value = (Date) isoDateFormatter2.parse(str);
-                    }
-                }
-                return (value.getTime() - ((Date) min).getTime()) / (float) (((Date) max).getTime() - ((Date) min).getTime());
-            } catch (ParseException ex) {
-            } catch (NumberFormatException ex) {
-            } catch (ArrayIndexOutOfBoundsException ex) {
-            }
+        if (column != null && min != null && max != null && column.isSet(node.getIndex())) {
+            long value = column.get(node.getIndex());
+            return (value - ((Date) min).getTime()) / (float) (((Date) max).getTime() - ((Date) min).getTime());
         }
         return 0f;
     }
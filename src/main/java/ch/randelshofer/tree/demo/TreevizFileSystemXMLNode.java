@@ -1,7 +1,7 @@
 /*
- * @(#)TreevizFileSystemXMLNode.java  1.0  4. Juli 2008
+ * @(#)TreevizFileSystemXMLNode.java  1.2  2026-10-18
  *
- * Copyright (c) 2008 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2008-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -17,23 +17,42 @@ import java.util.*;
 
 /**
  * TreevizFileSystemXMLNode.
+ * <p>
+ * The attributes are stored against an {@link AttributeSchema} which is
+ * shared by all nodes of a document, like the attributes of {@link XMLNode}.
  *
  * @author Werner Randelshofer
- * @version 1.0 4. Juli 2008 Created.
+ * @version 1.2 2026-10-18 Adds an index for attribute columns.
+ * <br>1.1 2026-10-18 Stores attributes in arrays instead of a hash map.
+ * <br>1.0 4. Juli 2008 Created.
  */
 public class TreevizFileSystemXMLNode implements TreeNode {
 
     private ArrayList<TreevizFileSystemXMLNode> children;
     private String name;
-    private HashMap<String, Object> attributes;
+    private AttributeSchema schema;
+    private int[] attributeIds;
+    private Object[] attributeValues;
     private long cumulatedWeight;
+    private int index = -1;
     private int descendants = -1;
+    private final static Object[] NO_VALUES = new Object[0];
 
     /**
-     * Creates a new instance.
+     * Creates a new instance with its own attribute schema.
      */
     public TreevizFileSystemXMLNode() {
-        attributes = new HashMap<String, Object>();
+        this(new AttributeSchema());
+    }
+
+    /**
+     * Creates a new instance which stores its attributes against the
+     * specified schema.
+     */
+    public TreevizFileSystemXMLNode(AttributeSchema schema) {
+        this.schema = schema;
+        attributeIds = schema.share(null);
+        attributeValues = NO_VALUES;
     }
 
     @Override
@@ -61,18 +80,85 @@ public class TreevizFileSystemXMLNode implements TreeNode {
         return name;
     }
 
+    public AttributeSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Sets all attributes at once.
+     *
+     * @param ids The ids of the attribute names in the schema.
+     * @param values The attribute values.
+     */
+    public void setAttributes(int[] ids, Object[] values) {
+        attributeIds = schema.share(ids);
+        attributeValues = values;
+    }
+
     public void putAttribute(String key, Object value) {
-        attributes.put(key, value);
+        int index = indexOf(schema.findId(key));
+        if (index == -1) {
+            int n = attributeIds.length;
+            int[] ids = Arrays.copyOf(attributeIds, n + 1);
+            ids[n] = schema.getId(key);
+            attributeIds = schema.share(ids);
+            attributeValues = Arrays.copyOf(attributeValues, n + 1);
+            index = n;
+        }
+        attributeValues[index] = value;
     }
 
     public Object getAttribute(String key) {
-        return attributes.get(key);
+        int index = indexOf(schema.findId(key));
+        return index == -1 ? null : attributeValues[index];
+    }
+
+    private int indexOf(int id) {
+        if (id != -1) {
+            for (int i = 0; i < attributeIds.length; i++) {
+                if (attributeIds[i] == id) {
+                    return i;
+                }
+            }
+        }
+        return -1;
     }
 
-    public HashMap<String, Object> getAttributes() {
+    public int getAttributeCount() {
+        return attributeIds.length;
+    }
+
+    public String getAttributeName(int index) {
+        return schema.getName(attributeIds[index]);
+    }
+
+    public Object getAttributeValue(int index) {
+        return attributeValues[index];
+    }
+
+    /**
+     * Returns a copy of the attributes of this node.
+     */
+    public Map<String, Object> getAttributes() {
+        LinkedHashMap<String, Object> attributes = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < attributeIds.length; i++) {
+            attributes.put(getAttributeName(i), attributeValues[i]);
+        }
         return attributes;
     }
 
+    /**
+     * Returns the index of this node in the attribute columns of its tree,
+     * or -1 if the node has no index.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int newValue) {
+        index = newValue;
+    }
+
     public long getCumulatedWeight() {
         return cumulatedWeight;
     }
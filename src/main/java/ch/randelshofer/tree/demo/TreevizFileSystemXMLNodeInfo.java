@@ -1,5 +1,5 @@
 /*
- * @(#)XMLNodeInfo.java  1.4  2011-08-11
+ * @(#)XMLNodeInfo.java  1.9  2026-10-18
  *
  * Copyright (c) 2007-2011 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -24,9 +24,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
 import java.util.prefs.Preferences;
 import javax.swing.Action;
@@ -40,7 +38,14 @@ import javax.swing.table.TableModel;
  * like file system attrMap. 
  *
  * @author  Werner Randelshofer
- * @version 1.4 2011-08-11 Don't use preferences for  determining the weight,
+ * @version 1.9 2026-10-18 Computes the cached weights again, if another
+ * weight attribute has been chosen.
+ * <br>1.8 2026-10-18 Collects streaming statistics of the attributes
+ * instead of their value sets.
+ * <br>1.7 2026-10-18 Can be initialized with cached statistics.
+ * <br>1.6 2026-10-18 Reads weights from attribute columns.
+ * <br>1.5 2026-10-18 Collects attributes without copying them into maps.
+ * <br>1.4 2011-08-11 Don't use preferences for  determining the weight,
  * color and name attribute.
  * <br>1.3 2011-01-20 Fall back to generic preferences.
  * <br>1.2 2010-10-17 Use preferences for determining the weight, color
@@ -61,15 +66,18 @@ private TreevizFileSystemXMLNode root;
     private HashMap<String, TreevizFileSystemXMLNode> selectedUsers;
     private boolean isInitialized = false;
 
-    private HashMap<String, HashSet<String>> attributes;
+    private HashMap<String, AttributeStatistics> statistics;
     private HashMap<String, DataType> types;
-    private HashMap<String, HashSet<String>> userAttributes;
+    private HashMap<String, AttributeStatistics> userStatistics;
     private HashMap<String, TreevizFileSystemXMLNode> userMap;
     private HashMap<String, DataType> userTypes;
     private String nameAttribute;
     private String weightAttribute;
     private String colorAttribute;
     private TreevizFileSystemXMLTree tree;
+    private int nodeCount;
+    private HashMap<String, AttributeColumn> columns = new HashMap<String, AttributeColumn>();
+    private AttributeColumn weightColumn;
     private static NumberFormat intFormat = DecimalFormat.getIntegerInstance();
     private static NumberFormat shortDecFormat;
     static {
@@ -81,7 +89,7 @@ private TreevizFileSystemXMLNode root;
     public TreevizFileSystemXMLNodeInfo(TreevizFileSystemXMLTree tree) {
         colorizer = new RGBColorizer();
         //weighter = new LastModifiedWeighter();
-        attributes = new HashMap<String, HashSet<String>>();
+        statistics = new HashMap<String, AttributeStatistics>();
         this.tree = tree;
         shortWeightFormat =  new FileSizeFormat();
         shortWeightFormat.setShortFormat(true);
@@ -114,8 +122,8 @@ private TreevizFileSystemXMLNode root;
     @Override
     public long getWeight(TreePath2<TreeNode> path) {
         TreevizFileSystemXMLNode node = (TreevizFileSystemXMLNode) path.getLastPathComponent();
-        if (!node.getAllowsChildren() && weightAttribute != null && node.getAttribute(weightAttribute) != null) {
-            return Math.max(1, Long.valueOf(node.getAttribute(weightAttribute).toString()).longValue());
+        if (!node.getAllowsChildren() && weightColumn != null && weightColumn.isSet(node.getIndex())) {
+            return Math.max(1, weightColumn.get(node.getIndex()));
         } else {
             return Math.max(0, node.getCumulatedWeight());
         }
@@ -260,21 +268,53 @@ private TreevizFileSystemXMLNode root;
         this.root=root;
         if (!isInitialized) {
             isInitialized = true;
+            nodeCount = numberNodes(root, 0);
             userTypes = new HashMap<String, DataType>();
-            userAttributes = new HashMap<String, HashSet<String>>();
+            userStatistics = new HashMap<String, AttributeStatistics>();
             types = new HashMap<String, DataType>();
-            attributes = new HashMap<String, HashSet<String>>();
-            computeBasicStats(tree.getUsersRoot(), userTypes, userAttributes);
-            computeBasicStats(root, types, attributes);
+            statistics = new HashMap<String, AttributeStatistics>();
+            computeBasicStats(tree.getUsersRoot(), userTypes, userStatistics);
+            computeBasicStats(root, types, statistics);
             computeFilesStats(root);
             computeUserStats(tree.getUsersRoot(), root);
         }
     }
 
-    public void computeBasicStats(TreevizFileSystemXMLNode root, HashMap<String, DataType> typeMap, HashMap<String, HashSet<String>> attrMap) {
+    /**
+     * Initializes this info with data types, columns and cumulated weights
+     * which have been computed before. The file nodes must have been
+     * numbered in depth first order, and their cumulated weights must have
+     * been set. The statistics of the users are computed again.
+     *
+     * @param root The root of the files.
+     * @param nodeCount The number of file nodes.
+     * @param userTypes The data types of the user attributes.
+     * @param types The data types of the file attributes.
+     * @param columns The attribute columns which have been created before.
+     * @param weightAttribute The attribute with which the cumulated weights
+     * have been computed.
+     */
+    public void init(TreevizFileSystemXMLNode root, int nodeCount, HashMap<String, DataType> userTypes,
+            HashMap<String, DataType> types, Map<String, AttributeColumn> columns, String weightAttribute) {
+        this.root = root;
+        if (!isInitialized) {
+            isInitialized = true;
+            this.nodeCount = nodeCount;
+            this.userTypes = userTypes;
+            this.types = types;
+            // The attribute statistics are collected when they are requested.
+            userStatistics = null;
+            statistics = null;
+            this.columns.putAll(columns);
+            computeFilesStats(root, weightAttribute);
+            computeUserStats(tree.getUsersRoot(), root);
+        }
+    }
+
+    public void computeBasicStats(TreevizFileSystemXMLNode root, HashMap<String, DataType> typeMap, HashMap<String, AttributeStatistics> attrMap) {
         collectAttributesRecursively(root, attrMap);
-        for (Map.Entry<String, HashSet<String>> entry : attrMap.entrySet()) {
-            typeMap.put(entry.getKey(), determineDataType(entry.getValue()));
+        for (Map.Entry<String, AttributeStatistics> entry : attrMap.entrySet()) {
+            typeMap.put(entry.getKey(), entry.getValue().getType());
         }
 
         // Determine the name attribute
@@ -295,6 +335,17 @@ private TreevizFileSystemXMLNode root;
     }
 
     public void computeFilesStats(TreevizFileSystemXMLNode root) {
+        computeFilesStats(root, null);
+    }
+
+    /**
+     * Determines the weight and color attributes, and creates the weighters.
+     *
+     * @param cumulatedAttribute The attribute with which the cumulated
+     * weights of the nodes have been computed, or null if they need to be
+     * computed.
+     */
+    private void computeFilesStats(TreevizFileSystemXMLNode root, String cumulatedAttribute) {
         Preferences prefs = PreferencesUtil2.userNodeForPackage(XMLFileAccessory.class);
         String rootElementName = "TreevizFileSystem";
         
@@ -320,8 +371,11 @@ private TreevizFileSystemXMLNode root;
         }
 
 
+        weightColumn = (types.get(weightAttribute) == DataType.NUMERIC_STRING) ? getColumn(weightAttribute) : null;
         weighter = new TreevizFileSystemXMLInfoWeighter(this, weightAttribute);
-        root.accumulateWeights(this, null);
+        if (cumulatedAttribute == null || !cumulatedAttribute.equals(weightAttribute)) {
+            root.accumulateWeights(this, null);
+        }
 
         // Determine the color attribute
         if (types.get(colorAttribute) != DataType.DATE_STRING) {
@@ -393,19 +447,17 @@ private TreevizFileSystemXMLNode root;
 
     }
 
-    public void collectAttributesRecursively(TreevizFileSystemXMLNode node, HashMap<String, HashSet<String>> attrMap) {
-        for (Map.Entry<String, Object> entry : node.getAttributes().entrySet()) {
-            String key = entry.getKey();
-            Object obj = entry.getValue();
+    public void collectAttributesRecursively(TreevizFileSystemXMLNode node, HashMap<String, AttributeStatistics> attrMap) {
+        for (int i = 0, n = node.getAttributeCount(); i < n; i++) {
+            String key = node.getAttributeName(i);
+            Object obj = node.getAttributeValue(i);
             String value = (obj != null) ? obj.toString() : null;
-            HashSet<String> valueSet;
-            if (attrMap.containsKey(key)) {
-                valueSet = attrMap.get(key);
-            } else {
-                valueSet = new HashSet<String>();
-                attrMap.put(key, valueSet);
+            AttributeStatistics valueStatistics = attrMap.get(key);
+            if (valueStatistics == null) {
+                valueStatistics = new AttributeStatistics();
+                attrMap.put(key, valueStatistics);
             }
-            valueSet.add(value);
+            valueStatistics.add(value);
         }
         for (TreeNode child : node.children()) {
             collectAttributesRecursively((TreevizFileSystemXMLNode) child, attrMap);
@@ -448,12 +500,99 @@ private TreevizFileSystemXMLNode root;
         }
     }
 
+    /**
+     * Assigns an index to the specified node and its descendants.
+     *
+     * @return the next free index.
+     */
+    private int numberNodes(TreevizFileSystemXMLNode node, int index) {
+        node.setIndex(index++);
+        for (TreeNode child : node.children()) {
+            index = numberNodes((TreevizFileSystemXMLNode) child, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the parsed values of the specified attribute of the files.
+     * The column is created when it is requested for the first time.
+     *
+     * @return the column, or null if the attribute is text or unknown.
+     */
+    public synchronized AttributeColumn getColumn(String key) {
+        AttributeColumn column = columns.get(key);
+        if (column == null) {
+            DataType type = (types == null) ? null : types.get(key);
+            if (type == null || type == DataType.TEXT_STRING) {
+                return null;
+            }
+            column = new AttributeColumn(type, nodeCount);
+            fillColumnRecursively(root, key, column);
+            column.finishParsing();
+            columns.put(key, column);
+        }
+        return column;
+    }
+
+    private void fillColumnRecursively(TreevizFileSystemXMLNode node, String key, AttributeColumn column) {
+        Object obj = node.getAttribute(key);
+        if (obj != null) {
+            column.parse(node.getIndex(), obj.toString());
+        }
+        for (TreeNode child : node.children()) {
+            fillColumnRecursively((TreevizFileSystemXMLNode) child, key, column);
+        }
+    }
+
     public TreevizFileSystemXMLNodeInfo.DataType getType(String key) {
         return types.get(key);
     }
 
-    public Set<String> getValues(String key) {
-        return attributes.get(key);
+    /**
+     * Returns the statistics of the specified attribute. If the info has
+     * been initialized from a cache, the statistics are collected when they
+     * are requested for the first time.
+     *
+     * @return the statistics, or null if no node has the attribute.
+     */
+    public synchronized AttributeStatistics getStatistics(String key) {
+        if (statistics == null) {
+            statistics = new HashMap<String, AttributeStatistics>();
+            collectAttributesRecursively(root, statistics);
+        }
+        return statistics.get(key);
+    }
+
+    /**
+     * Returns the data types of the file attributes.
+     */
+    public Map<String, DataType> getTypes() {
+        return Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * Returns the data types of the user attributes.
+     */
+    public Map<String, DataType> getUserTypes() {
+        return Collections.unmodifiableMap(userTypes);
+    }
+
+    /**
+     * Returns the attribute columns which have been created so far.
+     */
+    public synchronized Map<String, AttributeColumn> getColumns() {
+        return new HashMap<String, AttributeColumn>(columns);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the attribute with which the cumulated weights are computed.
+     */
+    public String getWeightAttribute() {
+        return weightAttribute;
     }
 
     public boolean isNodeSelected(TreevizFileSystemXMLNode node) {
@@ -0,0 +1,655 @@
+/*
+ * @(#)TreevizFileSystemXMLScanner.java  1.2  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.gui.ProgressObserver;
+import ch.randelshofer.gui.ProgressSampler;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Reads an uncompressed TreevizFileSystem XML file directly from the bytes
+ * of a memory mapped file.
+ * <p>
+ * TreevizFileSystem files are generated by a program. They use UTF-8, they
+ * have no document type declaration and no namespaces, and their attribute
+ * values rarely contain entity references. This scanner handles exactly this
+ * subset of XML: it finds the elements and attributes in the mapped bytes,
+ * and decodes a name or a value only the first time it sees its bytes.
+ * Names and values which occur again are looked up by their bytes, so no
+ * string is created for them. A {@link ValueDictionary} decides which
+ * attributes have values which are worth sharing.
+ * <p>
+ * The scanner rejects all files which use more of XML than this. It also
+ * rejects malformed files. The caller is expected to read a rejected file
+ * with a complete XML parser, which then reports the errors.
+ * <p>
+ * The scanner produces the same tree as the {@link TreevizFileSystemXMLTree}
+ * does with a streaming parser.
+ *
+ * @author Werner Randelshofer
+ * @version 1.2 2026-10-18 Reports the progress through a
+ * {@link ProgressSampler}.
+ * <br>1.1 2026-10-18 Shares only values of attributes with few
+ * distinct values.
+ * <br>1.0 2026-10-18 Created.
+ */
+public class TreevizFileSystemXMLScanner {
+
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+    private final static Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    /** The counters are updated each time this many bytes have been read. */
+    private final static int PROGRESS_INTERVAL = 1 << 16;
+
+    private ByteBuffer buf;
+    private int pos;
+    private int limit;
+    private byte[] scratch = new byte[256];
+    private BytePool elementNames;
+    private BytePool attributeNames;
+    /** The shared values of each attribute, indexed by attribute id. */
+    private BytePool[] valuePools;
+    private ValueDictionary values;
+    private AttributeSchema schema;
+    private String valueStatistics;
+    private volatile boolean isAborted;
+
+    /**
+     * Thrown when the scanner can not handle the file.
+     */
+    private static class RejectedException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Reads the specified file.
+     *
+     * @param file An uncompressed TreevizFileSystem XML file.
+     * @param p Tracks the progress. The progress is measured in kilobytes.
+     * @return the root element, or null if the scanner rejects the file.
+     * @throws IOException if the file can not be read, or if reading has
+     * been aborted.
+     */
+    public TreevizFileSystemXMLNode parse(File file, ProgressObserver p) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            // The mapping stays valid after the file has been closed.
+            raf.close();
+        }
+        pos = 0;
+        limit = buf.limit();
+        p.setMinimum(0);
+        p.setMaximum((limit >>> 10) + 1);
+        p.setProgress(0);
+        p.setIndeterminate(false);
+        ProgressSampler sampler = new ProgressSampler(p);
+        sampler.setTotalBytes(limit);
+        p.setDoCancel(new Runnable() {
+
+            @Override
+            public void run() {
+                isAborted = true;
+            }
+        });
+
+        elementNames = new BytePool();
+        attributeNames = new BytePool();
+        valuePools = new BytePool[16];
+        values = new ValueDictionary();
+        schema = new AttributeSchema();
+        sampler.start();
+        try {
+            TreevizFileSystemXMLNode documentRoot = parseDocument(sampler);
+            valueStatistics = values.getStatistics(schema);
+            return documentRoot;
+        } catch (RejectedException e) {
+            return null;
+        } finally {
+            sampler.stop();
+            // Release the mapping as soon as the buffer is garbage collected.
+            buf = null;
+            elementNames = attributeNames = null;
+            valuePools = null;
+            values = null;
+        }
+    }
+
+    /**
+     * Returns a description of the shared attribute values of the file
+     * which has been read, see {@link ValueDictionary#getStatistics}.
+     *
+     * @return the description, or null if the scanner has rejected the file.
+     */
+    public String getValueStatistics() {
+        return valueStatistics;
+    }
+
+    private TreevizFileSystemXMLNode parseDocument(ProgressSampler sampler) throws IOException, RejectedException {
+        // Skip the byte order mark of UTF-8
+        if (limit >= 3 && buf.get(0) == (byte) 0xef && buf.get(1) == (byte) 0xbb && buf.get(2) == (byte) 0xbf) {
+            pos = 3;
+        }
+        ArrayList<TreevizFileSystemXMLNode> stack = new ArrayList<TreevizFileSystemXMLNode>();
+        int[] nameStack = new int[16];
+        TreevizFileSystemXMLNode documentRoot = null;
+        int[] ids = new int[8];
+        Object[] nodeValues = new Object[8];
+        int nextProgress = PROGRESS_INTERVAL;
+        int reportedPos = 0;
+        int nodeCount = 0;
+
+        while (true) {
+            // Skip character data. The tree does not use it.
+            while (pos < limit && buf.get(pos) != '<') {
+                pos++;
+            }
+            if (pos >= limit) {
+                break;
+            }
+            if (pos >= nextProgress) {
+                if (isAborted) {
+                    throw new IOException("Aborted");
+                }
+                sampler.addBytes(pos - reportedPos);
+                sampler.addNodes(nodeCount);
+                reportedPos = pos;
+                nodeCount = 0;
+                nextProgress = pos + PROGRESS_INTERVAL;
+            }
+            pos++;
+            byte b = get(pos);
+            if (b == '?') {
+                skipProcessingInstruction();
+            } else if (b == '!') {
+                skipMarkupDeclaration();
+            } else if (b == '/') {
+                // End tag
+                pos++;
+                if (stack.isEmpty()) {
+                    throw new RejectedException("End tag without start tag");
+                }
+                int nameStart = pos;
+                int nameEnd = scanName();
+                int top = nameStack[stack.size() - 1];
+                if (!elementNames.matches(top, buf, nameStart, nameEnd - nameStart)) {
+                    throw new RejectedException("End tag does not match start tag");
+                }
+                skipWhitespace();
+                expect('>');
+                stack.remove(stack.size() - 1);
+            } else {
+                // Start tag
+                if (documentRoot != null && stack.isEmpty()) {
+                    throw new RejectedException("More than one root element");
+                }
+                int nameStart = pos;
+                int nameEnd = scanName();
+                int nameEntry = elementNames.find(buf, nameStart, nameEnd - nameStart);
+                if (nameEntry == -1) {
+                    nameEntry = elementNames.add(buf, nameStart, nameEnd - nameStart, decode(nameStart, nameEnd, true).intern());
+                }
+                String name = elementNames.getString(nameEntry);
+                if (documentRoot == null && !name.equals("TreevizFileSystem")) {
+                    throw new RejectedException("Illegal root element");
+                }
+                TreevizFileSystemXMLNode node = new TreevizFileSystemXMLNode(schema);
+                node.setName(name);
+                nodeCount++;
+
+                int n = 0;
+                boolean isEmptyElement;
+                while (true) {
+                    boolean hasWhitespace = skipWhitespace();
+                    b = get(pos);
+                    if (b == '>') {
+                        pos++;
+                        isEmptyElement = false;
+                        break;
+                    } else if (b == '/') {
+                        pos++;
+                        expect('>');
+                        isEmptyElement = true;
+                        break;
+                    } else if (!hasWhitespace) {
+                        throw new RejectedException("Missing whitespace before attribute");
+                    }
+                    // Attribute
+                    int attrStart = pos;
+                    int attrEnd = scanName();
+                    int attrEntry = attributeNames.find(buf, attrStart, attrEnd - attrStart);
+                    if (attrEntry == -1) {
+                        String attrName = decode(attrStart, attrEnd, true);
+                        if (attrName.startsWith("xmlns")) {
+                            throw new RejectedException("Namespace declaration");
+                        }
+                        attrEntry = attributeNames.add(buf, attrStart, attrEnd - attrStart, attrName);
+                        attributeNames.setId(attrEntry, schema.getId(attrName));
+                    }
+                    int id = attributeNames.getId(attrEntry);
+                    for (int i = 0; i < n; i++) {
+                        if (ids[i] == id) {
+                            throw new RejectedException("Duplicate attribute");
+                        }
+                    }
+                    skipWhitespace();
+                    expect('=');
+                    skipWhitespace();
+                    if (n == ids.length) {
+                        ids = Arrays.copyOf(ids, n * 2);
+                        nodeValues = Arrays.copyOf(nodeValues, n * 2);
+                    }
+                    ids[n] = id;
+                    nodeValues[n] = scanValue(id);
+                    n++;
+                }
+                if (n > 0) {
+                    node.setAttributes(Arrays.copyOf(ids, n), Arrays.copyOf(nodeValues, n));
+                }
+
+                if (stack.isEmpty()) {
+                    documentRoot = node;
+                } else {
+                    stack.get(stack.size() - 1).addChild(node);
+                }
+                if (!isEmptyElement) {
+                    if (stack.size() == nameStack.length) {
+                        nameStack = Arrays.copyOf(nameStack, nameStack.length * 2);
+                    }
+                    nameStack[stack.size()] = nameEntry;
+                    stack.add(node);
+                }
+            }
+        }
+        sampler.addBytes(limit - reportedPos);
+        sampler.addNodes(nodeCount);
+        if (documentRoot == null || !stack.isEmpty()) {
+            throw new RejectedException("Unexpected end of file");
+        }
+        return documentRoot;
+    }
+
+    private byte get(int index) throws RejectedException {
+        if (index >= limit) {
+            throw new RejectedException("Unexpected end of file");
+        }
+        return buf.get(index);
+    }
+
+    private void expect(char c) throws RejectedException {
+        if (get(pos) != c) {
+            throw new RejectedException("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    /**
+     * Skips whitespace.
+     *
+     * @return true if whitespace has been skipped.
+     */
+    private boolean skipWhitespace() {
+        int start = pos;
+        while (pos < limit) {
+            byte b = buf.get(pos);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                break;
+            }
+            pos++;
+        }
+        return pos > start;
+    }
+
+    /**
+     * Scans a name.
+     *
+     * @return the end of the name.
+     */
+    private int scanName() throws RejectedException {
+        int start = pos;
+        while (true) {
+            byte b = get(pos);
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t'
+                    || b == '/' || b == '>' || b == '=') {
+                break;
+            }
+            if (b == ':') {
+                throw new RejectedException("Qualified name");
+            }
+            if (b == '<' || b == '"' || b == '\'' || b == '&') {
+                throw new RejectedException("Illegal character in name");
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw new RejectedException("Empty name");
+        }
+        return pos;
+    }
+
+    /**
+     * Scans a quoted attribute value. Equal values are shared, as long as
+     * the {@link ValueDictionary} shares the values of the attribute.
+     *
+     * @param id The id of the attribute.
+     */
+    private String scanValue(int id) throws RejectedException {
+        byte quote = get(pos);
+        if (quote != '"' && quote != '\'') {
+            throw new RejectedException("Unquoted attribute value");
+        }
+        pos++;
+        int start = pos;
+        boolean isAscii = true;
+        boolean hasReference = false;
+        while (true) {
+            byte b = get(pos);
+            if (b == quote) {
+                break;
+            }
+            if (b == '<') {
+                throw new RejectedException("Illegal character in attribute value");
+            }
+            if (b >= 0 && b < ' ') {
+                // The parser would normalize whitespace.
+                throw new RejectedException("Control character in attribute value");
+            }
+            if (b == '&') {
+                hasReference = true;
+            }
+            isAscii &= b >= 0;
+            pos++;
+        }
+        int end = pos;
+        pos++;
+        if (hasReference) {
+            return values.share(id, resolveReferences(decode(start, end, isAscii)));
+        }
+        if (id >= valuePools.length) {
+            valuePools = Arrays.copyOf(valuePools, Math.max(id + 1, valuePools.length * 2));
+        }
+        BytePool pool = valuePools[id];
+        if (pool == null && values.isSharing(id)) {
+            pool = valuePools[id] = new BytePool();
+        }
+        if (pool != null) {
+            int entry = pool.find(buf, start, end - start);
+            if (entry != -1) {
+                values.countShared(id, end - start);
+                return pool.getString(entry);
+            }
+        }
+        String value = decode(start, end, isAscii);
+        if (values.countDistinct(id)) {
+            pool.add(buf, start, end - start, value);
+        } else {
+            // Release the pool of an attribute with too many distinct values
+            valuePools[id] = null;
+        }
+        return value;
+    }
+
+    /**
+     * Replaces the predefined entity references and the character
+     * references in the specified string.
+     */
+    private static String resolveReferences(String str) throws RejectedException {
+        StringBuilder b = new StringBuilder(str.length());
+        for (int i = 0, n = str.length(); i < n; i++) {
+            char c = str.charAt(i);
+            if (c != '&') {
+                b.append(c);
+                continue;
+            }
+            int end = str.indexOf(';', i);
+            if (end == -1) {
+                throw new RejectedException("Unterminated reference");
+            }
+            String ref = str.substring(i + 1, end);
+            if (ref.equals("amp")) {
+                b.append('&');
+            } else if (ref.equals("lt")) {
+                b.append('<');
+            } else if (ref.equals("gt")) {
+                b.append('>');
+            } else if (ref.equals("quot")) {
+                b.append('"');
+            } else if (ref.equals("apos")) {
+                b.append('\'');
+            } else if (ref.startsWith("#")) {
+                try {
+                    int cp = ref.startsWith("#x")
+                            ? Integer.parseInt(ref.substring(2), 16)
+                            : Integer.parseInt(ref.substring(1));
+                    b.appendCodePoint(cp);
+                } catch (IllegalArgumentException e) {
+                    throw new RejectedException("Illegal character reference");
+                }
+            } else {
+                throw new RejectedException("Entity reference");
+            }
+            i = end;
+        }
+        return b.toString();
+    }
+
+    /**
+     * Skips a processing instruction. Rejects an XML declaration with an
+     * encoding other than UTF-8.
+     */
+    private void skipProcessingInstruction() throws RejectedException {
+        int start = pos + 1;
+        int end = indexOf("?>");
+        if (start + 3 <= end && buf.get(start) == 'x' && buf.get(start + 1) == 'm' && buf.get(start + 2) == 'l') {
+            String decl = decode(start, end, false).toLowerCase();
+            int encoding = decl.indexOf("encoding");
+            if (encoding != -1) {
+                String rest = decl.substring(encoding);
+                if (!rest.matches("encoding\\s*=\\s*[\"'](utf-8|us-ascii|ascii)[\"'][\\s\\S]*")) {
+                    throw new RejectedException("Unsupported encoding");
+                }
+            }
+        }
+        pos = end + 2;
+    }
+
+    /**
+     * Skips a comment or a CDATA section. Rejects a document type
+     * declaration.
+     */
+    private void skipMarkupDeclaration() throws RejectedException {
+        if (startsWith("!--")) {
+            pos = indexOf("-->") + 3;
+        } else if (startsWith("![CDATA[")) {
+            pos = indexOf("]]>") + 3;
+        } else {
+            throw new RejectedException("Document type declaration");
+        }
+    }
+
+    private boolean startsWith(String str) {
+        if (pos + str.length() > limit) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            if (buf.get(pos + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(String str) throws RejectedException {
+        byte first = (byte) str.charAt(0);
+        for (int i = pos; i <= limit - str.length(); i++) {
+            if (buf.get(i) == first) {
+                int j = 1;
+                while (j < str.length() && buf.get(i + j) == str.charAt(j)) {
+                    j++;
+                }
+                if (j == str.length()) {
+                    return i;
+                }
+            }
+        }
+        throw new RejectedException("Unexpected end of file");
+    }
+
+    /**
+     * Decodes the bytes from start to end. Malformed input is replaced,
+     * like the charset decoder of the streaming parser does.
+     */
+    private String decode(int start, int end, boolean isAscii) {
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buf.get(start + i);
+        }
+        if (isAscii) {
+            for (int i = 0; i < length; i++) {
+                if (scratch[i] < 0) {
+                    isAscii = false;
+                    break;
+                }
+            }
+        }
+        return new String(scratch, 0, length, isAscii ? ISO_8859_1 : UTF_8);
+    }
+
+    /**
+     * Maps byte sequences of the mapped file to strings. An entry refers to
+     * the first occurrence of its bytes in the file, so the bytes are not
+     * copied.
+     */
+    private static class BytePool {
+
+        private int[] table = new int[64];
+        private int[] starts = new int[32];
+        private int[] lengths = new int[32];
+        private int[] hashes = new int[32];
+        private int[] ids = new int[32];
+        private String[] strings = new String[32];
+        private int size;
+        /** The hash code of the last bytes which have been searched. */
+        private int hash;
+
+        public BytePool() {
+            Arrays.fill(table, -1);
+        }
+
+        /**
+         * Returns the entry of the specified bytes, or -1 if there is no
+         * entry for them.
+         */
+        public int find(ByteBuffer buf, int start, int length) {
+            int h = 0;
+            for (int i = start, end = start + length; i < end; i++) {
+                h = 31 * h + buf.get(i);
+            }
+            hash = h;
+            int mask = table.length - 1;
+            for (int slot = mix(h) & mask;; slot = (slot + 1) & mask) {
+                int entry = table[slot];
+                if (entry == -1) {
+                    return -1;
+                }
+                if (hashes[entry] == h && matches(entry, buf, start, length)) {
+                    return entry;
+                }
+            }
+        }
+
+        /**
+         * Adds an entry for the bytes which have been searched last.
+         */
+        public int add(ByteBuffer buf, int start, int length, String string) {
+            if (size == starts.length) {
+                int n = size * 2;
+                starts = Arrays.copyOf(starts, n);
+                lengths = Arrays.copyOf(lengths, n);
+                hashes = Arrays.copyOf(hashes, n);
+                ids = Arrays.copyOf(ids, n);
+                strings = Arrays.copyOf(strings, n);
+            }
+            int entry = size++;
+            starts[entry] = start;
+            lengths[entry] = length;
+            hashes[entry] = hash;
+            strings[entry] = string;
+            if (size * 2 > table.length) {
+                table = new int[table.length * 2];
+                Arrays.fill(table, -1);
+                for (int i = 0; i < size; i++) {
+                    insert(i);
+                }
+            } else {
+                insert(entry);
+            }
+            return entry;
+        }
+
+        private void insert(int entry) {
+            int mask = table.length - 1;
+            int slot = mix(hashes[entry]) & mask;
+            while (table[slot] != -1) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entry;
+        }
+
+        private static int mix(int h) {
+            h ^= (h >>> 16);
+            return h * 0x45d9f3b;
+        }
+
+        public boolean matches(int entry, ByteBuffer buf, int start, int length) {
+            if (lengths[entry] != length) {
+                return false;
+            }
+            for (int i = 0, other = starts[entry]; i < length; i++) {
+                if (buf.get(other + i) != buf.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public String getString(int entry) {
+            return strings[entry];
+        }
+
+        public int getId(int entry) {
+            return ids[entry];
+        }
+
+        public void setId(int entry, int id) {
+            ids[entry] = id;
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * @(#)TreevizFileSystemXMLNode.java  1.1  2011-01-20
+ * @(#)TreevizFileSystemXMLNode.java  1.8  2026-10-18
  *
  * Copyright (c) 2007-2011 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -12,22 +12,17 @@ package ch.randelshofer.tree.demo;
 
 import ch.randelshofer.gui.ProgressObserver;
 import ch.randelshofer.gui.ProgressView;
-import ch.randelshofer.io.*;
 import ch.randelshofer.tree.TreeNode;
 import java.io.*;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Stack;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import javax.xml.parsers.*;
-import org.xml.sax.*;
-import org.xml.sax.helpers.DefaultHandler;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  * TreevizFileSystemXMLTree reads an XML file with the root element named 
@@ -44,12 +39,23 @@ import org.xml.sax.helpers.DefaultHandler;
  * created(ISO-Date), size(Number), and "ownerRef"(id of a user), "creatorRef".
  * Nesting of elements is allowed to form a directory structure. Other than that,
  * there are no more restrictions on the elements.
- * 
+ * <p>
+ * The file can be gzipped or zipped, see {@link XMLEntryReader}. If a zip
+ * file contains more than one XML document, the users and the files of all
+ * documents are merged.
  * 
  * See {@link XMLNodeInfo} on how the XML data structure is being interpreted.
  *
  * @author  Werner Randelshofer
- * @version 1.1 2011-01-20 Adds network support.
+ * @version 1.8 2026-10-18 Counts the nodes for the progress sampler.
+ * <br>1.7 2026-10-18 Shares attribute values through a bounded dictionary.
+ * <br>1.6 2026-10-18 Reads and writes a cache file.
+ * <br>1.5 2026-10-18 Scans uncompressed files in a memory mapped buffer.
+ * <br>1.4 2026-10-18 Inflates compressed files on a separate thread,
+ * reads gzipped files, and parses all documents of a zip file.
+ * <br>1.3 2026-10-18 Reads the file with a streaming parser.
+ * <br>1.2 2026-10-18 Adds constructors with a progress observer.
+ * <br>1.1 2011-01-20 Adds network support.
  * <br>1.0 25. Juni 2008 Created.
  */
 public class TreevizFileSystemXMLTree implements DemoTree {
@@ -59,14 +65,18 @@ public class TreevizFileSystemXMLTree implements DemoTree {
     private TreevizFileSystemXMLNode usersRoot;
     private TreevizFileSystemXMLNodeInfo info;
     ProgressObserver p;
+    private List<String> valueStatistics = Collections.emptyList();
 
     public TreevizFileSystemXMLTree(File xmlFile) throws IOException {
-        FileInputStream in = new FileInputStream(xmlFile);
-        try {
-            read(in,xmlFile.getName(),xmlFile.length());
-        } finally {
-            in.close();
-        }
+        this(xmlFile, null);
+    }
+
+    /**
+     * Creates a new instance which reports its progress to the specified
+     * observer. If the observer is null, a progress view is shown.
+     */
+    public TreevizFileSystemXMLTree(File xmlFile, ProgressObserver p) throws IOException {
+        read(xmlFile, p);
     }
     public TreevizFileSystemXMLTree(URL xmlFile) throws IOException {
         InputStream in = xmlFile.openStream();
@@ -84,131 +94,173 @@ public class TreevizFileSystemXMLTree implements DemoTree {
     }
 
     public void read(InputStream in, String rootName,long fileLength) throws IOException {
-        p = null;
-        if (p == null) {
-            p = new ProgressView("Opening " + rootName, "", 0, 1);
-            p.setIndeterminate(true);
+        read(in, rootName, fileLength, null);
+    }
+
+    public void read(InputStream in, String rootName, long fileLength, ProgressObserver p) throws IOException {
+        p = open(rootName, p);
+        try {
+            EntryReader reader = new EntryReader();
+            List<TreevizFileSystemXMLNode> roots = reader.read(in, rootName, fileLength, p);
+            valueStatistics = reader.getValueStatistics();
+            init(roots);
+        } finally {
+            p.close();
         }
+    }
+
+    /**
+     * Reads the specified file. An uncompressed file is read with a
+     * {@link TreevizFileSystemXMLScanner}, if the scanner accepts it. The XML
+     * documents of a zip file are parsed concurrently.
+     * <p>
+     * The tree is read from its {@link XMLTreeCache}, if the cache is up to
+     * date. Otherwise the statistics of the files are computed right away,
+     * and the cache is written.
+     */
+    public void read(File xmlFile, ProgressObserver p) throws IOException {
+        p = open(xmlFile.getName(), p);
         try {
-            root = new TreevizFileSystemXMLNode();
-            info = new TreevizFileSystemXMLNodeInfo(this);
-
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            try {
-                SAXParser saxParser = factory.newSAXParser();
-                BoundedRangeInputStream bris;
-                if (rootName.endsWith(".zip")) {
-                    bris = null;
-                    ZipInputStream zis = new ZipInputStream(in);
-                    for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
-                        if (!entry.isDirectory() && entry.getName().endsWith(".xml")) {
-                            bris = new BoundedRangeInputStream(zis);
-                            if (entry.getSize() != -1) {
-                                bris.setMaximum((int) entry.getSize() + 1);
-                            }
-                            break;
-                        }
-                    }
-                    if (bris == null) {
-                        throw new IOException("No XML file found inside of " + rootName + ".");
-                    }
-
-                } else {
-                    bris = new BoundedRangeInputStream(in);
-                    bris.setMaximum(fileLength==-1?Integer.MAX_VALUE:(int) fileLength + 1);
+            XMLTreeCache cache = new XMLTreeCache(xmlFile);
+            p.setNote("Reading cache");
+            if (cache.read(XMLTreeCache.KIND_TREEVIZ_FILE_SYSTEM)) {
+                init(Collections.singletonList((TreevizFileSystemXMLNode) cache.getRoot()));
+                info.init(filesRoot, cache.getNodeCount(), cache.getTypes().get(0), cache.getTypes().get(1), cache.getColumns(),
+                        cache.getWeightAttribute());
+                return;
+            }
+            p.setNote("");
+            List<TreevizFileSystemXMLNode> roots = null;
+            String name = xmlFile.getName();
+            if (!name.endsWith(".zip") && !name.endsWith(".gz")) {
+                TreevizFileSystemXMLScanner scanner = new TreevizFileSystemXMLScanner();
+                TreevizFileSystemXMLNode documentRoot = scanner.parse(xmlFile, p);
+                if (documentRoot != null) {
+                    roots = Collections.singletonList(documentRoot);
+                    valueStatistics = Collections.singletonList(scanner.getValueStatistics());
                 }
-
-                final SuspendableInputStream sis = new SuspendableInputStream(bris);
-                p.setModel(bris);
-                p.setIndeterminate(false);
-                p.setDoCancel(new Runnable() {
-
-                    @Override
-                    public void run() {
-                        sis.abort();
-                    }
-                });
-                // Create an error resilient charset decoder for UTF-8
-                Charset cs = Charset.forName("UTF-8");
-                CharsetDecoder decoder = cs.newDecoder();
-                decoder.onMalformedInput(CodingErrorAction.REPLACE);
-                InputStreamReader isr = new InputStreamReader(sis, decoder);
-
-//            saxParser.parse( new InputSource(new InputStreamReader(sis,"UTF-8")), new DefaultHandler() {
-//            saxParser.parse(sis, new DefaultHandler() {
-                saxParser.parse(new InputSource(isr), new DefaultHandler() {
-
-                    private boolean isFirstElement = true;
-                    private Stack<TreevizFileSystemXMLNode> stack = new Stack<TreevizFileSystemXMLNode>();
-
-
-                    {
-                        stack.push(root);
-                    }
-
-                    @Override
-                    public void startElement(String uri, String localName,
-                            String qName, Attributes attributes)
-                            throws SAXException {
-                        if (isFirstElement) {
-                            isFirstElement = false;
-                            if (!qName.equals("TreevizFileSystem")) {
-                                throw new SAXException("Illegal root element: \"" + qName + "\" must be \"TreevizFileSystem\"");
-                            }
-                        }
-
-                        TreevizFileSystemXMLNode node = new TreevizFileSystemXMLNode();
-                        node.setName(qName.intern());
-                        for (int i = 0, n = attributes.getLength(); i < n; i++) {
-                            // internalizing attribute names considerably saves memory
-                            String name = attributes.getQName(i).intern();
-                            //     node.putAttribute(name, attributes.getValue(i).intern());
-                            node.putAttribute(name, attributes.getValue(i));
-                        }
-
-                        stack.peek().addChild(node);
-                        stack.push(node);
-                    }
-
-                    @Override
-                    public void endElement(String uri, String localName, String qName)
-                            throws SAXException {
-                        stack.pop();
-                    }
-                });
-            } catch (ParserConfigurationException ex) {
-                IOException iex = new IOException("XML Parser configuration error");
-                iex.initCause(ex);
-                throw iex;
-            } catch (SAXException ex) {
-                IOException iex = new IOException("XML Error");
-                iex.initCause(ex);
-                throw iex;
-            } finally {
-                //
             }
-
-            // the first child of the root must be named Users the second one named Files
-            if (root.children().size() != 1) {
-                throw new IOException("XML File is empty");
+            if (roots == null) {
+                EntryReader reader = new EntryReader();
+                roots = reader.read(xmlFile, p);
+                valueStatistics = reader.getValueStatistics();
             }
+            init(roots);
+            p.setNote("Calculating statistics");
+            p.setIndeterminate(true);
+            info.init(filesRoot);
+            p.setNote("Writing cache");
+            cache.write(root, info);
+        } finally {
+            p.close();
+        }
+    }
+
+    private ProgressObserver open(String rootName, ProgressObserver p) {
+        if (p == null) {
+            p = new ProgressView("Opening " + rootName, "", 0, 1);
+            p.setIndeterminate(true);
+        }
+        this.p = p;
+        info = new TreevizFileSystemXMLNodeInfo(this);
+        return p;
+    }
 
-            TreeNode rootElement = root.children().get(0);
+    /**
+     * Builds the tree from the root elements of the documents. If there is
+     * more than one document, the users and the files of all documents are
+     * merged into the Users and Files elements of the first document.
+     */
+    private void init(List<TreevizFileSystemXMLNode> roots) throws IOException {
+        if (roots.isEmpty()) {
+            throw new IOException("XML File is empty");
+        }
+        root = null;
+        for (TreevizFileSystemXMLNode documentRoot : roots) {
+            // the first child of the root must be named Users the second one named Files
+            TreeNode rootElement = documentRoot;
             if (rootElement.children().size() != 2) {
                 throw new IOException("TreevizFileSystem element must have two children");
             }
-            usersRoot = (TreevizFileSystemXMLNode) rootElement.children().get(0);
-            if (!usersRoot.getName().equals("Users")) {
-                throw new IOException("First child of TreevizFileSystem element \"" + usersRoot.getName() + "\" must be named \"Users\"");
+            TreevizFileSystemXMLNode users = (TreevizFileSystemXMLNode) rootElement.children().get(0);
+            if (!users.getName().equals("Users")) {
+                throw new IOException("First child of TreevizFileSystem element \"" + users.getName() + "\" must be named \"Users\"");
             }
-            filesRoot = (TreevizFileSystemXMLNode) rootElement.children().get(1);
-            if (!filesRoot.getName().equals("Files")) {
-                throw new IOException("Second child of TreevizFileSystem element \"" + filesRoot.getName() + "\" must be named \"Files\"");
+            TreevizFileSystemXMLNode files = (TreevizFileSystemXMLNode) rootElement.children().get(1);
+            if (!files.getName().equals("Files")) {
+                throw new IOException("Second child of TreevizFileSystem element \"" + files.getName() + "\" must be named \"Files\"");
             }
-        } finally {
-            p.close();
+            if (root == null) {
+                root = documentRoot;
+                usersRoot = users;
+                filesRoot = files;
+            } else {
+                for (TreeNode child : users.children()) {
+                    usersRoot.addChild(child);
+                }
+                for (TreeNode child : files.children()) {
+                    filesRoot.addChild(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the documents of a file into Treeviz file system nodes. The
+     * documents are decoded leniently.
+     */
+    private static class EntryReader extends XMLEntryReader<TreevizFileSystemXMLNode> {
+
+        @Override
+        protected XMLStreamReader createXMLStreamReader(XMLInputFactory factory, InputStream in) throws XMLStreamException {
+            // Create an error resilient charset decoder for UTF-8
+            Charset cs = Charset.forName("UTF-8");
+            CharsetDecoder decoder = cs.newDecoder();
+            decoder.onMalformedInput(CodingErrorAction.REPLACE);
+            return factory.createXMLStreamReader(new InputStreamReader(in, decoder));
         }
 
+        @Override
+        protected void checkRootElement(String name) throws XMLStreamException {
+            if (!name.equals("TreevizFileSystem")) {
+                throw new XMLStreamException("Illegal root element: \"" + name + "\" must be \"TreevizFileSystem\"");
+            }
+        }
+
+        @Override
+        protected TreevizFileSystemXMLNode createNode(AttributeSchema schema) {
+            return new TreevizFileSystemXMLNode(schema);
+        }
+
+        @Override
+        protected void setName(TreevizFileSystemXMLNode node, String name) {
+            node.setName(name);
+        }
+
+        @Override
+        protected Object[] createValues(int n) {
+            // The node info puts numbers into the attributes of users
+            return new Object[n];
+        }
+
+        @Override
+        protected void setAttributes(TreevizFileSystemXMLNode node, int[] ids, Object[] values) {
+            node.setAttributes(ids, values);
+        }
+
+        @Override
+        protected void addChild(TreevizFileSystemXMLNode parent, TreevizFileSystemXMLNode child) {
+            parent.addChild(child);
+        }
+    }
+
+    /**
+     * Returns a description of the shared attribute values of each document
+     * which has been read. The list is empty, if the tree has been read from
+     * its cache.
+     */
+    public List<String> getValueStatistics() {
+        return valueStatistics;
     }
 
     public TreevizFileSystemXMLNode getRoot() {
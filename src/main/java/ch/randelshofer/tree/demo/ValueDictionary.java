@@ -0,0 +1,190 @@
+/*
+ * @(#)ValueDictionary.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Shares equal attribute values of a document.
+ * <p>
+ * Attributes with few distinct values, such as owner references, types and
+ * flags, repeat the same values over and over. The dictionary keeps one
+ * instance of each value, and the nodes refer to it. Attributes with many
+ * distinct values, such as names, would only fill the dictionary. Therefore
+ * the dictionary keeps separate statistics for each attribute, and it stops
+ * sharing the values of an attribute, when too many of its values are
+ * distinct, or when the attribute has too many distinct values.
+ * <p>
+ * The dictionary estimates the memory which it has saved. The estimate
+ * assumes that a string needs 40 bytes plus two bytes per character.
+ * <p>
+ * A dictionary is used by a single thread.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public class ValueDictionary {
+
+    /** The number of values after which the ratio of distinct values is checked. */
+    public final static int DEFAULT_SAMPLE_SIZE = 1024;
+    /** The maximal ratio of distinct values of a shared attribute. */
+    public final static float DEFAULT_MAX_DISTINCT_RATIO = 0.5f;
+    /** The maximal number of distinct values of a shared attribute. */
+    public final static int DEFAULT_MAX_SIZE = 1 << 18;
+    private int sampleSize;
+    private float maxDistinctRatio;
+    private int maxSize;
+    private Attribute[] attributes = new Attribute[16];
+    private long valueCount;
+    private long sharedCount;
+    private long savedBytes;
+
+    private static class Attribute {
+
+        private HashMap<String, String> values = new HashMap<String, String>();
+        private boolean isSharing = true;
+        private int count;
+        private int distinctCount;
+    }
+
+    /** Creates a new dictionary with the default limits. */
+    public ValueDictionary() {
+        this(DEFAULT_SAMPLE_SIZE, DEFAULT_MAX_DISTINCT_RATIO, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new dictionary.
+     *
+     * @param sampleSize The number of values of an attribute after which
+     * the ratio of its distinct values is checked.
+     * @param maxDistinctRatio The values of an attribute are not shared
+     * anymore, if the ratio of its distinct values exceeds this value.
+     * @param maxSize The values of an attribute are not shared anymore, if
+     * it has more distinct values.
+     */
+    public ValueDictionary(int sampleSize, float maxDistinctRatio, int maxSize) {
+        this.sampleSize = sampleSize;
+        this.maxDistinctRatio = maxDistinctRatio;
+        this.maxSize = maxSize;
+    }
+
+    private Attribute getAttribute(int id) {
+        if (id >= attributes.length) {
+            attributes = Arrays.copyOf(attributes, Math.max(id + 1, attributes.length * 2));
+        }
+        Attribute a = attributes[id];
+        if (a == null) {
+            a = attributes[id] = new Attribute();
+        }
+        return a;
+    }
+
+    /**
+     * Returns the shared instance of the specified value.
+     *
+     * @param id The id of the attribute in the schema of the document.
+     * @param value The value.
+     * @return the shared instance, or the value itself if it is seen for the
+     * first time or if the values of the attribute are not shared.
+     */
+    public String share(int id, String value) {
+        Attribute a = getAttribute(id);
+        if (!a.isSharing) {
+            valueCount++;
+            return value;
+        }
+        String shared = a.values.get(value);
+        if (shared != null) {
+            countShared(id, value.length());
+            return shared;
+        }
+        if (countDistinct(id)) {
+            a.values.put(value, value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns true if the values of the specified attribute are shared.
+     */
+    public boolean isSharing(int id) {
+        return getAttribute(id).isSharing;
+    }
+
+    /**
+     * Counts a value of the specified attribute which has been shared. This
+     * method is used by readers which share values by themselves.
+     *
+     * @param id The id of the attribute.
+     * @param length The number of characters of the value.
+     */
+    public void countShared(int id, int length) {
+        Attribute a = getAttribute(id);
+        a.count++;
+        valueCount++;
+        sharedCount++;
+        savedBytes += 40 + 2 * length;
+    }
+
+    /**
+     * Counts a distinct value of the specified attribute. This method is
+     * used by readers which share values by themselves.
+     *
+     * @param id The id of the attribute.
+     * @return true if the value may be shared, false if the values of the
+     * attribute are not shared anymore.
+     */
+    public boolean countDistinct(int id) {
+        Attribute a = getAttribute(id);
+        a.count++;
+        a.distinctCount++;
+        valueCount++;
+        if (a.distinctCount > maxSize
+                || a.count >= sampleSize && a.distinctCount > maxDistinctRatio * a.count) {
+            a.isSharing = false;
+            a.values = null;
+        }
+        return a.isSharing;
+    }
+
+    /** Returns the number of values which have been looked up. */
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    /** Returns the number of values which have been shared. */
+    public long getSharedCount() {
+        return sharedCount;
+    }
+
+    /** Returns an estimate of the memory which has been saved. */
+    public long getSavedBytes() {
+        return savedBytes;
+    }
+
+    /**
+     * Returns a description of the statistics.
+     *
+     * @param schema The schema of the document, used for the attribute names.
+     */
+    public String getStatistics(AttributeSchema schema) {
+        ArrayList<String> unshared = new ArrayList<String>();
+        for (int i = 0; i < attributes.length; i++) {
+            if (attributes[i] != null && !attributes[i].isSharing) {
+                unshared.add(schema.getName(i));
+            }
+        }
+        return "shared " + sharedCount + " of " + valueCount + " values, saved "
+                + (savedBytes >> 10) + " KB, not shared: " + unshared;
+    }
+}
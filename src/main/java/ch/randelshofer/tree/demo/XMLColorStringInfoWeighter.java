@@ -1,7 +1,7 @@
 /*
- * @(#)XMLColorStringInfoWeighter.java  1.0  2012-12-28
+ * @(#)XMLColorStringInfoWeighter.java  1.2  2026-10-18
  *
- * Copyright (c) 2012 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2012-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -11,16 +11,15 @@
 package ch.randelshofer.tree.demo;
 
 import ch.randelshofer.tree.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
 
 /**
  * XMLNumericInfoWeighter.
  *
  * @author  Werner Randelshofer
- * @version 1.1 2012-12-28 Created.
+ * @version 1.2 2026-10-18 Takes the minimum, maximum and median from a
+ * quantile sketch.
+ * <br>1.1 2026-10-18 Reads the colors from an attribute column.
+ * <br>1.0 2012-12-28 Created.
  */
 public class XMLColorStringInfoWeighter implements Weighter {
 
@@ -30,6 +29,7 @@ public class XMLColorStringInfoWeighter implements Weighter {
     private double min;
     private double max;
     private double median;
+    private AttributeColumn column;
 
     /** Creates a new instance. */
     public XMLColorStringInfoWeighter(XMLNodeInfo info, String key) {
@@ -39,25 +39,18 @@ public class XMLColorStringInfoWeighter implements Weighter {
 
     @Override
     public void init(TreeNode root) {
-        if (info.getType(key) == XMLNodeInfo.DataType.NUMERIC_STRING) {
-            int minDate = Integer.MAX_VALUE;
-            int maxDate = Integer.MIN_VALUE;
-            Set<String> stringValues = info.getValues(key);
-
-            ArrayList<Integer> dates = new ArrayList<Integer>();
-            collectDatesRecursive((XMLNode) root, dates);
-            Collections.sort(dates);
-            if (dates.size() > 0) {
-                minDate = dates.get(0);
-                maxDate = dates.get(dates.size() - 1);
-                median = dates.get(dates.size() / 2);
-                min = minDate;
-                max = maxDate;
+        if (info.getType(key) == XMLNodeInfo.DataType.COLOR_STRING) {
+            column = info.getColumn(key);
+            QuantileSketch sketch = column.getSketch();
+            if (sketch.getCount() > 0) {
+                min = sketch.getMin();
+                max = sketch.getMax();
+                median = sketch.getMedian();
             }
 
-            if (maxDate != minDate) {
+            if (max != min) {
                 histogram = new int[256];
-                calculateDateHistogramRecursive(root);
+                calculateHistogram(column.getValues());
             } else {
                 histogram = new int[1];
                 histogram[0] = 1;
@@ -68,57 +61,23 @@ public class XMLColorStringInfoWeighter implements Weighter {
         }
     }
 
-    private void collectDatesRecursive(XMLNode node, List<Integer> dates) {
-        String str = node.getAttribute(key);
-        if (str != null) {
-            int value;
-            try {
-                value = Integer.parseInt(str.substring(1),16);
-                dates.add(value);
-            } catch (NumberFormatException ex) {
-                // skip unparsable numbers
-            }
-        }
-        for (TreeNode child : node.children()) {
-            collectDatesRecursive((XMLNode) child, dates);
-        }
-    }
-
     /**
-     * Calculates the date histogram recursively.
-     * 
-     * @param root
+     * Calculates the histogram.
+     *
+     * @param values the colors of all nodes
      */
-    private void calculateDateHistogramRecursive(TreeNode root) {
-        XMLNode node = (XMLNode) root;
-        String str = node.getAttribute(key);
-        if (str != null) {
-            int value;
-            try {
-                value = Integer.parseInt(str.substring(1),16);
-                int index = Math.min(histogram.length - 1, Math.max(0, (int) ((value - ( min)) * (histogram.length - 1) /  ((double)( max) - ( min)))));
-                histogram[index]++;
-            } catch (NumberFormatException ex) {
-                // skip unparsable numbers
-            }
-        }
-        for (TreeNode child : root.children()) {
-            calculateDateHistogramRecursive(child);
+    private void calculateHistogram(long[] values) {
+        for (long value : values) {
+            int index = Math.min(histogram.length - 1, Math.max(0, (int) ((value - (min)) * (histogram.length - 1) / ((double) (max) - (min)))));
+            histogram[index]++;
         }
     }
 
     @Override
     public float getWeight(TreePath2 path) {
         XMLNode node = (XMLNode) path.getLastPathComponent();
-        String str = node.getAttribute(key);
-        if (str != null) {
-            int value;
-            try {
-                value = Integer.parseInt(str.substring(1),16);
-                return Float.intBitsToFloat(value);
-            } catch (NumberFormatException ex) {
-                // skip unparsable numbers
-            }
+        if (column != null && column.isSet(node.getIndex())) {
+            return Float.intBitsToFloat((int) column.get(node.getIndex()));
         }
         return 0f;
     }
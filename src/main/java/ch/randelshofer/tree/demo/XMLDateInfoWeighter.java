@@ -1,5 +1,5 @@
 /*
- * @(#)XMLDateInfoWeighter.java  1.0  23. Juni 2008
+ * @(#)XMLDateInfoWeighter.java  1.2  2026-10-18
  *
  * Copyright (c) 2007 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -12,19 +12,16 @@ package ch.randelshofer.tree.demo;
 
 import ch.randelshofer.tree.*;
 import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.List;
-import java.util.Set;
 
 /**
  * XMLDateInfoWeighter.
  *
  * @author  Werner Randelshofer
- * @version 1.0 23. Juni 2008 Created.
+ * @version 1.2 2026-10-18 Takes the minimum, maximum and median from a
+ * quantile sketch.
+ * <br>1.1 2026-10-18 Reads the dates from an attribute column.
+ * <br>1.0 23. Juni 2008 Created.
  */
 public class XMLDateInfoWeighter implements Weighter {
 
@@ -34,8 +31,7 @@ public class XMLDateInfoWeighter implements Weighter {
     private Object min;
     private Object max;
     private Object median;
-    private DateFormat isoDateFormatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-    private DateFormat isoDateFormatter2 = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private AttributeColumn column;
 
     /** Creates a new instance. */
     public XMLDateInfoWeighter(XMLNodeInfo info, String key) {
@@ -46,24 +42,22 @@ public class XMLDateInfoWeighter implements Weighter {
     @Override
     public void init(TreeNode root) {
         if (info.getType(key) == XMLNodeInfo.DataType.DATE_STRING) {
+            column = info.getColumn(key);
             Date minDate = new Date(Long.MAX_VALUE);
             Date maxDate = new Date(Long.MIN_VALUE);
-            Set<String> stringValues = info.getValues(key);
 
-            ArrayList<Date> dates = new ArrayList<Date>();
-            collectDatesRecursive((XMLNode) root, dates);
-            Collections.sort(dates);
-            if (dates.size() > 0) {
-                minDate = dates.get(0);
-                maxDate = dates.get(dates.size() - 1);
-                median = dates.get(dates.size() / 2);
+            QuantileSketch sketch = column.getSketch();
+            if (sketch.getCount() > 0) {
+                minDate = new Date((long) sketch.getMin());
+                maxDate = new Date((long) sketch.getMax());
+                median = new Date(Math.round(sketch.getMedian()));
                 min = minDate;
                 max = maxDate;
             }
 
             if (!maxDate.equals(minDate)) {
                 histogram = new int[256];
-                calculateDateHistogramRecursive(root);
+                calculateDateHistogram(column.getValues());
             } else {
                 histogram = new int[1];
                 histogram[0] = 1;
@@ -74,85 +68,26 @@ public class XMLDateInfoWeighter implements Weighter {
         }
     }
 
-    private void collectDatesRecursive(XMLNode node, List<Date> dates) {
-        String str = node.getAttribute(key);
-        if (str != null) { 
-        try {
-            Date value;
-            try {
-                    synchronized (isoDateFormatter) {
-                value = (Date) isoDateFormatter.parse(str);
-                }
-            } catch (ParseException ex) {
-                    synchronized (isoDateFormatter2) {
-                value = (Date) isoDateFormatter2.parse(str);
-                }
-            }
-            dates.add(value);
-        } catch (ParseException ex) {
-        // skip unparsable dates
-        }
-        }
-        for (TreeNode child : node.children()) {
-            collectDatesRecursive((XMLNode) child, dates);
-        }
-    }
-
     /**
-     * Calculates the date histogram recursively.
-     * 
-     * @param root
+     * Calculates the date histogram.
+     *
+     * @param dates the dates of all nodes
      */
-    private void calculateDateHistogramRecursive(TreeNode root) {
-        XMLNode node = (XMLNode) root;
-        String str = node.getAttribute(key);
-        if (str != null) {
-            try {
-                Date value;
-                try {
-                    synchronized (isoDateFormatter) {
-                    value = (Date) isoDateFormatter.parse(str);
-                    }
-                } catch (ParseException ex) {
-                    synchronized (isoDateFormatter2) {
-                    value = (Date) isoDateFormatter2.parse(str);
-                    }
-                }
-
-                int index = Math.min(histogram.length - 1, Math.max(0, (int) ((value.getTime() - ((Date) min).getTime()) * (histogram.length - 1) / (double) (((Date) max).getTime() - ((Date) min).getTime()))));
-                histogram[index]++;
-            } catch (NumberFormatException ex) {
-            // skip unparsable dates
-            } catch (ParseException ex) {
-            // skip unparsable dates
-            }
-        }
-        for (TreeNode child : root.children()) {
-            calculateDateHistogramRecursive(child);
+    private void calculateDateHistogram(long[] dates) {
+        long mn = ((Date) min).getTime();
+        long mx = ((Date) max).getTime();
+        for (long value : dates) {
+            int index = Math.min(histogram.length - 1, Math.max(0, (int) ((value - mn) * (histogram.length - 1) / (double) (mx - mn))));
+            histogram[index]++;
         }
     }
 
     @Override
     public float getWeight(TreePath2 path) {
         XMLNode node = (XMLNode) path.getLastPathComponent();
-        String str = node.getAttribute(key);
-        if (str != null) {
-            try {
-                Date value;
-                try {
-                    synchronized (isoDateFormatter) {
-                    value = (Date) isoDateFormatter.parse(str);
-}
-                } catch (ParseException ex) {
-                    synchronized (isoDateFormatter2) {
-                    value = (Date) isoDateFormatter2.parse(str);
-                    }
-                }
-                return (value.getTime() - ((Date) min).getTime()) / (float) (((Date) max).getTime() - ((Date) min).getTime());
-            } catch (ParseException ex) {
-            } catch (NumberFormatException ex) {
-            } catch (ArrayIndexOutOfBoundsException ex) {
-            }
+        if (column != null && min != null && column.isSet(node.getIndex())) {
+            long value = column.get(node.getIndex());
+            return (value - ((Date) min).getTime()) / (float) (((Date) max).getTime() - ((Date) min).getTime());
         }
         return 0f;
     }
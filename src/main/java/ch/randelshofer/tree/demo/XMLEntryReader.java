@@ -0,0 +1,446 @@
+/*
+ * @(#)XMLEntryReader.java  1.2  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.gui.ProgressObserver;
+import ch.randelshofer.gui.ProgressSampler;
+import ch.randelshofer.io.PipelinedInputStream;
+import ch.randelshofer.io.SuspendableInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the XML documents of a plain, a gzipped or a zipped XML file.
+ * <p>
+ * Compressed data is inflated by a {@link PipelinedInputStream}, so that
+ * inflating and parsing run on different cores. A {@code .xml.gz} file and
+ * a plain XML file contain a single document. A {@code .zip} file can
+ * contain many XML documents. If the zip file is read from disk, all of its
+ * documents are parsed concurrently; if it is read from a stream, they are
+ * parsed one after the other.
+ * <p>
+ * The elements of a document are turned into a tree of nodes by
+ * {@link #parse}. Subclasses create the nodes. The parse method may be
+ * called by several threads at the same time, so the node methods must not
+ * share state between documents.
+ * <p>
+ * The progress is reported through a {@link ProgressSampler}. The reader
+ * counts the bytes, subclasses count the nodes.
+ *
+ * @author Werner Randelshofer
+ * @version 1.2 2026-10-18 Parses the elements of the documents for the
+ * subclasses.
+ * <br>1.1 2026-10-18 Reports the progress through a
+ * {@link ProgressSampler}.
+ * <br>1.0 2026-10-18 Created.
+ */
+public abstract class XMLEntryReader<T> {
+
+    private XMLInputFactory factory;
+    private CopyOnWriteArrayList<SuspendableInputStream> streams = new CopyOnWriteArrayList<SuspendableInputStream>();
+    private volatile boolean isAborted;
+    private ProgressSampler sampler;
+    private CopyOnWriteArrayList<String> valueStatistics = new CopyOnWriteArrayList<String>();
+
+    public XMLEntryReader() {
+        factory = XMLInputFactory.newInstance();
+    }
+
+    /**
+     * Creates a node, which stores its attributes against the specified
+     * schema.
+     */
+    protected abstract T createNode(AttributeSchema schema);
+
+    protected abstract void setName(T node, String name);
+
+    /**
+     * Creates the array for the attribute values of a node.
+     */
+    protected abstract Object[] createValues(int n);
+
+    /**
+     * Sets the attributes of a node.
+     *
+     * @param values An array which has been created with {@link #createValues}.
+     */
+    protected abstract void setAttributes(T node, int[] ids, Object[] values);
+
+    protected abstract void addChild(T parent, T child);
+
+    /**
+     * Checks the name of the root element of a document. This method
+     * accepts all names. Subclasses may override it to reject a document.
+     */
+    protected void checkRootElement(String name) throws XMLStreamException {
+    }
+
+    /**
+     * Reads the elements of a document into a tree of nodes. The attributes
+     * of all nodes are stored against the same schema. Equal attribute
+     * values are shared through a {@link ValueDictionary}.
+     *
+     * @return the root node, or null if the document has no elements.
+     */
+    protected T parse(XMLStreamReader reader) throws XMLStreamException {
+        AttributeSchema schema = new AttributeSchema();
+        HashMap<String, String> elementNames = new HashMap<String, String>();
+        // Attribute values repeat a lot, for example references and flags.
+        ValueDictionary values = new ValueDictionary();
+        ArrayList<T> stack = new ArrayList<T>();
+        T documentRoot = null;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT: {
+                    String name = qualifiedName(reader.getPrefix(), reader.getLocalName());
+                    if (documentRoot == null) {
+                        checkRootElement(name);
+                    }
+                    String internedName = elementNames.get(name);
+                    if (internedName == null) {
+                        internedName = name.intern();
+                        elementNames.put(internedName, internedName);
+                    }
+                    T node = createNode(schema);
+                    sampler.incrementNodes();
+                    setName(node, internedName);
+                    // Report namespace declarations as attributes, like SAX
+                    // does when it is not namespace aware.
+                    int nsCount = reader.getNamespaceCount();
+                    int n = nsCount + reader.getAttributeCount();
+                    if (n > 0) {
+                        int[] ids = new int[n];
+                        Object[] nodeValues = createValues(n);
+                        for (int i = 0; i < n; i++) {
+                            String value;
+                            if (i < nsCount) {
+                                ids[i] = schema.getId(qualifiedName("xmlns", reader.getNamespacePrefix(i)));
+                                value = reader.getNamespaceURI(i);
+                            } else {
+                                ids[i] = schema.getId(qualifiedName(reader.getAttributePrefix(i - nsCount), reader.getAttributeLocalName(i - nsCount)));
+                                value = reader.getAttributeValue(i - nsCount);
+                            }
+                            nodeValues[i] = values.share(ids[i], value);
+                        }
+                        setAttributes(node, ids, nodeValues);
+                    }
+                    if (stack.isEmpty()) {
+                        documentRoot = node;
+                    } else {
+                        addChild(stack.get(stack.size() - 1), node);
+                    }
+                    stack.add(node);
+                    break;
+                }
+                case XMLStreamConstants.END_ELEMENT:
+                    stack.remove(stack.size() - 1);
+                    break;
+            }
+        }
+        valueStatistics.add(values.getStatistics(schema));
+        return documentRoot;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        if (prefix == null || prefix.isEmpty()) {
+            return localName;
+        }
+        if (localName == null || localName.isEmpty()) {
+            return prefix;
+        }
+        return prefix + ':' + localName;
+    }
+
+    /**
+     * Creates a stream reader for a document. Subclasses may override this
+     * method to decode the document leniently.
+     */
+    protected XMLStreamReader createXMLStreamReader(XMLInputFactory factory, InputStream in) throws XMLStreamException {
+        return factory.createXMLStreamReader(in);
+    }
+
+    /**
+     * Returns a description of the shared attribute values of each document
+     * which has been read, see {@link ValueDictionary#getStatistics}.
+     */
+    public List<String> getValueStatistics() {
+        return valueStatistics;
+    }
+
+    /**
+     * Reads all documents of the specified file.
+     *
+     * @return the root nodes of the documents which are not empty.
+     */
+    public List<T> read(File file, ProgressObserver p) throws IOException {
+        if (file.getName().endsWith(".zip")) {
+            sampler = new ProgressSampler(p);
+            sampler.start();
+            try {
+                return readZipFile(file, p);
+            } finally {
+                sampler.stop();
+            }
+        }
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return read(in, file.getName(), file.length(), p);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads all documents of the specified stream.
+     *
+     * @param in The input stream.
+     * @param name The name of the file. The suffix tells whether the stream
+     * is compressed.
+     * @param length The length of the stream, or -1 if the length is unknown.
+     * @param p Tracks the progress. The progress is measured in kilobytes
+     * of the compressed stream.
+     * @return the root nodes of the documents which are not empty.
+     */
+    public List<T> read(InputStream in, String name, long length, ProgressObserver p) throws IOException {
+        sampler = new ProgressSampler(p);
+        sampler.setTotalBytes(length);
+        p.setIndeterminate(length == -1);
+        setDoCancel(p);
+        sampler.start();
+        try {
+            return readStream(new CountingInputStream(in), name);
+        } finally {
+            sampler.stop();
+        }
+    }
+
+    private List<T> readStream(InputStream in, String name) throws IOException {
+        ArrayList<T> roots = new ArrayList<T>();
+        if (name.endsWith(".zip")) {
+            ZipInputStream zis = new ZipInputStream(in);
+            boolean hasXML = false;
+            for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                if (isXMLEntry(entry)) {
+                    hasXML = true;
+                    addRoot(roots, parsePipelined(zis));
+                }
+            }
+            if (!hasXML) {
+                throw new IOException("No XML file found inside of " + name + ".");
+            }
+        } else if (name.endsWith(".gz")) {
+            addRoot(roots, parsePipelined(new GZIPInputStream(in, PipelinedInputStream.DEFAULT_BUFFER_SIZE)));
+        } else {
+            addRoot(roots, parse(in));
+        }
+        return roots;
+    }
+
+    /**
+     * Parses the XML entries of a zip file concurrently.
+     */
+    private List<T> readZipFile(File file, ProgressObserver p) throws IOException {
+        final ZipFile zipFile = new ZipFile(file);
+        ExecutorService executor = null;
+        try {
+            ArrayList<ZipEntry> entries = new ArrayList<ZipEntry>();
+            long totalSize = 0;
+            for (Enumeration<? extends ZipEntry> i = zipFile.entries(); i.hasMoreElements();) {
+                ZipEntry entry = i.nextElement();
+                if (isXMLEntry(entry)) {
+                    entries.add(entry);
+                    totalSize += Math.max(0, entry.getSize());
+                }
+            }
+            if (entries.isEmpty()) {
+                throw new IOException("No XML file found inside of " + file.getName() + ".");
+            }
+
+            // The progress is measured in kilobytes of the inflated entries.
+            sampler.setTotalBytes(totalSize);
+            p.setIndeterminate(false);
+            setDoCancel(p);
+
+            executor = Executors.newFixedThreadPool(Math.min(entries.size(), Runtime.getRuntime().availableProcessors()));
+            ArrayList<Future<T>> futures = new ArrayList<Future<T>>();
+            for (final ZipEntry entry : entries) {
+                futures.add(executor.submit(new Callable<T>() {
+
+                    @Override
+                    public T call() throws IOException {
+                        InputStream in = new CountingInputStream(zipFile.getInputStream(entry));
+                        try {
+                            return parsePipelined(in);
+                        } finally {
+                            in.close();
+                        }
+                    }
+                }));
+            }
+
+            ArrayList<T> roots = new ArrayList<T>();
+            for (Future<T> f : futures) {
+                try {
+                    addRoot(roots, f.get());
+                } catch (ExecutionException e) {
+                    abort();
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException(e.getCause().getMessage(), e.getCause());
+                } catch (InterruptedException e) {
+                    abort();
+                    InterruptedIOException ex = new InterruptedIOException();
+                    ex.initCause(e);
+                    throw ex;
+                }
+            }
+            return roots;
+        } finally {
+            if (executor != null) {
+                // Let the remaining parsers fail, before we close the file.
+                executor.shutdown();
+                try {
+                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            zipFile.close();
+        }
+    }
+
+    /**
+     * Adds the bytes which have been read to the sampler.
+     */
+    private class CountingInputStream extends FilterInputStream {
+
+        public CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                sampler.addBytes(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                sampler.addBytes(count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long count = super.skip(n);
+            if (count > 0) {
+                sampler.addBytes(count);
+            }
+            return count;
+        }
+    }
+
+    private static boolean isXMLEntry(ZipEntry entry) {
+        return !entry.isDirectory() && entry.getName().endsWith(".xml");
+    }
+
+    private void addRoot(List<T> roots, T root) {
+        if (root != null) {
+            roots.add(root);
+        }
+    }
+
+    private void setDoCancel(ProgressObserver p) {
+        p.setDoCancel(new Runnable() {
+
+            @Override
+            public void run() {
+                abort();
+            }
+        });
+    }
+
+    /**
+     * Aborts all documents which are being parsed.
+     */
+    private void abort() {
+        isAborted = true;
+        for (SuspendableInputStream sis : streams) {
+            sis.abort();
+        }
+    }
+
+    /**
+     * Inflates the specified stream on a producer thread, while the document
+     * is parsed on the current thread.
+     */
+    private T parsePipelined(InputStream in) throws IOException {
+        PipelinedInputStream pin = new PipelinedInputStream(in);
+        try {
+            return parse(pin);
+        } finally {
+            pin.close();
+        }
+    }
+
+    private T parse(InputStream in) throws IOException {
+        SuspendableInputStream sis = new SuspendableInputStream(in);
+        streams.add(sis);
+        if (isAborted) {
+            sis.abort();
+        }
+        try {
+            XMLStreamReader reader = createXMLStreamReader(factory, sis);
+            try {
+                return parse(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException ex) {
+            if (ex.getNestedException() instanceof IOException) {
+                throw (IOException) ex.getNestedException();
+            }
+            throw new IOException("XML Error", ex);
+        } finally {
+            streams.remove(sis);
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * @(#)XMLNode.java  1.0.1  2011-08-19
+ * @(#)XMLNode.java  1.2  2026-10-18
  *
  * Copyright (c) 2007-2011 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -17,23 +17,44 @@ import java.util.*;
 
 /**
  * XMLNode.
+ * <p>
+ * The attributes are stored against an {@link AttributeSchema} which is
+ * shared by all nodes of a document. Each node holds an array with the ids
+ * of its attributes and an array with their values. Nodes with the same
+ * attribute names share the same id array.
  *
  * @author Werner Randelshofer
- * @version 2011-08-19 Composite nodes had weight +1 instead of correct weight.
+ * @version 1.2 2026-10-18 Adds an index for attribute columns.
+ * <br>1.1 2026-10-18 Stores attributes in arrays instead of a hash map.
+ * <br>1.0.1 2011-08-19 Composite nodes had weight +1 instead of correct weight.
  * <br>1.0 23. Juni 2008 Created.
  */
 public class XMLNode implements TreeNode {
 
     private ArrayList<XMLNode> children;
     private String name;
-    private HashMap<String, String> attributes;
+    private AttributeSchema schema;
+    private int[] attributeIds;
+    private String[] attributeValues;
     private long cumulatedWeight;
+    private int index = -1;
+    private final static String[] NO_VALUES = new String[0];
 
     /**
-     * Creates a new instance.
+     * Creates a new instance with its own attribute schema.
      */
     public XMLNode() {
-        attributes = new HashMap<String, String>();
+        this(new AttributeSchema());
+    }
+
+    /**
+     * Creates a new instance which stores its attributes against the
+     * specified schema.
+     */
+    public XMLNode(AttributeSchema schema) {
+        this.schema = schema;
+        attributeIds = schema.share(null);
+        attributeValues = NO_VALUES;
     }
 
     @Override
@@ -61,18 +82,85 @@ public class XMLNode implements TreeNode {
         return name;
     }
 
+    public AttributeSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Sets all attributes at once.
+     *
+     * @param ids The ids of the attribute names in the schema.
+     * @param values The attribute values.
+     */
+    public void setAttributes(int[] ids, String[] values) {
+        attributeIds = schema.share(ids);
+        attributeValues = values;
+    }
+
     public void putAttribute(String key, String value) {
-        attributes.put(key, value);
+        int index = indexOf(schema.findId(key));
+        if (index == -1) {
+            int n = attributeIds.length;
+            int[] ids = Arrays.copyOf(attributeIds, n + 1);
+            ids[n] = schema.getId(key);
+            attributeIds = schema.share(ids);
+            attributeValues = Arrays.copyOf(attributeValues, n + 1);
+            index = n;
+        }
+        attributeValues[index] = value;
     }
 
     public String getAttribute(String key) {
-        return attributes.get(key);
+        int index = indexOf(schema.findId(key));
+        return index == -1 ? null : attributeValues[index];
+    }
+
+    private int indexOf(int id) {
+        if (id != -1) {
+            for (int i = 0; i < attributeIds.length; i++) {
+                if (attributeIds[i] == id) {
+                    return i;
+                }
+            }
+        }
+        return -1;
     }
 
-    public HashMap<String, String> getAttributes() {
+    public int getAttributeCount() {
+        return attributeIds.length;
+    }
+
+    public String getAttributeName(int index) {
+        return schema.getName(attributeIds[index]);
+    }
+
+    public String getAttributeValue(int index) {
+        return attributeValues[index];
+    }
+
+    /**
+     * Returns a copy of the attributes of this node.
+     */
+    public Map<String, String> getAttributes() {
+        LinkedHashMap<String, String> attributes = new LinkedHashMap<String, String>();
+        for (int i = 0; i < attributeIds.length; i++) {
+            attributes.put(getAttributeName(i), attributeValues[i]);
+        }
         return attributes;
     }
 
+    /**
+     * Returns the index of this node in the attribute columns of its tree,
+     * or -1 if the node has no index.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int newValue) {
+        index = newValue;
+    }
+
     public long getCumulatedWeight() {
         return cumulatedWeight;
     }
@@ -1,5 +1,5 @@
 /*
- * @(#)XMLNodeInfo.java  1.0  23. Juni 2008
+ * @(#)XMLNodeInfo.java  1.5  2026-10-18
  *
  * Copyright (c) 2007 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -19,10 +19,9 @@ import ch.randelshofer.util.prefs.PreferencesUtil2;
 import java.awt.Color;
 import java.awt.Image;
 import java.text.DecimalFormat;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.prefs.Preferences;
 import javax.swing.Action;
 import javax.swing.event.*;
@@ -33,7 +32,14 @@ import javax.swing.event.*;
  * like file system attributes. 
  *
  * @author  Werner Randelshofer
- * @version 1.0 23. Juni 2008 Created.
+ * @version 1.5 2026-10-18 Computes the cached weights again, if another
+ * weight attribute has been chosen.
+ * <br>1.4 2026-10-18 Collects streaming statistics of the attributes
+ * instead of their value sets.
+ * <br>1.3 2026-10-18 Can be initialized with cached statistics.
+ * <br>1.2 2026-10-18 Reads weights from attribute columns.
+ * <br>1.1 2026-10-18 Collects attributes without copying them into maps.
+ * <br>1.0 23. Juni 2008 Created.
  */
 public class XMLNodeInfo extends AbstractNodeInfo {
 
@@ -45,17 +51,21 @@ public class XMLNodeInfo extends AbstractNodeInfo {
     private Weighter colorWeighter;
     private Weighter weighter;
     private boolean isInitialized;
-    private HashMap<String, HashSet<String>> attributes;
+    private HashMap<String, AttributeStatistics> statistics;
     private HashMap<String, DataType> types;
     private String nameAttribute;
     private String weightAttribute;
     private String colorAttribute;
+    private XMLNode root;
+    private int nodeCount;
+    private HashMap<String, AttributeColumn> columns = new HashMap<String, AttributeColumn>();
+    private AttributeColumn weightColumn;
 
     /** Creates a new instance. */
     public XMLNodeInfo() {
         colorizer = new RGBColorizer();
         //weighter = new LastModifiedWeighter();
-        attributes = new HashMap<String, HashSet<String>>();
+        statistics = new HashMap<String, AttributeStatistics>();
 
         shortWeightFormat = new SizeFormat();
         shortWeightFormat.setShortFormat(true);
@@ -93,9 +103,9 @@ public class XMLNodeInfo extends AbstractNodeInfo {
     @Override
     public long getWeight(TreePath2<TreeNode> path) {
         XMLNode node = (XMLNode) path.getLastPathComponent();
-       
-        if (weightAttribute != null && node.getAttribute(weightAttribute) != null) {
-            return Math.max(1, Long.valueOf(node.getAttribute(weightAttribute)).longValue());
+
+        if (weightColumn != null && weightColumn.isSet(node.getIndex())) {
+            return Math.max(1, weightColumn.get(node.getIndex()));
         }
         return node.getAllowsChildren() ? 0 : 1;
     }
@@ -176,19 +186,60 @@ public class XMLNodeInfo extends AbstractNodeInfo {
     public void init(XMLNode root) {
         if (!isInitialized) {
             isInitialized = true;
+            this.root = root;
+            nodeCount = numberNodes(root, 0);
             types = new HashMap<String, DataType>();
-            attributes = new HashMap<String, HashSet<String>>();
-            computeStats(root, types, attributes);
+            statistics = new HashMap<String, AttributeStatistics>();
+            computeStats(root, types, statistics);
         }
     }
 
-    public void computeStats(XMLNode root, HashMap<String, DataType> typeMap, HashMap<String, HashSet<String>> attrMap) {
+    /**
+     * Initializes this info with data types, columns and cumulated weights
+     * which have been computed before. The nodes must have been numbered
+     * in depth first order, and their cumulated weights must have been set.
+     * If the preferences choose another weight attribute now, the cumulated
+     * weights are computed again.
+     *
+     * @param root The root of the tree.
+     * @param nodeCount The number of nodes in the tree.
+     * @param types The data types of the attributes.
+     * @param columns The attribute columns which have been created before.
+     * @param weightAttribute The attribute with which the cumulated weights
+     * have been computed.
+     */
+    public void init(XMLNode root, int nodeCount, HashMap<String, DataType> types, Map<String, AttributeColumn> columns,
+            String weightAttribute) {
+        if (!isInitialized) {
+            isInitialized = true;
+            this.root = root;
+            this.nodeCount = nodeCount;
+            this.types = types;
+            // The attribute statistics are collected when they are requested.
+            statistics = null;
+            this.columns.putAll(columns);
+            chooseAttributes(root, types, weightAttribute);
+        }
+    }
+
+    public void computeStats(XMLNode root, HashMap<String, DataType> typeMap, HashMap<String, AttributeStatistics> attrMap) {
         collectAttributesRecursively(root, attrMap);
 
-        for (Map.Entry<String, HashSet<String>> entry : attrMap.entrySet()) {
-            typeMap.put(entry.getKey(), determineDataType(entry.getValue()));
+        for (Map.Entry<String, AttributeStatistics> entry : attrMap.entrySet()) {
+            typeMap.put(entry.getKey(), entry.getValue().getType());
         }
+        chooseAttributes(root, typeMap, null);
+    }
 
+    /**
+     * Determines the name, weight and color attributes, and creates the
+     * weighters.
+     *
+     * @param cumulatedAttribute The attribute with which the cumulated
+     * weights of the nodes have been computed, or null if they need to be
+     * computed.
+     */
+    private void chooseAttributes(XMLNode root, HashMap<String, DataType> typeMap, String cumulatedAttribute) {
         // Determine the name attribute
         Preferences prefs = PreferencesUtil2.userNodeForPackage(XMLFileAccessory.class);
         String rootElementName = root.getName();
@@ -222,8 +273,11 @@ public class XMLNodeInfo extends AbstractNodeInfo {
                 }
             }
         }
+        weightColumn = (typeMap.get(weightAttribute) == DataType.NUMERIC_STRING) ? getColumn(weightAttribute) : null;
         weighter = new XMLDateInfoWeighter(this, weightAttribute);
-        root.accumulateWeights(this, null);
+        if (cumulatedAttribute == null || !cumulatedAttribute.equals(weightAttribute)) {
+            root.accumulateWeights(this, null);
+        }
 
         // Determine the color attribute
         if (typeMap.get(colorAttribute) == DataType.DATE_STRING) {
@@ -271,30 +325,108 @@ public class XMLNodeInfo extends AbstractNodeInfo {
 
     }
 
-    public void collectAttributesRecursively(XMLNode node, HashMap<String, HashSet<String>> attrMap) {
-        for (Map.Entry<String, String> entry : node.getAttributes().entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
-            HashSet<String> valueSet;
-            if (attrMap.containsKey(key)) {
-                valueSet = attrMap.get(key);
-            } else {
-                valueSet = new HashSet<String>();
-                attrMap.put(key, valueSet);
+    public void collectAttributesRecursively(XMLNode node, HashMap<String, AttributeStatistics> attrMap) {
+        for (int i = 0, n = node.getAttributeCount(); i < n; i++) {
+            String key = node.getAttributeName(i);
+            String value = node.getAttributeValue(i);
+            AttributeStatistics valueStatistics = attrMap.get(key);
+            if (valueStatistics == null) {
+                valueStatistics = new AttributeStatistics();
+                attrMap.put(key, valueStatistics);
             }
-            valueSet.add(value);
+            valueStatistics.add(value);
         }
         for (TreeNode child : node.children()) {
             collectAttributesRecursively((XMLNode) child, attrMap);
         }
     }
 
+    /**
+     * Assigns an index to the specified node and its descendants.
+     *
+     * @return the next free index.
+     */
+    private int numberNodes(XMLNode node, int index) {
+        node.setIndex(index++);
+        for (TreeNode child : node.children()) {
+            index = numberNodes((XMLNode) child, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the parsed values of the specified attribute. The column is
+     * created when it is requested for the first time.
+     *
+     * @return the column, or null if the attribute is text or unknown.
+     */
+    public synchronized AttributeColumn getColumn(String key) {
+        AttributeColumn column = columns.get(key);
+        if (column == null) {
+            DataType type = (types == null) ? null : types.get(key);
+            if (type == null || type == DataType.TEXT_STRING) {
+                return null;
+            }
+            column = new AttributeColumn(type, nodeCount);
+            fillColumnRecursively(root, key, column);
+            column.finishParsing();
+            columns.put(key, column);
+        }
+        return column;
+    }
+
+    private void fillColumnRecursively(XMLNode node, String key, AttributeColumn column) {
+        String str = node.getAttribute(key);
+        if (str != null) {
+            column.parse(node.getIndex(), str);
+        }
+        for (TreeNode child : node.children()) {
+            fillColumnRecursively((XMLNode) child, key, column);
+        }
+    }
+
     public XMLNodeInfo.DataType getType(String key) {
         return types.get(key);
     }
 
-    public Set<String> getValues(String key) {
-        return attributes.get(key);
+    /**
+     * Returns the statistics of the specified attribute. If the info has
+     * been initialized from a cache, the statistics are collected when they
+     * are requested for the first time.
+     *
+     * @return the statistics, or null if no node has the attribute.
+     */
+    public synchronized AttributeStatistics getStatistics(String key) {
+        if (statistics == null) {
+            statistics = new HashMap<String, AttributeStatistics>();
+            collectAttributesRecursively(root, statistics);
+        }
+        return statistics.get(key);
+    }
+
+    /**
+     * Returns the data types of the attributes.
+     */
+    public Map<String, DataType> getTypes() {
+        return Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * Returns the attribute columns which have been created so far.
+     */
+    public synchronized Map<String, AttributeColumn> getColumns() {
+        return new HashMap<String, AttributeColumn>(columns);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the attribute with which the cumulated weights are computed.
+     */
+    public String getWeightAttribute() {
+        return weightAttribute;
     }
 
     @Override
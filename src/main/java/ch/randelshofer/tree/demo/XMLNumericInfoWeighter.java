@@ -1,5 +1,5 @@
 /*
- * @(#)XMLNumericInfoWeighter.java  1.0  2010-08-19
+ * @(#)XMLNumericInfoWeighter.java  1.2  2026-10-18
  *
  * Copyright (c) 2010 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -11,16 +11,15 @@
 package ch.randelshofer.tree.demo;
 
 import ch.randelshofer.tree.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
 
 /**
  * XMLNumericInfoWeighter.
  *
  * @author  Werner Randelshofer
- * @version 1.0 2010-08-19 Created.
+ * @version 1.2 2026-10-18 Takes the minimum, maximum and median from a
+ * quantile sketch.
+ * <br>1.1 2026-10-18 Reads the numbers from an attribute column.
+ * <br>1.0 2010-08-19 Created.
  */
 public class XMLNumericInfoWeighter implements Weighter {
 
@@ -30,6 +29,7 @@ public class XMLNumericInfoWeighter implements Weighter {
     private double min;
     private double max;
     private double median;
+    private AttributeColumn column;
 
     /** Creates a new instance. */
     public XMLNumericInfoWeighter(XMLNodeInfo info, String key) {
@@ -40,24 +40,22 @@ public class XMLNumericInfoWeighter implements Weighter {
     @Override
     public void init(TreeNode root) {
         if (info.getType(key) == XMLNodeInfo.DataType.NUMERIC_STRING) {
+            column = info.getColumn(key);
             double minDate = Double.MAX_VALUE;
             double maxDate = Double.MIN_VALUE;
-            Set<String> stringValues = info.getValues(key);
 
-            ArrayList<Double> dates = new ArrayList<Double>();
-            collectDatesRecursive((XMLNode) root, dates);
-            Collections.sort(dates);
-            if (dates.size() > 0) {
-                minDate = dates.get(0);
-                maxDate = dates.get(dates.size() - 1);
-                median = dates.get(dates.size() / 2);
+            QuantileSketch sketch = column.getSketch();
+            if (sketch.getCount() > 0) {
+                minDate = sketch.getMin();
+                maxDate = sketch.getMax();
+                median = sketch.getMedian();
                 min = minDate;
                 max = maxDate;
             }
 
             if (maxDate != minDate) {
                 histogram = new int[256];
-                calculateDateHistogramRecursive(root);
+                calculateHistogram(column.getValues());
             } else {
                 histogram = new int[1];
                 histogram[0] = 1;
@@ -68,57 +66,24 @@ public class XMLNumericInfoWeighter implements Weighter {
         }
     }
 
-    private void collectDatesRecursive(XMLNode node, List<Double> dates) {
-        String str = node.getAttribute(key);
-        if (str != null) {
-            double value;
-            try {
-                value = Double.parseDouble(str);
-                dates.add(value);
-            } catch (NumberFormatException ex) {
-                // skip unparsable numbers
-            }
-        }
-        for (TreeNode child : node.children()) {
-            collectDatesRecursive((XMLNode) child, dates);
-        }
-    }
-
     /**
-     * Calculates the date histogram recursively.
-     * 
-     * @param root
+     * Calculates the histogram.
+     *
+     * @param values the values of all nodes
      */
-    private void calculateDateHistogramRecursive(TreeNode root) {
-        XMLNode node = (XMLNode) root;
-        String str = node.getAttribute(key);
-        if (str != null) {
-            double value;
-            try {
-                value = Double.parseDouble(str);
-                int index = Math.min(histogram.length - 1, Math.max(0, (int) ((value - ( min)) * (histogram.length - 1) /  (( max) - ( min)))));
-                histogram[index]++;
-            } catch (NumberFormatException ex) {
-                // skip unparsable numbers
-            }
-        }
-        for (TreeNode child : root.children()) {
-            calculateDateHistogramRecursive(child);
+    private void calculateHistogram(long[] values) {
+        for (long value : values) {
+            int index = Math.min(histogram.length - 1, Math.max(0, (int) ((value - (min)) * (histogram.length - 1) / ((max) - (min)))));
+            histogram[index]++;
         }
     }
 
     @Override
     public float getWeight(TreePath2 path) {
         XMLNode node = (XMLNode) path.getLastPathComponent();
-        String str = node.getAttribute(key);
-        if (str != null) {
-            double value;
-            try {
-                value = Double.parseDouble(str);
-                return (float)((value - ( min)) /  (( max) - ( min)));
-            } catch (NumberFormatException ex) {
-                // skip unparsable numbers
-            }
+        if (column != null && column.isSet(node.getIndex())) {
+            double value = column.get(node.getIndex());
+            return (float) ((value - (min)) / ((max) - (min)));
         }
         return 0f;
     }
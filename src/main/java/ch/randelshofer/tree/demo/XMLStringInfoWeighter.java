@@ -1,5 +1,5 @@
 /*
- * @(#)XMLStringInfoWeighter.java  1.0  2010-10-17
+ * @(#)XMLStringInfoWeighter.java  1.1  2026-10-18
  * 
  * Copyright © 2010 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -15,14 +15,14 @@ import ch.randelshofer.tree.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 /**
  * {@code XMLStringInfoWeighter} weights string by the char code of the
  * first character.
  *
  * @author Werner Randelshofer
- * @version 1.0 2010-10-17 Created.
+ * @version 1.1 2026-10-18 Does not request the set of attribute values.
+ * <br>1.0 2010-10-17 Created.
  */
 class XMLStringInfoWeighter  implements Weighter {
 
@@ -44,7 +44,6 @@ class XMLStringInfoWeighter  implements Weighter {
         if (info.getType(key) == XMLNodeInfo.DataType.NUMERIC_STRING) {
             char minChar = '\uffff';
             char maxChar = '\u0000';
-            Set<String> stringValues = info.getValues(key);
 
             ArrayList<Character> chars = new ArrayList<Character>();
             collectCharactersRecursive((XMLNode) root, chars);
@@ -1,5 +1,5 @@
 /*
- * @(#)XMLTree.java  1.1  2011-01-20
+ * @(#)XMLTree.java  1.7  2026-10-18
  *
  * Copyright (c) 2007 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
@@ -12,22 +12,27 @@ package ch.randelshofer.tree.demo;
 
 import ch.randelshofer.gui.ProgressObserver;
 import ch.randelshofer.gui.ProgressView;
-import ch.randelshofer.io.*;
 import java.io.*;
 import java.net.URL;
-import java.util.Stack;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import javax.xml.parsers.*;
-import org.xml.sax.*;
-import org.xml.sax.helpers.DefaultHandler;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * XMLTree produces a general purpose tree over a XML file.
+ * The file can be gzipped or zipped, see {@link XMLEntryReader}. If a zip
+ * file contains more than one XML document, the documents are put below
+ * a common root node.
  * See {@link XMLNodeInfo} on how the XML data structure is being interpreted.
  *
  * @author  Werner Randelshofer
- * @version 1.1 2011-01-20 Adds network support.
+ * @version 1.7 2026-10-18 Counts the nodes for the progress sampler.
+ * <br>1.6 2026-10-18 Shares attribute values through a bounded dictionary.
+ * <br>1.5 2026-10-18 Reads and writes a cache file.
+ * <br>1.4 2026-10-18 Inflates compressed files on a separate thread,
+ * reads gzipped files, and parses all documents of a zip file.
+ * <br>1.3 2026-10-18 Reads the file with a streaming parser.
+ * <br>1.2 2026-10-18 Adds constructors with a progress observer.
+ * <br>1.1 2011-01-20 Adds network support.
  * <br>1.0 23. Juni 2008 Created.
  */
 public class XMLTree implements DemoTree {
@@ -35,14 +40,18 @@ public class XMLTree implements DemoTree {
     private XMLNode root;
     private XMLNodeInfo info;
     private ProgressObserver p;
+    private List<String> valueStatistics = Collections.emptyList();
 
     public XMLTree(File xmlFile) throws IOException {
-        FileInputStream in = new FileInputStream(xmlFile);
-        try {
-            read(in,xmlFile.getName(),xmlFile.length());
-        } finally {
-            in.close();
-        }
+        this(xmlFile, null);
+    }
+
+    /**
+     * Creates a new instance which reports its progress to the specified
+     * observer. If the observer is null, a progress view is shown.
+     */
+    public XMLTree(File xmlFile, ProgressObserver p) throws IOException {
+        read(xmlFile, p);
     }
     public XMLTree(URL xmlFile) throws IOException {
         InputStream in = xmlFile.openStream();
@@ -59,101 +68,123 @@ public class XMLTree implements DemoTree {
         }
     }
 
-    public void read(InputStream in, String rootName,long fileLength) throws IOException {    /** Creates a new instance. */
-   
-        p = null;
+    public void read(InputStream in, String rootName,long fileLength) throws IOException {
+        read(in, rootName, fileLength, null);
+    }
+
+    public void read(InputStream in, String rootName, long fileLength, ProgressObserver p) throws IOException {
+        p = open(rootName, p);
+        try {
+            EntryReader reader = new EntryReader();
+            List<XMLNode> roots = reader.read(in, rootName, fileLength, p);
+            valueStatistics = reader.getValueStatistics();
+            init(roots, rootName);
+        } finally {
+            p.close();
+        }
+    }
+
+    /**
+     * Reads the specified file. The XML documents of a zip file are parsed
+     * concurrently. The tree is read from its {@link XMLTreeCache}, if the
+     * cache is up to date. Otherwise the cache is written after the file
+     * has been parsed.
+     */
+    public void read(File xmlFile, ProgressObserver p) throws IOException {
+        p = open(xmlFile.getName(), p);
+        try {
+            XMLTreeCache cache = new XMLTreeCache(xmlFile);
+            p.setNote("Reading cache");
+            if (cache.read(XMLTreeCache.KIND_XML)) {
+                root = (XMLNode) cache.getRoot();
+                info = new XMLNodeInfo();
+                info.init(root, cache.getNodeCount(), cache.getTypes().get(0), cache.getColumns(), cache.getWeightAttribute());
+                return;
+            }
+            p.setNote("");
+            EntryReader reader = new EntryReader();
+            List<XMLNode> roots = reader.read(xmlFile, p);
+            valueStatistics = reader.getValueStatistics();
+            init(roots, xmlFile.getName());
+            p.setNote("Writing cache");
+            cache.write(root, info);
+        } finally {
+            p.close();
+        }
+    }
+
+    private ProgressObserver open(String rootName, ProgressObserver p) {
         if (p == null) {
             p = new ProgressView("Opening " + rootName, "", 0, 1);
             p.setIndeterminate(true);
         }
-        try {
+        this.p = p;
+        return p;
+    }
+
+    /**
+     * Builds the tree from the root elements of the documents. If there is
+     * more than one document, the documents are put below a node which is
+     * named after the file.
+     */
+    private void init(List<XMLNode> roots, String rootName) throws IOException {
+        if (roots.isEmpty()) {
+            throw new IOException("XML File is empty");
+        }
+        if (roots.size() == 1) {
+            root = roots.get(0);
+        } else {
             root = new XMLNode();
-            info = new XMLNodeInfo();
-
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            
-            try {
-                SAXParser saxParser = factory.newSAXParser();
-                BoundedRangeInputStream bris;
-                if (rootName.endsWith(".zip")) {
-                    bris = null;
-                    ZipInputStream zis = new ZipInputStream(in);
-                    for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
-                        if (!entry.isDirectory() && entry.getName().endsWith(".xml")) {
-                            bris = new BoundedRangeInputStream(zis);
-                            if (entry.getSize() != -1) {
-                                bris.setMaximum((int) entry.getSize() + 1);
-                            }
-                            break;
-                        }
-                    }
-                    if (bris == null) {
-                        throw new IOException("No XML file found inside of " + rootName + ".");
-                    }
-
-                } else {
-                    bris = new BoundedRangeInputStream(in);
-                    bris.setMaximum(fileLength==-1?Integer.MAX_VALUE:(int) fileLength + 1);
-                }
-
-                final SuspendableInputStream sis = new SuspendableInputStream(bris);
-                p.setModel(bris);
-                p.setIndeterminate(false);
-                p.setDoCancel(new Runnable() {
-
-                    @Override
-                    public void run() {
-                        sis.abort();
-                    }
-                });
-
-                saxParser.parse(sis, new DefaultHandler() {
-
-                    private Stack<XMLNode> stack = new Stack<XMLNode>();
-
-                    {
-                        stack.push(root);
-                    }
-
-                    @Override
-                    public void startElement(String uri, String localName,
-                            String qName, Attributes attributes)
-                            throws SAXException {
-                        XMLNode node = new XMLNode();
-                        node.setName(qName.intern());
-                        for (int i = 0, n = attributes.getLength(); i < n; i++) {
-                            // internalizing attribute names considerably saves memory
-                            String name = attributes.getLocalName(i).intern();
-                            node.putAttribute(name, attributes.getValue(i).intern());
-                            //info.putAttribute(name,attributes.getValue(i));
-                        }
-
-                        stack.peek().addChild(node);
-                        stack.push(node);
-                    }
-
-                    @Override
-                    public void endElement(String uri, String localName, String qName)
-                            throws SAXException {
-                        stack.pop();
-                    }
-                });
-            } catch (ParserConfigurationException ex) {
-                throw new IOException("XML Parser configuration error", ex);
-            } catch (SAXException ex) {
-                throw new IOException("XML Error", ex);
-            } finally {
-                
+            root.setName(rootName);
+            for (XMLNode documentRoot : roots) {
+                root.addChild(documentRoot);
             }
-            p.setNote("Calculating statistics");
-            p.setIndeterminate(true);
+        }
+        p.setNote("Calculating statistics");
+        p.setIndeterminate(true);
 
-            root = (XMLNode) root.children().get(0);
+        info = new XMLNodeInfo();
+        info.init(root);
+    }
 
-            info.init(root);
-        } finally {
-            p.close();
+    /**
+     * Reads the documents of a file into XML nodes.
+     */
+    private static class EntryReader extends XMLEntryReader<XMLNode> {
+
+        @Override
+        protected XMLNode createNode(AttributeSchema schema) {
+            return new XMLNode(schema);
         }
+
+        @Override
+        protected void setName(XMLNode node, String name) {
+            node.setName(name);
+        }
+
+        @Override
+        protected Object[] createValues(int n) {
+            return new String[n];
+        }
+
+        @Override
+        protected void setAttributes(XMLNode node, int[] ids, Object[] values) {
+            node.setAttributes(ids, (String[]) values);
+        }
+
+        @Override
+        protected void addChild(XMLNode parent, XMLNode child) {
+            parent.addChild(child);
+        }
+    }
+
+    /**
+     * Returns a description of the shared attribute values of each document
+     * which has been read. The list is empty, if the tree has been read from
+     * its cache.
+     */
+    public List<String> getValueStatistics() {
+        return valueStatistics;
     }
 
     @Override
@@ -0,0 +1,854 @@
+/*
+ * @(#)XMLTreeCache.java  1.1  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.demo;
+
+import ch.randelshofer.tree.TreeNode;
+import ch.randelshofer.tree.demo.AbstractNodeInfo.DataType;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Caches a parsed XML tree in a binary sidecar file next to the XML file.
+ * <p>
+ * The cache holds the nodes with their attributes, the data types of the
+ * attributes, the attribute columns and the cumulated weights. Opening a
+ * tree from its cache skips parsing the XML file, and it skips most of the
+ * statistics which the node info computes over the attributes.
+ * <p>
+ * The cache is keyed by the length and the modification time of the XML file,
+ * and by a checksum over three samples of its content. A cache whose key
+ * does not match the XML file is ignored, and replaced when the tree has
+ * been parsed again. The cache also holds the name of the weight attribute
+ * of the cumulated weights. If the user has chosen another weight attribute
+ * since, the node info computes the cumulated weights again.
+ * <p>
+ * The cache file starts with a header followed by sections. All numbers
+ * are big-endian.
+ * <pre>
+ * header:   int magic 'TVXC', int version, int kind,
+ *           long length, long lastModified, long checksum,
+ *           int length, UTF-8 bytes of the weight attribute (-1 if null)
+ * strings:  int count, count * (int length, UTF-8 bytes)
+ * schema:   int count, count * int string
+ * nodes:    int count, nodes in depth first order:
+ *           int name string, int index, int childCount,
+ *           int attributeCount, attributeCount * (int schema id, int string)
+ * weights:  int count, long[count] cumulated weight by node index
+ * types:    int mapCount, mapCount * (int count, count * (int string, int type))
+ * columns:  int count, count * (int string, int type, int size,
+ *           long[size] values, int wordCount, long[wordCount] set bits)
+ * </pre>
+ * Attribute values which are not strings are not cached. The node info
+ * computes them again. All counts are checked against the length of the
+ * cache file, before arrays are allocated for them.
+ *
+ * @author Werner Randelshofer
+ * @version 1.1 2026-10-18 Stores the weight attribute, and checks the
+ * counts of the sections.
+ * <br>1.0 2026-10-18 Created.
+ */
+public class XMLTreeCache {
+
+    /** The file name extension of cache files. */
+    public final static String EXTENSION = ".tvcache";
+    /** A tree of {@link XMLNode}s. */
+    public final static int KIND_XML = 0;
+    /** A tree of {@link TreevizFileSystemXMLNode}s. */
+    public final static int KIND_TREEVIZ_FILE_SYSTEM = 1;
+    private final static int MAGIC = 0x54565843; // 'TVXC'
+    private final static int VERSION = 2;
+    /** The size of the samples for the checksum. */
+    private final static int SAMPLE_SIZE = 64 * 1024;
+    private final static int BUFFER_SIZE = 1 << 20;
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+    private File source;
+    private File cacheFile;
+    private TreeNode root;
+    private ArrayList<HashMap<String, DataType>> typeMaps;
+    private HashMap<String, AttributeColumn> columns;
+    private int nodeCount;
+    private String weightAttribute;
+
+    /**
+     * Creates a cache for the specified XML file.
+     */
+    public XMLTreeCache(File source) {
+        this.source = source;
+        this.cacheFile = new File(source.getPath() + EXTENSION);
+    }
+
+    public File getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Returns the root of the tree which has been read.
+     */
+    public TreeNode getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the data type maps which have been read, in the order in which
+     * they were written.
+     */
+    public List<HashMap<String, DataType>> getTypes() {
+        return typeMaps;
+    }
+
+    /**
+     * Returns the attribute columns which have been read.
+     */
+    public Map<String, AttributeColumn> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of nodes with an index.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the attribute with which the cumulated weights have been
+     * computed.
+     */
+    public String getWeightAttribute() {
+        return weightAttribute;
+    }
+
+    /**
+     * Computes the key of the XML file: its length, its modification time and
+     * a checksum over its first, middle and last bytes.
+     */
+    private long[] computeKey() throws IOException {
+        long length = source.length();
+        long lastModified = source.lastModified();
+        CRC32 crc = new CRC32();
+        RandomAccessFile raf = new RandomAccessFile(source, "r");
+        try {
+            byte[] sample = new byte[SAMPLE_SIZE];
+            long[] offsets = {0, length / 2 - SAMPLE_SIZE / 2, length - SAMPLE_SIZE};
+            for (long offset : offsets) {
+                offset = Math.max(0, offset);
+                int n = (int) Math.min(SAMPLE_SIZE, length - offset);
+                raf.seek(offset);
+                raf.readFully(sample, 0, n);
+                crc.update(sample, 0, n);
+            }
+        } finally {
+            raf.close();
+        }
+        return new long[]{length, lastModified, crc.getValue()};
+    }
+
+    /**
+     * Reads the tree from the cache.
+     *
+     * @param kind The kind of the tree, {@code KIND_XML} or
+     * {@code KIND_TREEVIZ_FILE_SYSTEM}.
+     * @return false if there is no cache, or if the cache is outdated or
+     * unreadable.
+     */
+    public boolean read(int kind) {
+        if (!cacheFile.isFile()) {
+            return false;
+        }
+        try {
+            Input in = new Input(cacheFile);
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != kind) {
+                    return false;
+                }
+                long[] key = computeKey();
+                for (long k : key) {
+                    if (in.readLong() != k) {
+                        return false;
+                    }
+                }
+                weightAttribute = in.readString();
+                if (kind == KIND_XML) {
+                    readContents(in, XML_NODES);
+                } else {
+                    readContents(in, TREEVIZ_FILE_SYSTEM_NODES);
+                }
+            } finally {
+                in.close();
+            }
+            return true;
+        } catch (IOException e) {
+            // The cache is unreadable
+        } catch (RuntimeException e) {
+            // The cache is corrupt
+        }
+        root = null;
+        typeMaps = null;
+        columns = null;
+        weightAttribute = null;
+        return false;
+    }
+
+    private <N extends TreeNode> void readContents(Input in, NodeAccess<N> access) throws IOException {
+        String[] strings = new String[in.readCount(4)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readString();
+        }
+
+        AttributeSchema schema = new AttributeSchema();
+        int schemaSize = in.readInt();
+        for (int i = 0; i < schemaSize; i++) {
+            if (schema.getId(strings[in.readInt()]) != i) {
+                throw new IOException("Illegal schema");
+            }
+        }
+
+        // Element names are interned, like the parser does
+        HashMap<String, String> elementNames = new HashMap<String, String>();
+        int count = in.readCount(16);
+        ArrayList<N> nodes = new ArrayList<N>(count);
+        ArrayList<N> parents = new ArrayList<N>();
+        ArrayList<Integer> remaining = new ArrayList<Integer>();
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            N node = access.create(schema);
+            String name = strings[in.readInt()];
+            String internedName = elementNames.get(name);
+            if (internedName == null) {
+                internedName = name.intern();
+                elementNames.put(internedName, internedName);
+            }
+            access.setName(node, internedName);
+            indices[i] = in.readInt();
+            access.setIndex(node, indices[i]);
+            int childCount = in.readInt();
+            int n = in.readCount(8);
+            if (n > 0) {
+                int[] ids = new int[n];
+                Object[] values = access.createValues(n);
+                for (int j = 0; j < n; j++) {
+                    ids[j] = in.readInt();
+                    values[j] = strings[in.readInt()];
+                }
+                access.setAttributes(node, ids, values);
+            }
+            nodes.add(node);
+            if (!parents.isEmpty()) {
+                int last = parents.size() - 1;
+                access.addChild(parents.get(last), node);
+                remaining.set(last, remaining.get(last) - 1);
+            }
+            if (childCount > 0) {
+                parents.add(node);
+                remaining.add(childCount);
+            }
+            while (!parents.isEmpty() && remaining.get(parents.size() - 1) == 0) {
+                parents.remove(parents.size() - 1);
+                remaining.remove(remaining.size() - 1);
+            }
+        }
+
+        nodeCount = in.readCount(8);
+        long[] weights = in.readLongs(nodeCount);
+        for (int i = 0; i < count; i++) {
+            if (indices[i] >= 0) {
+                access.setCumulatedWeight(nodes.get(i), weights[indices[i]]);
+            }
+        }
+
+        DataType[] dataTypes = DataType.values();
+        typeMaps = new ArrayList<HashMap<String, DataType>>();
+        int mapCount = in.readInt();
+        for (int i = 0; i < mapCount; i++) {
+            HashMap<String, DataType> types = new HashMap<String, DataType>();
+            int n = in.readCount(8);
+            for (int j = 0; j < n; j++) {
+                String key = strings[in.readInt()];
+                types.put(key, dataTypes[in.readInt()]);
+            }
+            typeMaps.add(types);
+        }
+
+        columns = new HashMap<String, AttributeColumn>();
+        int columnCount = in.readInt();
+        for (int i = 0; i < columnCount; i++) {
+            String key = strings[in.readInt()];
+            DataType type = dataTypes[in.readInt()];
+            long[] values = in.readLongs(in.readCount(8));
+            BitSet isSet = BitSet.valueOf(in.readLongs(in.readCount(8)));
+            columns.put(key, new AttributeColumn(type, values, isSet));
+        }
+        root = nodes.isEmpty() ? null : nodes.get(0);
+    }
+
+    /**
+     * Writes a tree of {@link XMLNode}s into the cache.
+     */
+    public void write(XMLNode root, XMLNodeInfo info) {
+        ArrayList<Map<String, DataType>> types = new ArrayList<Map<String, DataType>>();
+        types.add(info.getTypes());
+        write(KIND_XML, XML_NODES, root, info.getNodeCount(), info.getWeightAttribute(), types, info.getColumns());
+    }
+
+    /**
+     * Writes a tree of {@link TreevizFileSystemXMLNode}s into the cache.
+     *
+     * @param root The TreevizFileSystem element.
+     * @param info The info of the files.
+     */
+    public void write(TreevizFileSystemXMLNode root, TreevizFileSystemXMLNodeInfo info) {
+        ArrayList<Map<String, DataType>> types = new ArrayList<Map<String, DataType>>();
+        types.add(info.getUserTypes());
+        types.add(info.getTypes());
+        write(KIND_TREEVIZ_FILE_SYSTEM, TREEVIZ_FILE_SYSTEM_NODES, root, info.getNodeCount(), info.getWeightAttribute(), types, info.getColumns());
+    }
+
+    /**
+     * Writes the cache into a temporary file, and then replaces the cache
+     * file with it. Errors are ignored, because the cache is optional.
+     */
+    private <N extends TreeNode> void write(int kind, NodeAccess<N> access, N root, int nodeCount,
+            String weightAttribute, List<Map<String, DataType>> types, Map<String, AttributeColumn> columns) {
+        File tmp = new File(cacheFile.getPath() + ".tmp");
+        try {
+            long[] key = computeKey();
+            Output out = new Output(tmp);
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(kind);
+                for (long k : key) {
+                    out.writeLong(k);
+                }
+                out.writeString(weightAttribute);
+                writeContents(out, access, root, nodeCount, types, columns);
+            } finally {
+                out.close();
+            }
+            if (cacheFile.exists() && !cacheFile.delete()) {
+                throw new IOException("Could not replace " + cacheFile);
+            }
+            if (!tmp.renameTo(cacheFile)) {
+                throw new IOException("Could not rename " + tmp);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+        }
+    }
+
+    private <N extends TreeNode> void writeContents(Output out, NodeAccess<N> access, N root, int nodeCount,
+            List<Map<String, DataType>> types, Map<String, AttributeColumn> columns) throws IOException {
+        // Collect the strings, the attribute names and the nodes
+        StringTable strings = new StringTable();
+        HashMap<String, Integer> schema = new HashMap<String, Integer>();
+        ArrayList<String> schemaNames = new ArrayList<String>();
+        ArrayList<N> nodes = new ArrayList<N>();
+        ArrayList<N> stack = new ArrayList<N>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            N node = stack.remove(stack.size() - 1);
+            nodes.add(node);
+            strings.add(access.getName(node));
+            for (int i = 0, n = access.getAttributeCount(node); i < n; i++) {
+                if (access.getAttributeValue(node, i) instanceof String) {
+                    String name = access.getAttributeName(node, i);
+                    if (!schema.containsKey(name)) {
+                        schema.put(name, schemaNames.size());
+                        schemaNames.add(name);
+                        strings.add(name);
+                    }
+                    strings.add((String) access.getAttributeValue(node, i));
+                }
+            }
+            List<? extends TreeNode> children = node.children();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.add(access.cast(children.get(i)));
+            }
+        }
+        for (Map<String, DataType> map : types) {
+            for (String key : map.keySet()) {
+                strings.add(key);
+            }
+        }
+        for (String key : columns.keySet()) {
+            strings.add(key);
+        }
+
+        out.writeInt(strings.size());
+        for (byte[] b : strings.getBytes()) {
+            out.writeInt(b.length);
+            out.write(b);
+        }
+
+        out.writeInt(schemaNames.size());
+        for (String name : schemaNames) {
+            out.writeInt(strings.get(name));
+        }
+
+        long[] weights = new long[nodeCount];
+        out.writeInt(nodes.size());
+        for (N node : nodes) {
+            out.writeInt(strings.get(access.getName(node)));
+            int index = access.getIndex(node);
+            out.writeInt(index);
+            if (index >= 0) {
+                weights[index] = access.getCumulatedWeight(node);
+            }
+            out.writeInt(node.children().size());
+            int n = 0;
+            for (int i = 0, m = access.getAttributeCount(node); i < m; i++) {
+                if (access.getAttributeValue(node, i) instanceof String) {
+                    n++;
+                }
+            }
+            out.writeInt(n);
+            for (int i = 0, m = access.getAttributeCount(node); i < m; i++) {
+                Object value = access.getAttributeValue(node, i);
+                if (value instanceof String) {
+                    out.writeInt(schema.get(access.getAttributeName(node, i)));
+                    out.writeInt(strings.get((String) value));
+                }
+            }
+        }
+
+        out.writeInt(nodeCount);
+        out.writeLongs(weights);
+
+        out.writeInt(types.size());
+        for (Map<String, DataType> map : types) {
+            out.writeInt(map.size());
+            for (Map.Entry<String, DataType> entry : map.entrySet()) {
+                out.writeInt(strings.get(entry.getKey()));
+                out.writeInt(entry.getValue().ordinal());
+            }
+        }
+
+        out.writeInt(columns.size());
+        for (Map.Entry<String, AttributeColumn> entry : columns.entrySet()) {
+            AttributeColumn column = entry.getValue();
+            out.writeInt(strings.get(entry.getKey()));
+            out.writeInt(column.getType().ordinal());
+            out.writeInt(column.size());
+            out.writeLongs(column.getAllValues());
+            long[] words = column.getSetIndices().toLongArray();
+            out.writeInt(words.length);
+            out.writeLongs(words);
+        }
+    }
+
+    /**
+     * Assigns a number to each distinct string.
+     */
+    private static class StringTable {
+
+        private HashMap<String, Integer> numbers = new HashMap<String, Integer>();
+        private ArrayList<byte[]> bytes = new ArrayList<byte[]>();
+
+        public void add(String str) {
+            if (!numbers.containsKey(str)) {
+                numbers.put(str, bytes.size());
+                bytes.add(str.getBytes(UTF_8));
+            }
+        }
+
+        public int get(String str) {
+            return numbers.get(str);
+        }
+
+        public int size() {
+            return bytes.size();
+        }
+
+        public List<byte[]> getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Gives uniform access to the node classes of the XML trees.
+     */
+    private static abstract class NodeAccess<N extends TreeNode> {
+
+        public abstract N create(AttributeSchema schema);
+
+        public abstract N cast(TreeNode node);
+
+        public abstract String getName(N node);
+
+        public abstract void setName(N node, String name);
+
+        public abstract int getAttributeCount(N node);
+
+        public abstract String getAttributeName(N node, int i);
+
+        public abstract Object getAttributeValue(N node, int i);
+
+        public abstract Object[] createValues(int n);
+
+        public abstract void setAttributes(N node, int[] ids, Object[] values);
+
+        public abstract void addChild(N parent, N child);
+
+        public abstract int getIndex(N node);
+
+        public abstract void setIndex(N node, int index);
+
+        public abstract long getCumulatedWeight(N node);
+
+        public abstract void setCumulatedWeight(N node, long weight);
+    }
+    private final static NodeAccess<XMLNode> XML_NODES = new NodeAccess<XMLNode>() {
+
+        @Override
+        public XMLNode create(AttributeSchema schema) {
+            return new XMLNode(schema);
+        }
+
+        @Override
+        public XMLNode cast(TreeNode node) {
+            return (XMLNode) node;
+        }
+
+        @Override
+        public String getName(XMLNode node) {
+            return node.getName();
+        }
+
+        @Override
+        public void setName(XMLNode node, String name) {
+            node.setName(name);
+        }
+
+        @Override
+        public int getAttributeCount(XMLNode node) {
+            return node.getAttributeCount();
+        }
+
+        @Override
+        public String getAttributeName(XMLNode node, int i) {
+            return node.getAttributeName(i);
+        }
+
+        @Override
+        public Object getAttributeValue(XMLNode node, int i) {
+            return node.getAttributeValue(i);
+        }
+
+        @Override
+        public Object[] createValues(int n) {
+            return new String[n];
+        }
+
+        @Override
+        public void setAttributes(XMLNode node, int[] ids, Object[] values) {
+            node.setAttributes(ids, (String[]) values);
+        }
+
+        @Override
+        public void addChild(XMLNode parent, XMLNode child) {
+            parent.addChild(child);
+        }
+
+        @Override
+        public int getIndex(XMLNode node) {
+            return node.getIndex();
+        }
+
+        @Override
+        public void setIndex(XMLNode node, int index) {
+            node.setIndex(index);
+        }
+
+        @Override
+        public long getCumulatedWeight(XMLNode node) {
+            return node.getCumulatedWeight();
+        }
+
+        @Override
+        public void setCumulatedWeight(XMLNode node, long weight) {
+            node.setCumulatedWeight(weight);
+        }
+    };
+    private final static NodeAccess<TreevizFileSystemXMLNode> TREEVIZ_FILE_SYSTEM_NODES = new NodeAccess<TreevizFileSystemXMLNode>() {
+
+        @Override
+        public TreevizFileSystemXMLNode create(AttributeSchema schema) {
+            return new TreevizFileSystemXMLNode(schema);
+        }
+
+        @Override
+        public TreevizFileSystemXMLNode cast(TreeNode node) {
+            return (TreevizFileSystemXMLNode) node;
+        }
+
+        @Override
+        public String getName(TreevizFileSystemXMLNode node) {
+            return node.getName();
+        }
+
+        @Override
+        public void setName(TreevizFileSystemXMLNode node, String name) {
+            node.setName(name);
+        }
+
+        @Override
+        public int getAttributeCount(TreevizFileSystemXMLNode node) {
+            return node.getAttributeCount();
+        }
+
+        @Override
+        public String getAttributeName(TreevizFileSystemXMLNode node, int i) {
+            return node.getAttributeName(i);
+        }
+
+        @Override
+        public Object getAttributeValue(TreevizFileSystemXMLNode node, int i) {
+            return node.getAttributeValue(i);
+        }
+
+        @Override
+        public Object[] createValues(int n) {
+            // The node info puts numbers into the attributes of users
+            return new Object[n];
+        }
+
+        @Override
+        public void setAttributes(TreevizFileSystemXMLNode node, int[] ids, Object[] values) {
+            node.setAttributes(ids, values);
+        }
+
+        @Override
+        public void addChild(TreevizFileSystemXMLNode parent, TreevizFileSystemXMLNode child) {
+            parent.addChild(child);
+        }
+
+        @Override
+        public int getIndex(TreevizFileSystemXMLNode node) {
+            return node.getIndex();
+        }
+
+        @Override
+        public void setIndex(TreevizFileSystemXMLNode node, int index) {
+            node.setIndex(index);
+        }
+
+        @Override
+        public long getCumulatedWeight(TreevizFileSystemXMLNode node) {
+            return node.getCumulatedWeight();
+        }
+
+        @Override
+        public void setCumulatedWeight(TreevizFileSystemXMLNode node, long weight) {
+            node.setCumulatedWeight(weight);
+        }
+    };
+
+    /**
+     * Reads big-endian numbers through a direct buffer.
+     */
+    private static class Input {
+
+        private RandomAccessFile raf;
+        private FileChannel channel;
+        private ByteBuffer buf;
+        private byte[] bytes = new byte[256];
+
+        public Input(File file) throws IOException {
+            raf = new RandomAccessFile(file, "r");
+            channel = raf.getChannel();
+            buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buf.flip();
+        }
+
+        /**
+         * Returns the number of bytes which have not been read yet.
+         */
+        private long remaining() throws IOException {
+            return channel.size() - channel.position() + buf.remaining();
+        }
+
+        /**
+         * Reads the count of a section, and checks that the file is long
+         * enough for it. This prevents that a corrupt count allocates a
+         * huge array.
+         *
+         * @param size The minimal number of bytes of an element.
+         */
+        public int readCount(int size) throws IOException {
+            int count = readInt();
+            if (count < 0 || (long) count * size > remaining()) {
+                throw new IOException("Illegal count: " + count);
+            }
+            return count;
+        }
+
+        /**
+         * Reads a string, which has been written with
+         * {@link Output#writeString}.
+         */
+        public String readString() throws IOException {
+            int length = readInt();
+            if (length == -1) {
+                return null;
+            }
+            if (length < 0 || length > remaining()) {
+                throw new IOException("Illegal string length: " + length);
+            }
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            readFully(bytes, length);
+            return new String(bytes, 0, length, UTF_8);
+        }
+
+        /**
+         * Ensures that the buffer holds at least n bytes.
+         */
+        private void require(int n) throws IOException {
+            if (buf.remaining() < n) {
+                buf.compact();
+                while (buf.position() < n) {
+                    if (channel.read(buf) == -1) {
+                        throw new IOException("Unexpected end of file");
+                    }
+                }
+                buf.flip();
+            }
+        }
+
+        public int readInt() throws IOException {
+            require(4);
+            return buf.getInt();
+        }
+
+        public long readLong() throws IOException {
+            require(8);
+            return buf.getLong();
+        }
+
+        public void readFully(byte[] b, int length) throws IOException {
+            for (int off = 0; off < length;) {
+                require(1);
+                int n = Math.min(length - off, buf.remaining());
+                buf.get(b, off, n);
+                off += n;
+            }
+        }
+
+        public long[] readLongs(int count) throws IOException {
+            long[] values = new long[count];
+            for (int off = 0; off < count;) {
+                require(8);
+                int n = Math.min(count - off, buf.remaining() / 8);
+                buf.asLongBuffer().get(values, off, n);
+                buf.position(buf.position() + n * 8);
+                off += n;
+            }
+            return values;
+        }
+
+        public void close() throws IOException {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes big-endian numbers through a direct buffer.
+     */
+    private static class Output {
+
+        private RandomAccessFile raf;
+        private FileChannel channel;
+        private ByteBuffer buf;
+
+        public Output(File file) throws IOException {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(0);
+            channel = raf.getChannel();
+            buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        private void require(int n) throws IOException {
+            if (buf.remaining() < n) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            buf.clear();
+        }
+
+        public void writeInt(int v) throws IOException {
+            require(4);
+            buf.putInt(v);
+        }
+
+        public void writeLong(long v) throws IOException {
+            require(8);
+            buf.putLong(v);
+        }
+
+        public void write(byte[] b) throws IOException {
+            for (int off = 0; off < b.length;) {
+                require(1);
+                int n = Math.min(b.length - off, buf.remaining());
+                buf.put(b, off, n);
+                off += n;
+            }
+        }
+
+        public void writeLongs(long[] values) throws IOException {
+            for (int off = 0; off < values.length;) {
+                require(8);
+                int n = Math.min(values.length - off, buf.remaining() / 8);
+                buf.asLongBuffer().put(values, off, n);
+                buf.position(buf.position() + n * 8);
+                off += n;
+            }
+        }
+
+        /**
+         * Writes the length and the UTF-8 bytes of a string. The length of
+         * null is -1.
+         */
+        public void writeString(String str) throws IOException {
+            if (str == null) {
+                writeInt(-1);
+            } else {
+                byte[] b = str.getBytes(UTF_8);
+                writeInt(b.length);
+                write(b);
+            }
+        }
+
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                raf.close();
+            }
+        }
+    }
+}
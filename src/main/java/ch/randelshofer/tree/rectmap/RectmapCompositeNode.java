@@ -1,7 +1,7 @@
 /**
- * @(#)RectmapCompositeNode.java  1.2  2009-03-22
+ * @(#)RectmapCompositeNode.java  1.4  2026-10-18
  *
- * Copyright (c) 2008-2009 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2008-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -19,7 +19,12 @@ import java.util.*;
  * RectmapCompositeNode.
  *
  * @author Werner Randelshofer
- * @version 1.2 2009-03-22 Made layout progress observable.
+ * @version 1.4 2026-10-18 Adds method updateNodeLayout. Fixes the
+ * descendant count, which was one too small for each composite node.
+ * <br>1.3 2026-10-18 Lays out the children with a selectable
+ * {@link RectmapLayout}, which keeps running sums instead of summing up
+ * each strip again.
+ * <br>1.2 2009-03-22 Made layout progress observable.
  * <br>1.1 2008-06-24 Replaced recursion in squarify algorithm by iteration.
  * <br>1.0 Jan 16, 2008 Created.
  */
@@ -27,10 +32,24 @@ public class RectmapCompositeNode extends RectmapNode {
 
     private ArrayList<RectmapNode> children;
     private int descendants= -1;
+    private RectmapLayout layoutAlgorithm;
 
-    /** Creates a new instance. */
+    /**
+     * Creates a new instance. The children are laid out with the layout
+     * algorithm of the parent, or with {@link RectmapLayout#SQUARIFIED} if
+     * there is no parent.
+     */
     public RectmapCompositeNode(RectmapNode parent, TreeNode data) {
+        this(parent, data, (parent == null) ? RectmapLayout.SQUARIFIED : ((RectmapCompositeNode) parent).layoutAlgorithm);
+    }
+
+    /**
+     * Creates a new instance. The children of this node and of all
+     * composite descendants are laid out with the specified algorithm.
+     */
+    public RectmapCompositeNode(RectmapNode parent, TreeNode data, RectmapLayout layoutAlgorithm) {
         super(parent, data);
+        this.layoutAlgorithm = layoutAlgorithm;
 
         children = new ArrayList<RectmapNode>();
         for (TreeNode c : data.children()) {
@@ -67,24 +86,15 @@ public class RectmapCompositeNode extends RectmapNode {
     }
 
     /**
-     * Lays out the children of this composite node using the <a 
-     * href="http://www.win.tue.nl/~vanwijk/stm.pdf">squarify algorithm</a>
-     * by Bruls, Huizing, and van Wijk, 2000.
-     * 
-     * @param info
+     * Lays out the children of this composite node with its layout
+     * algorithm, and then lays out the subtrees of the children.
+     *
+     * @param p a progress observer
      */
     @Override
     public void layout(ProgressObserver p) {
         super.layout(p);
         if (children.size() > 0) {
-            ArrayList<RectmapNode> remaining = new ArrayList<RectmapNode>(children);
-            Collections.sort(remaining, RectmapCumulatedSizeComparator.getDescendingInstance());
-
-            Rectangle2D.Double rect = new Rectangle2D.Double(0, 0,
-                    this.width,
-                    this.height);
-            squarify(remaining, 0, rect);
-
             for (RectmapNode child : children) {
                 child.layout(p);
             }
@@ -93,154 +103,37 @@ public class RectmapCompositeNode extends RectmapNode {
     }
 
     /**
-     * Lays out nodes in the supplied rectangle using the squarify algorithm.
-     * The area of the rectangle must be equal or greater than the weight of
-     * the nodes. 
-     * 
-     * @param info
-     * @param nodes
-     * @param rect Is changed by this method.
+     * Lays out the children of this node with its layout algorithm. Does
+     * not lay out the subtrees of the children.
      */
-    private void squarify(ArrayList<RectmapNode> nodes, int start, Rectangle2D.Double rect) {
-        while (start < nodes.size()) {
-            if (rect.width >= rect.height) {
-                start = layoutColumn(nodes, start, rect);
-            } else {
-                start = layoutRow(nodes, start, rect);
-            }
-        }
-    }
-
-    /**
-     * Lays out a single column of nodes in the supplied rectangle using the 
-     * squarify algorithm. The nodes are placed on the left side of the rectangle.
-     * If not all nodes fit into the column, squarify is called with the remaining
-     * nodes and the remaining rectangle. 
-     * 
-     * @param info
-     * @param nodes
-     * @param rect is changed by this method
-     * @return Returns the index of last node + 1 which fitted into the column.
-     */
-    private int layoutColumn(ArrayList<RectmapNode> nodes, int start, Rectangle2D.Double rect) {
-        double ratio = worstAspectRatio(nodes, start, start, rect.height);
-        double totalWeight = nodes.get(start).getCumulatedWeight();
-        int to;
-        for (to = start + 1; to <
-                nodes.size(); to++) {
-            double newRatio = worstAspectRatio(nodes, start, to, rect.height);
-            if (newRatio > ratio) {
-                break;
-            }
-
-            ratio = newRatio;
-            totalWeight +=
-                    nodes.get(to).getCumulatedWeight();
-        }
-
-        double ny = rect.y;
-        double nw = totalWeight / rect.height;
-        for (int i = start; i <
-                to; i++) {
-            RectmapNode node = nodes.get(i);
-            node.width = nw;
-            node.height = node.getCumulatedWeight() / nw;
-            node.x = rect.x;
-            node.y = ny;
-            ny +=
-                    node.height;
-        }
-        /*
-        if (to < nodes.size()) {
-            squarify(nodes, to, new Rectangle2D.Double(rect.x + nw, rect.y, rect.width - nw, rect.height));
+    @Override
+    public void updateNodeLayout() {
+        super.updateNodeLayout();
+        if (children.size() > 0) {
+            Rectangle2D.Double rect = new Rectangle2D.Double(0, 0,
+                    this.width,
+                    this.height);
+            layoutAlgorithm.layout(children, rect);
         }
-        */
-        rect.x += nw;
-        rect.width -= nw;
-        return to;
     }
 
     /**
-     * Lays out a single row of nodes in the supplied rectangle using the 
-     * squarify algorithm. The nodes are placed on the bottom side of the rectangle.
-     * If not all nodes fit into the row, squarify is called with the remaining
-     * nodes and the remaining rectangle. 
-     * 
-     * @param info
-     * @param nodes
-     * @param rect is changed by this method
-     * @return Returns the index of last node + 1 which fitted into the column.
+     * Returns the algorithm which lays out the children.
      */
-    private int layoutRow(ArrayList<RectmapNode> nodes, int start, Rectangle2D.Double rect) {
-        double ratio = worstAspectRatio(nodes, start, start, rect.width);
-        double totalWeight = nodes.get(start).getCumulatedWeight();
-        int to;
-        for (to = start + 1; to <
-                nodes.size(); to++) {
-            double newRatio = worstAspectRatio(nodes, start, to, rect.width);
-            if (newRatio > ratio) {
-                break;
-            }
-
-            ratio = newRatio;
-            totalWeight +=
-                    nodes.get(to).getCumulatedWeight();
-        }
-
-        double nx = rect.x;
-        double nh = totalWeight / rect.width;
-        for (int i = start; i <
-                to; i++) {
-            RectmapNode node = nodes.get(i);
-            node.height = nh;
-            node.width = node.getCumulatedWeight() / nh;
-            node.x = nx;
-            node.y = rect.y + rect.height - nh;
-            nx +=
-                    node.width;
-        }
-        /*
-        if (to < nodes.size()) {
-        squarify(nodes, to, new Rectangle2D.Double(rect.x, rect.y, rect.width, rect.height - nh));
-        }*/
-        rect.height -= nh;
-        return to;
+    public RectmapLayout getLayout() {
+        return layoutAlgorithm;
     }
 
-    /**
-     * Returns the aspect ratio of the node, which will have the worst
-     * ratio, if the supplied nodes are laid out on a line with the specified nw.
-     *  
-     * @param nodes A collection of nodes
-     * @param from Index of the first node to consider
-     * @param to Index of the last node to consider
-     * @param nw length of the line.
-     * @return Worst aspect ratio.
-     */
-    private double worstAspectRatio(ArrayList<RectmapNode> nodes, int from, int to, double w) {
-        double s = 0;
-        double rmax = java.lang.Double.MIN_VALUE;
-        double rmin = java.lang.Double.MAX_VALUE;
-        for (int i = from; i <=
-                to; i++) {
-            double nodeWeight = nodes.get(i).getCumulatedWeight();
-            s +=
-                    nodeWeight;
-            rmax =
-                    Math.max(rmax, nodeWeight);
-            rmin =
-                    Math.min(rmin, nodeWeight);
-        }
-
-        return Math.max((w * w * rmax) / (s * s), (s * s) / (w * w * rmin));
-    }
     @Override
     public int getDescendantCount() {
         if (descendants == -1) {
-            descendants += children.size();
-        for (RectmapNode child : children) {
-           descendants += child.getDescendantCount();
-        }
+            // Count into a local variable, so that the count does not
+            // include the -1 of the unknown count.
+            int count = children.size();
+            for (RectmapNode child : children) {
+                count += child.getDescendantCount();
+            }
+            descendants = count;
         }
         return descendants;
     }
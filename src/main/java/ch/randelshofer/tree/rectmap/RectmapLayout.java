@@ -0,0 +1,82 @@
+/*
+ * @(#)RectmapLayout.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.rectmap;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The algorithms which can lay out the children of a
+ * {@link RectmapCompositeNode}.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public enum RectmapLayout {
+
+    /**
+     * Lays out the children sorted by descending weight, see
+     * {@link Rectmaps#squarify}. This gives the most square nodes.
+     */
+    SQUARIFIED {
+
+        @Override
+        public void layout(List<? extends RectmapNode> children, Rectangle2D.Double rect) {
+            ArrayList<RectmapNode> sorted = new ArrayList<RectmapNode>(children);
+            Collections.sort(sorted, RectmapCumulatedSizeComparator.getDescendingInstance());
+            Rectmaps.squarify(sorted, rect);
+        }
+    },
+    /**
+     * Lays out the children in their order in slices, see
+     * {@link Rectmaps#sliceAndDice}.
+     */
+    SLICE_AND_DICE {
+
+        @Override
+        public void layout(List<? extends RectmapNode> children, Rectangle2D.Double rect) {
+            Rectmaps.sliceAndDice(children, rect);
+        }
+    },
+    /**
+     * Lays out the children in their order in horizontal strips, see
+     * {@link Rectmaps#strip}.
+     */
+    STRIP {
+
+        @Override
+        public void layout(List<? extends RectmapNode> children, Rectangle2D.Double rect) {
+            Rectmaps.strip(children, rect);
+        }
+    },
+    /**
+     * Lays out the children in their order around pivots, see
+     * {@link Rectmaps#ordered}.
+     */
+    ORDERED {
+
+        @Override
+        public void layout(List<? extends RectmapNode> children, Rectangle2D.Double rect) {
+            Rectmaps.ordered(children, rect);
+        }
+    };
+
+    /**
+     * Lays out the children in the rectangle. The order of the list is not
+     * changed.
+     *
+     * @param children The children.
+     * @param rect Is changed by this method.
+     */
+    public abstract void layout(List<? extends RectmapNode> children, Rectangle2D.Double rect);
+}
@@ -1,7 +1,7 @@
 /**
- * @(#)RectmapNode.java  1.2  2009-03-22
+ * @(#)RectmapNode.java  1.3  2026-10-18
  *
- * Copyright (c) 2008-2009 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2008-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -26,7 +26,8 @@ import java.util.List;
  * treemap.
  *
  * @author Werner Randelshofer
- * @version 1.2 2009-03-22 Made layout progress observable.
+ * @version 1.3 2026-10-18 Adds method updateNodeLayout.
+ * <br>1.2 2009-03-22 Made layout progress observable.
  * <br>1.0 Jan 16, 2008 Created.
  */
 public class RectmapNode extends Rectangle2D.Double {
@@ -61,6 +62,17 @@ public class RectmapNode extends Rectangle2D.Double {
      * 
      */
     public void layout(ProgressObserver p) {
+        updateNodeLayout();
+    }
+
+    /**
+     * Lays out this node only. Does not lay out the subtrees of child
+     * nodes.
+     * <p>
+     * The root node gets a square with an area equal to its weight. The
+     * bounds of the other nodes are set by the layout of their parent.
+     */
+    public void updateNodeLayout() {
         if (parent == null) {
             width = height = Math.max(1, Math.sqrt(getCumulatedWeight()));
             x = y = 0;
@@ -1,7 +1,7 @@
 /**
- * @(#)RectmapTree.java  1.2  2009-03-22
+ * @(#)RectmapTree.java  1.4  2026-10-18
  *
- * Copyright (c) 2008-2009 Werner Randelshofer, Goldau, Switzerland.
+ * Copyright (c) 2008-2026 Werner Randelshofer, Goldau, Switzerland.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -13,34 +13,153 @@ package ch.randelshofer.tree.rectmap;
 import ch.randelshofer.gui.ProgressObserver;
 import ch.randelshofer.tree.TreeNode;
 import ch.randelshofer.tree.NodeInfo;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * RectmapTree lays out a tree structure in a space-filling rectangular treemap.
  *
  * @author Werner Randelshofer
- * @version 1.2 2009-03-22 Made layout progress observable.
+ * @version 1.4 2026-10-18 Lays out large subtrees in parallel.
+ * <br>1.3 2026-10-18 The layout algorithm can be chosen.
+ * <br>1.2 2009-03-22 Made layout progress observable.
  * <br>1.0 Jan 16, 2008 Created.
  */
 public class RectmapTree {
 
+    /**
+     * Subtrees with at least this number of descendants are laid out in
+     * parallel by default.
+     */
+    public final static int DEFAULT_PARALLEL_THRESHOLD = 2048;
+    /** The interval in milliseconds at which the layout progress is shown. */
+    private final static long PROGRESS_INTERVAL = 100;
     private RectmapNode root;
     private NodeInfo info;
 
     /** Creates a new instance. */
     public RectmapTree(TreeNode root, NodeInfo info, ProgressObserver p) {
+        this(root, info, RectmapLayout.SQUARIFIED, p);
+    }
+
+    /**
+     * Creates a new instance which lays out the nodes with the specified
+     * layout algorithm.
+     */
+    public RectmapTree(TreeNode root, NodeInfo info, RectmapLayout layout, ProgressObserver p) {
         p.setNote("Constructing tree…");
         this.info = info;
         if (!root.getAllowsChildren()) {
         this.root = new RectmapNode(null, root);
         } else {
-        this.root = new RectmapCompositeNode(null, root);
+        this.root = new RectmapCompositeNode(null, root, layout);
         }
         info.init(root);
         this.root.updateCumulatedWeight(info);
         p.setNote("Calculating layout…");
         p.setMaximum(p.getMaximum()+this.root.getDescendantCount());
         p.setIndeterminate(false);
-        this.root.layout(p);
+        layout(DEFAULT_PARALLEL_THRESHOLD, p);
+    }
+
+    /**
+     * Lays out the whole tree.
+     * <p>
+     * Once the bounds of a node have been laid out, the subtrees of its
+     * children do not depend on each other. Subtrees with at least
+     * {@code parallelThreshold} descendants are laid out by a fork/join
+     * pool, smaller subtrees are laid out sequentially by the task of their
+     * parent. The layout is the same as the sequential layout.
+     * <p>
+     * The tasks count the nodes which they have laid out; the calling
+     * thread shows the count on the progress observer.
+     *
+     * @param parallelThreshold the minimal number of descendants of a
+     * subtree which is laid out by a task of its own. Use
+     * {@code Integer.MAX_VALUE} for a sequential layout.
+     * @param p a progress observer
+     */
+    public void layout(int parallelThreshold, ProgressObserver p) {
+        if (root.isLeaf() || root.getDescendantCount() < parallelThreshold) {
+            root.layout(p);
+            return;
+        }
+        LongAdder progress = new LongAdder();
+        int base = p.getProgress();
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            ForkJoinTask<Void> task = pool.submit(new LayoutTask((RectmapCompositeNode) root, parallelThreshold, progress, p));
+            boolean isInterrupted = false;
+            for (boolean isDone = false; !isDone;) {
+                try {
+                    task.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+                    isDone = true;
+                } catch (TimeoutException e) {
+                    p.setProgress(base + (int) progress.sum());
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+            p.setProgress(base + (int) progress.sum());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Lays out the subtree of a composite node. First the children of the
+     * node are laid out. Then the children which have many descendants are
+     * forked, and the other children are laid out by this task.
+     */
+    private static class LayoutTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private RectmapCompositeNode node;
+        private int threshold;
+        private LongAdder progress;
+        private ProgressObserver p;
+
+        public LayoutTask(RectmapCompositeNode node, int threshold, LongAdder progress, ProgressObserver p) {
+            this.node = node;
+            this.threshold = threshold;
+            this.progress = progress;
+            this.p = p;
+        }
+
+        @Override
+        protected void compute() {
+            if (p.isCanceled()) {
+                return;
+            }
+            node.updateNodeLayout();
+            ArrayList<LayoutTask> forks = new ArrayList<LayoutTask>();
+            for (RectmapNode child : node.children()) {
+                if (!child.isLeaf()) {
+                    LayoutTask task = new LayoutTask((RectmapCompositeNode) child, threshold, progress, p);
+                    if (child.getDescendantCount() >= threshold) {
+                        task.fork();
+                        forks.add(task);
+                    } else {
+                        task.compute();
+                    }
+                }
+            }
+            progress.add(node.children().size());
+            for (LayoutTask task : forks) {
+                task.join();
+            }
+        }
     }
 
     public NodeInfo getInfo() {
@@ -0,0 +1,310 @@
+/*
+ * @(#)Rectmaps.java  1.0  2026-10-18
+ *
+ * Copyright (c) 2026 Werner Randelshofer, Goldau, Switzerland.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the
+ * license agreement you entered into with Werner Randelshofer.
+ * For details see accompanying license terms.
+ */
+package ch.randelshofer.tree.rectmap;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Provides algorithms which lay out nodes side by side in a rectangle.
+ * <p>
+ * The cumulated weight of a node is used as its area. The area of the
+ * rectangle must be equal or greater than the weight of the nodes. All
+ * algorithms run iteratively, and keep the sum of the weights of a strip
+ * in a running sum, instead of summing up the strip again whenever it is
+ * extended.
+ *
+ * @author Werner Randelshofer
+ * @version 1.0 2026-10-18 Created.
+ */
+public class Rectmaps {
+
+    /** Prevent instance creation. */
+    private Rectmaps() {
+    }
+
+    /**
+     * Lays out the nodes using the <a
+     * href="http://www.win.tue.nl/~vanwijk/stm.pdf">squarify algorithm</a>
+     * by Bruls, Huizing, and van Wijk, 2000.
+     * <p>
+     * The nodes are placed in strips along the shorter side of the remaining
+     * rectangle. A strip is extended by the next node as long as this
+     * improves the worst aspect ratio of its nodes. Since the nodes must be
+     * sorted by descending weight, the largest node of a strip is its first
+     * node and the smallest node is its last node, and the worst aspect
+     * ratio of an extended strip is computed in constant time.
+     *
+     * @param nodes The nodes sorted by descending weight.
+     * @param rect Is changed by this method.
+     */
+    public static void squarify(List<? extends RectmapNode> nodes, Rectangle2D.Double rect) {
+        int n = nodes.size();
+        int start = 0;
+        while (start < n) {
+            boolean isColumn = rect.width >= rect.height;
+            double w = isColumn ? rect.height : rect.width;
+            double ww = w * w;
+            double s = nodes.get(start).getCumulatedWeight();
+            double rmax = s;
+            double rmin = s;
+            double ratio = worstAspectRatio(s, rmin, rmax, ww);
+            int to;
+            for (to = start + 1; to < n; to++) {
+                double nodeWeight = nodes.get(to).getCumulatedWeight();
+                double newS = s + nodeWeight;
+                double newRmax = Math.max(rmax, nodeWeight);
+                double newRmin = Math.min(rmin, nodeWeight);
+                double newRatio = worstAspectRatio(newS, newRmin, newRmax, ww);
+                if (newRatio > ratio) {
+                    break;
+                }
+                ratio = newRatio;
+                s = newS;
+                rmax = newRmax;
+                rmin = newRmin;
+            }
+
+            if (isColumn) {
+                // Place the strip on the left side of the rectangle
+                double ny = rect.y;
+                double nw = s / rect.height;
+                for (int i = start; i < to; i++) {
+                    RectmapNode node = nodes.get(i);
+                    node.width = nw;
+                    node.height = node.getCumulatedWeight() / nw;
+                    node.x = rect.x;
+                    node.y = ny;
+                    ny += node.height;
+                }
+                rect.x += nw;
+                rect.width -= nw;
+            } else {
+                // Place the strip on the bottom side of the rectangle
+                double nx = rect.x;
+                double nh = s / rect.width;
+                for (int i = start; i < to; i++) {
+                    RectmapNode node = nodes.get(i);
+                    node.height = nh;
+                    node.width = node.getCumulatedWeight() / nh;
+                    node.x = nx;
+                    node.y = rect.y + rect.height - nh;
+                    nx += node.width;
+                }
+                rect.height -= nh;
+            }
+            start = to;
+        }
+    }
+
+    /**
+     * Returns the aspect ratio of the node, which will have the worst
+     * ratio, if nodes are laid out on a strip.
+     *
+     * @param s The sum of the weights of the nodes.
+     * @param rmin The smallest weight.
+     * @param rmax The largest weight.
+     * @param ww The squared length of the strip.
+     * @return Worst aspect ratio.
+     */
+    private static double worstAspectRatio(double s, double rmin, double rmax, double ww) {
+        return Math.max((ww * rmax) / (s * s), (s * s) / (ww * rmin));
+    }
+
+    /**
+     * Lays out the nodes using the slice-and-dice algorithm by Shneiderman,
+     * 1992.
+     * <p>
+     * The nodes are placed in their order in a single strip of slices across
+     * the longer side of the rectangle. This keeps the order of the nodes,
+     * but gives thin slices, if there are many nodes.
+     *
+     * @param nodes The nodes.
+     * @param rect Is changed by this method.
+     */
+    public static void sliceAndDice(List<? extends RectmapNode> nodes, Rectangle2D.Double rect) {
+        boolean isWide = rect.width >= rect.height;
+        for (RectmapNode node : nodes) {
+            cut(rect, node.getCumulatedWeight(), isWide, node);
+        }
+    }
+
+    /**
+     * Lays out the nodes using the strip algorithm by Bederson, Shneiderman,
+     * and Wattenberg, 2002.
+     * <p>
+     * The nodes are placed in their order in horizontal strips from the top
+     * to the bottom of the rectangle. A strip is extended by the next node
+     * as long as this improves the worst aspect ratio of its nodes. The
+     * original algorithm uses the average aspect ratio, which would have to
+     * be computed again for all nodes of the strip whenever it is extended.
+     *
+     * @param nodes The nodes.
+     * @param rect Is changed by this method.
+     */
+    public static void strip(List<? extends RectmapNode> nodes, Rectangle2D.Double rect) {
+        int n = nodes.size();
+        int start = 0;
+        double ww = rect.width * rect.width;
+        while (start < n) {
+            double s = nodes.get(start).getCumulatedWeight();
+            double rmax = s;
+            double rmin = s;
+            double ratio = worstAspectRatio(s, rmin, rmax, ww);
+            int to;
+            for (to = start + 1; to < n; to++) {
+                double nodeWeight = nodes.get(to).getCumulatedWeight();
+                double newS = s + nodeWeight;
+                double newRmax = Math.max(rmax, nodeWeight);
+                double newRmin = Math.min(rmin, nodeWeight);
+                double newRatio = worstAspectRatio(newS, newRmin, newRmax, ww);
+                if (newRatio > ratio) {
+                    break;
+                }
+                ratio = newRatio;
+                s = newS;
+                rmax = newRmax;
+                rmin = newRmin;
+            }
+
+            Rectangle2D.Double row = new Rectangle2D.Double();
+            cut(rect, s, false, row);
+            for (int i = start; i < to; i++) {
+                RectmapNode node = nodes.get(i);
+                cut(row, node.getCumulatedWeight(), true, node);
+            }
+            start = to;
+        }
+    }
+
+    /**
+     * Lays out the nodes using the ordered treemap algorithm with the
+     * pivot-by-size strategy by Shneiderman and Wattenberg, 2001.
+     * <p>
+     * The largest node is the pivot. The nodes before the pivot are placed
+     * in a rectangle along the shorter side of the rectangle. Next to it,
+     * the pivot is placed in a rectangle together with the nodes which
+     * follow it, such that the pivot is as square as possible. The
+     * remaining nodes are placed in the remaining rectangle. The three
+     * rectangles are laid out in the same way. This keeps nodes which are
+     * next to each other in their order close to each other, and gives
+     * nodes which are nearly as square as with the squarify algorithm.
+     * <p>
+     * The rectangles are kept on a stack instead of being laid out
+     * recursively.
+     *
+     * @param nodes The nodes.
+     * @param rect Is changed by this method.
+     */
+    public static void ordered(List<? extends RectmapNode> nodes, Rectangle2D.Double rect) {
+        ArrayDeque<Range> stack = new ArrayDeque<Range>();
+        stack.push(new Range(0, nodes.size(), rect));
+        while (!stack.isEmpty()) {
+            Range range = stack.pop();
+            int from = range.from;
+            int to = range.to;
+            Rectangle2D.Double r = range.rect;
+            if (to - from == 1) {
+                nodes.get(from).setRect(r);
+                continue;
+            } else if (to - from == 0) {
+                continue;
+            }
+
+            // Find the pivot, and the sum of the weights before it
+            int pivot = from;
+            double s1 = 0;
+            double s = 0;
+            for (int i = from; i < to; i++) {
+                double nodeWeight = nodes.get(i).getCumulatedWeight();
+                if (nodeWeight > nodes.get(pivot).getCumulatedWeight()) {
+                    pivot = i;
+                    s1 = s;
+                }
+                s += nodeWeight;
+            }
+            boolean isWide = r.width >= r.height;
+            double w = isWide ? r.height : r.width;
+
+            // Find the nodes which are placed with the pivot
+            double pivotWeight = nodes.get(pivot).getCumulatedWeight();
+            double s2 = 0;
+            double bestRatio = Double.MAX_VALUE;
+            double bestS2 = 0;
+            int split = pivot + 1;
+            for (int i = pivot + 1;; i++) {
+                double length = (pivotWeight + s2) / w;
+                double pivotLength = pivotWeight / length;
+                double ratio = Math.max(length / pivotLength, pivotLength / length);
+                if (ratio < bestRatio) {
+                    bestRatio = ratio;
+                    bestS2 = s2;
+                    split = i;
+                }
+                if (i == to) {
+                    break;
+                }
+                s2 += nodes.get(i).getCumulatedWeight();
+            }
+
+            Rectangle2D.Double r1 = new Rectangle2D.Double();
+            Rectangle2D.Double r2 = new Rectangle2D.Double();
+            Rectangle2D.Double rp = new Rectangle2D.Double();
+            cut(r, s1, isWide, r1);
+            cut(r, pivotWeight + bestS2, isWide, r2);
+            cut(r2, pivotWeight, !isWide, rp);
+            nodes.get(pivot).setRect(rp);
+            stack.push(new Range(split, to, r));
+            stack.push(new Range(pivot + 1, split, r2));
+            stack.push(new Range(from, pivot, r1));
+        }
+    }
+
+    /**
+     * Cuts a slice with the specified area off the rectangle.
+     *
+     * @param rect The rectangle. Is changed by this method.
+     * @param area The area of the slice.
+     * @param isWide If this is true, the slice is cut off the left side of
+     * the rectangle, otherwise off the top side.
+     * @param slice Is set to the slice.
+     */
+    private static void cut(Rectangle2D.Double rect, double area, boolean isWide, Rectangle2D.Double slice) {
+        if (isWide) {
+            double nw = (rect.height == 0) ? 0 : area / rect.height;
+            slice.setRect(rect.x, rect.y, nw, rect.height);
+            rect.x += nw;
+            rect.width -= nw;
+        } else {
+            double nh = (rect.width == 0) ? 0 : area / rect.width;
+            slice.setRect(rect.x, rect.y, rect.width, nh);
+            rect.y += nh;
+            rect.height -= nh;
+        }
+    }
+
+    /**
+     * A range of nodes, which is laid out in a rectangle.
+     */
+    private static class Range {
+
+        private int from;
+        private int to;
+        private Rectangle2D.Double rect;
+
+        public Range(int from, int to, Rectangle2D.Double rect) {
+            this.from = from;
+            this.to = to;
+            this.rect = rect;
+        }
+    }
+}